@@ -0,0 +1,15 @@
+#!/bin/bash
+# 基准测试运行脚本（JMH）
+# 用法：./run-benchmarks.sh [JMH参数]，例如 ./run-benchmarks.sh FragmentBenchmark -p order=SHUFFLED
+# 默认运行全部基准并附带GC分配统计（-prof gc）
+
+cd "$(dirname "$0")"
+
+ARGS="$*"
+if [ -z "$ARGS" ]; then
+    ARGS="-prof gc"
+elif [[ "$ARGS" != *"-prof"* ]]; then
+    ARGS="$ARGS -prof gc"
+fi
+
+mvn -Pjmh -q test-compile exec:exec -Djmh.args="$ARGS"
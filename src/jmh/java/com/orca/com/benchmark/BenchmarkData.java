@@ -0,0 +1,53 @@
+package com.orca.com.benchmark;
+
+import com.orca.com.protocol.EvaluationConfigResponse;
+import com.orca.com.protocol.TerrainResponse;
+
+import java.util.Arrays;
+
+/**
+ * 基准测试用的固定数据
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 地形响应：每隔一项带一段地形数据，长度按 20*(type-1) 的规律取值
+     */
+    static TerrainResponse terrainResponse(int itemCount) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(1L);
+        response.setCount(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+            item.setALongitude(116.397128 + i * 0.0001);
+            item.setBLongitude(39.909604 + i * 0.0001);
+            int type = i % 4 + 1;
+            item.setType(type);
+            item.setDensity(0.5f + (i % 50) / 100.0f);
+            item.setField6(i & 0xFFFF);
+            if (i % 2 == 1) {
+                byte[] terrain = new byte[20 * (type - 1)];
+                Arrays.fill(terrain, (byte) i);
+                item.setTerrainData(terrain);
+            }
+            response.getItems().add(item);
+        }
+        return response;
+    }
+
+    static EvaluationConfigResponse evaluationConfigResponse() {
+        EvaluationConfigResponse response = new EvaluationConfigResponse();
+        response.setRequestId(2L);
+        response.setTestBackground("海上声纳性能测试背景说明");
+        response.setEvaluationPurpose("评估声纳探测距离与定位精度");
+        response.setEvalTaskId(20240001L);
+        response.setTestPlatforms(Arrays.asList(1, 2, 5, 7));
+        response.setSonarTestLocation(Arrays.asList(3, 4));
+        response.setSonarTestTasks(Arrays.asList(1, 2, 3));
+        response.setTestMethod(2);
+        return response;
+    }
+}
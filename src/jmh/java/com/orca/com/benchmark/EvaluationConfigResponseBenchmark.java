@@ -0,0 +1,42 @@
+package com.orca.com.benchmark;
+
+import com.orca.com.protocol.EvaluationConfigResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评估配置响应编解码基准
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationConfigResponseBenchmark {
+
+    private EvaluationConfigResponse response;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        response = BenchmarkData.evaluationConfigResponse();
+        encoded = response.encode();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return response.encode();
+    }
+
+    @Benchmark
+    public EvaluationConfigResponse decode() {
+        return EvaluationConfigResponse.decode(encoded);
+    }
+
+    @Benchmark
+    public EvaluationConfigResponse roundTrip() {
+        return EvaluationConfigResponse.decode(response.encode());
+    }
+}
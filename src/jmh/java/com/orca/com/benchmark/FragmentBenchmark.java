@@ -0,0 +1,142 @@
+package com.orca.com.benchmark;
+
+import com.orca.com.protocol.FragmentChecksum;
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentReassembler;
+import com.orca.com.protocol.FragmentSplitter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片层基准：拆分（带/不带校验和）、分片头编解码、分片校验与重组（顺序、逆序、乱序到达）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FragmentBenchmark {
+    private static final int MAX_FRAGMENT_SIZE = 1400 - FragmentHeader.HEADER_SIZE;
+
+    @State(Scope.Thread)
+    public static class SplitState {
+        @Param({"1024", "65536", "1048576"})
+        public int payloadSize;
+
+        @Param({"false", "true"})
+        public boolean checksum;
+
+        public FragmentSplitter splitter;
+        public byte[] payload;
+
+        @Setup
+        public void setup() {
+            splitter = new FragmentSplitter(MAX_FRAGMENT_SIZE, checksum);
+            payload = new byte[payloadSize];
+            new Random(1).nextBytes(payload);
+        }
+    }
+
+    /**
+     * 预先解析好的分片：重组基准只测量 addFragment
+     */
+    @State(Scope.Thread)
+    public static class ReassemblyState {
+        @Param({"1024", "65536", "1048576"})
+        public int payloadSize;
+
+        @Param({"IN_ORDER", "REVERSED", "SHUFFLED"})
+        public String order;
+
+        public FragmentHeader[] headers;
+        public ByteBuffer[] fragments;
+        public FragmentReassembler reassembler;
+
+        @Setup
+        public void setup() {
+            byte[] payload = new byte[payloadSize];
+            new Random(1).nextBytes(payload);
+            List<byte[]> split = new FragmentSplitter(MAX_FRAGMENT_SIZE).split(payload);
+
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < split.size(); i++) {
+                indexes.add(i);
+            }
+            if ("REVERSED".equals(order)) {
+                Collections.reverse(indexes);
+            } else if ("SHUFFLED".equals(order)) {
+                Collections.shuffle(indexes, new Random(7));
+            }
+
+            headers = new FragmentHeader[split.size()];
+            fragments = new ByteBuffer[split.size()];
+            for (int i = 0; i < split.size(); i++) {
+                ByteBuffer datagram = ByteBuffer.wrap(split.get(indexes.get(i))).order(ByteOrder.LITTLE_ENDIAN);
+                headers[i] = FragmentHeader.decode(datagram);
+                fragments[i] = datagram.slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+            reassembler = new FragmentReassembler(3000);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HeaderState {
+        public final FragmentHeader header = new FragmentHeader(123456789L, 100, 42, MAX_FRAGMENT_SIZE);
+        public final byte[] encoded = header.encode();
+    }
+
+    /**
+     * 一个满载分片（1400字节数据报）的校验
+     */
+    @State(Scope.Thread)
+    public static class ChecksumState {
+        public ByteBuffer datagram;
+        public long checksum;
+
+        @Setup
+        public void setup() {
+            byte[] payload = new byte[MAX_FRAGMENT_SIZE];
+            new Random(1).nextBytes(payload);
+            datagram = ByteBuffer.wrap(new FragmentSplitter(MAX_FRAGMENT_SIZE, true).split(payload).get(0))
+                .order(ByteOrder.LITTLE_ENDIAN);
+            checksum = FragmentHeader.decode(datagram).getChecksum();
+        }
+    }
+
+    @Benchmark
+    public boolean verifyChecksum(ChecksumState state) {
+        return FragmentChecksum.verify(state.datagram, 0, state.checksum);
+    }
+
+    @Benchmark
+    public List<byte[]> split(SplitState state) {
+        return state.splitter.split(state.payload);
+    }
+
+    @Benchmark
+    public ByteBuffer reassemble(ReassemblyState state) {
+        ByteBuffer complete = null;
+        for (int i = 0; i < state.fragments.length; i++) {
+            state.fragments[i].rewind();
+            complete = state.reassembler.addFragment(state.headers[i], state.fragments[i]);
+        }
+        return complete;
+    }
+
+    @Benchmark
+    public byte[] encodeHeader(HeaderState state) {
+        return state.header.encode();
+    }
+
+    @Benchmark
+    public FragmentHeader decodeHeader(HeaderState state) {
+        return FragmentHeader.decode(state.encoded);
+    }
+}
@@ -0,0 +1,58 @@
+package com.orca.com.benchmark;
+
+import com.orca.com.protocol.TerrainResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地形响应编解码基准：不同响应项数量下的编码、视图解码与全量物化
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TerrainResponseBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int itemCount;
+
+    private TerrainResponse response;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        response = BenchmarkData.terrainResponse(itemCount);
+        encoded = response.encode();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return response.encode();
+    }
+
+    @Benchmark
+    public TerrainResponse decode() {
+        return TerrainResponse.decode(encoded);
+    }
+
+    @Benchmark
+    public List<TerrainResponse.ResponseItem> decodeAndMaterialize() {
+        return TerrainResponse.decode(encoded).getItems();
+    }
+
+    @Benchmark
+    public void decodeAndReadFields(Blackhole bh) {
+        TerrainResponse decoded = TerrainResponse.decode(encoded);
+        var view = decoded.getView();
+        for (int i = 0; i < view.size(); i++) {
+            bh.consume(view.getALongitude(i));
+            bh.consume(view.getDensity(i));
+            bh.consume(view.getTerrainDataLength(i));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.orca.com.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.websocket.JsonDataBufferWriter;
+import com.orca.com.websocket.WebSocketResponse;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket响应JSON序列化基准：String输出、字节数组输出与流式写入池化缓冲区
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WebSocketSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int itemCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonDataBufferWriter writer = new JsonDataBufferWriter(objectMapper);
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private TerrainResponse viewResponse;
+    private TerrainResponse dtoResponse;
+
+    @Setup
+    public void setup() {
+        dtoResponse = BenchmarkData.terrainResponse(itemCount);
+        viewResponse = TerrainResponse.decode(dtoResponse.encode());
+    }
+
+    @Benchmark
+    public String dtoToString() throws Exception {
+        return objectMapper.writeValueAsString(WebSocketResponse.fromUdpResponse(dtoResponse, 1));
+    }
+
+    @Benchmark
+    public byte[] viewToBytes() throws Exception {
+        return objectMapper.writeValueAsBytes(WebSocketResponse.fromUdpResponse(viewResponse, 1));
+    }
+
+    @Benchmark
+    public int viewToPooledBuffer() {
+        DataBuffer buffer = writer.write(WebSocketResponse.fromUdpResponse(viewResponse, 1), bufferFactory,
+            JsonDataBufferWriter.estimateSize(viewResponse));
+        int length = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return length;
+    }
+}
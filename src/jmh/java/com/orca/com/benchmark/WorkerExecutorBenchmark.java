@@ -0,0 +1,72 @@
+package com.orca.com.benchmark;
+
+import com.orca.com.protocol.ResponseFactory;
+import com.orca.com.protocol.UdpResponse;
+import com.orca.com.service.WorkerExecutors;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 响应解码工作线程基准：一批完整响应交给执行器解码，测量整批完成的吞吐。
+ * blockMicros 模拟任务中的阻塞段（例如同步回调），virtual 模式需在Java 21+上运行，否则该组参数报错跳过
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkerExecutorBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({"fixed", "virtual"})
+    public String mode;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    @Param({"0", "100"})
+    public int blockMicros;
+
+    private ExecutorService executor;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        if (WorkerExecutors.VIRTUAL.equals(mode) && !WorkerExecutors.isVirtualThreadSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21+");
+        }
+        executor = WorkerExecutors.create(mode, threads, "Benchmark-Worker");
+        encoded = BenchmarkData.terrainResponse(100).encode();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void decodeBatch(Blackhole bh) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        long blockNanos = TimeUnit.MICROSECONDS.toNanos(blockMicros);
+        for (int i = 0; i < BATCH; i++) {
+            executor.execute(() -> {
+                UdpResponse response = ResponseFactory.decode(ByteBuffer.wrap(encoded).order(ByteOrder.LITTLE_ENDIAN));
+                if (blockNanos > 0) {
+                    LockSupport.parkNanos(blockNanos);
+                }
+                bh.consume(response);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}
@@ -2,6 +2,9 @@ package com.orca.com.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "orca.udp")
 public class UdpProperties {
   private String listenHost = "0.0.0.0";
@@ -10,9 +13,79 @@ public class UdpProperties {
   private String sendHost = "0.0.0.0";
   private int sendPort = 19211;
 
+  // 多个上游后端（host:port 列表），为空时只使用 sendHost:sendPort；
+  // 负载均衡策略 round-robin / least-outstanding / latency；连续超时多少次后摘除该上游、摘除多久
+  private List<String> upstreams = new ArrayList<>();
+  private String upstreamBalancer = "round-robin";
+  private int upstreamEjectAfterTimeouts = 3;
+  private long upstreamEjectMs = 10000;
+
   private int maxDatagramSize = 1400;
   private long reassemblyTimeoutMs = 3000;
 
+  // 未收齐会话的重组内存上限（全局，0表示不限制）与每个来源IP的上限（0表示不限制）；
+  // 超出时拒绝分片，使用量超过90%时按淘汰策略（least-complete 或 oldest）驱逐会话直到回落到75%
+  private long reassemblyMaxBytes = 256L * 1024 * 1024;
+  private long reassemblyMaxBytesPerSource = 128L * 1024 * 1024;
+  private String reassemblyEvictionPolicy = "least-complete";
+
+  // 等待上游响应的超时时间；在途超过该时长的请求不再参与合并
+  private long requestTimeoutMs = 30000;
+
+  // 全局在途UDP请求上限（超出后按客户端轮转排队，0表示不限制）、每个WebSocket会话的在途请求上限
+  private int maxInFlightRequests = 512;
+  private int sessionMaxInFlightRequests = 32;
+
+  // 对冲请求：首个请求超过最近成功延迟的 hedge-percentile 百分位（限制在上下限之间）仍未响应时，
+  // 以新的requestId再发一份（优先发往其他上游），先到的响应生效；对冲数最多为请求数的 hedge-budget-percent%
+  private boolean hedgeEnabled = false;
+  private double hedgePercentile = 95;
+  private long hedgeMinDelayMs = 20;
+  private long hedgeMaxDelayMs = 1000;
+  private int hedgeBudgetPercent = 10;
+
+  // 接收线程数；大于1时通过SO_REUSEPORT在同一端口上打开多个监听channel
+  private int receiveThreads = 1;
+
+  // 响应解码工作线程：fixed 为固定数量的平台线程，virtual 为每个响应一个虚拟线程（需Java 21+，否则退回fixed）
+  private String workerExecutor = "fixed";
+  private int workerThreads = 2;
+
+  // 分片处理通道数，同一会话的分片固定由同一通道重组
+  private int processingLanes = Runtime.getRuntime().availableProcessors();
+
+  // 每个处理通道的队列容量（取整到2的幂），队列满时丢弃数据报；
+  // 接收缓冲池按 通道数 x (队列容量 + 1) + 接收线程数 保留缓冲区，随之增减
+  private int laneQueueCapacity = 1024;
+
+  // 发送队列容量（满时拒绝新请求）、发送速率上限（字节/秒，0表示不限速）、突发字节数
+  private int sendQueueCapacity = 1024;
+  private long sendRateBytesPerSec = 0;
+  private long sendBurstBytes = 64 * 1024;
+
+  // 自适应分片大小：按投递结果在上下限之间调整发出的数据报大小（max-datagram-size 为初始值），
+  // 启用后接收缓冲区按上限分配
+  private boolean adaptiveDatagramSize = false;
+  private int adaptiveMinDatagramSize = 1200;
+  private int adaptiveMaxDatagramSize = 8972;
+
+  // 发出的分片是否带CRC32C校验和（接收端对带 FLAG_CHECKSUM 的分片总是校验）
+  private boolean checksumEnabled = false;
+
+  // 逐包跟踪：每N个数据报输出一条分片头摘要，0为关闭（运行时可通过 /actuator/packettrace 调整）
+  private int traceSampleEvery = 0;
+
+  // 选择性重发：会话停顿多久后发NACK、每个会话最多几轮、发送端为NACK保留的最近会话数（需上游支持）
+  private boolean nackEnabled = false;
+  private long nackDelayMs = 200;
+  private int nackMaxRounds = 3;
+  private int retransmitBufferSessions = 256;
+
+  // 地形响应缓存：最大条目数（0表示关闭缓存）、缓存报文总字节上限、存活时间
+  private int responseCacheMaxEntries = 1024;
+  private long responseCacheMaxBytes = 64L * 1024 * 1024;
+  private long responseCacheTtlMs = 30000;
+
   public String getListenHost() {
     return listenHost;
   }
@@ -45,6 +118,38 @@ public class UdpProperties {
     this.sendPort = sendPort;
   }
 
+  public List<String> getUpstreams() {
+    return upstreams;
+  }
+
+  public void setUpstreams(List<String> upstreams) {
+    this.upstreams = upstreams;
+  }
+
+  public String getUpstreamBalancer() {
+    return upstreamBalancer;
+  }
+
+  public void setUpstreamBalancer(String upstreamBalancer) {
+    this.upstreamBalancer = upstreamBalancer;
+  }
+
+  public int getUpstreamEjectAfterTimeouts() {
+    return upstreamEjectAfterTimeouts;
+  }
+
+  public void setUpstreamEjectAfterTimeouts(int upstreamEjectAfterTimeouts) {
+    this.upstreamEjectAfterTimeouts = upstreamEjectAfterTimeouts;
+  }
+
+  public long getUpstreamEjectMs() {
+    return upstreamEjectMs;
+  }
+
+  public void setUpstreamEjectMs(long upstreamEjectMs) {
+    this.upstreamEjectMs = upstreamEjectMs;
+  }
+
   public int getMaxDatagramSize() {
     return maxDatagramSize;
   }
@@ -60,5 +165,252 @@ public class UdpProperties {
   public void setReassemblyTimeoutMs(long reassemblyTimeoutMs) {
     this.reassemblyTimeoutMs = reassemblyTimeoutMs;
   }
-}
 
+  public long getReassemblyMaxBytes() {
+    return reassemblyMaxBytes;
+  }
+
+  public void setReassemblyMaxBytes(long reassemblyMaxBytes) {
+    this.reassemblyMaxBytes = reassemblyMaxBytes;
+  }
+
+  public long getReassemblyMaxBytesPerSource() {
+    return reassemblyMaxBytesPerSource;
+  }
+
+  public void setReassemblyMaxBytesPerSource(long reassemblyMaxBytesPerSource) {
+    this.reassemblyMaxBytesPerSource = reassemblyMaxBytesPerSource;
+  }
+
+  public String getReassemblyEvictionPolicy() {
+    return reassemblyEvictionPolicy;
+  }
+
+  public void setReassemblyEvictionPolicy(String reassemblyEvictionPolicy) {
+    this.reassemblyEvictionPolicy = reassemblyEvictionPolicy;
+  }
+
+  public long getRequestTimeoutMs() {
+    return requestTimeoutMs;
+  }
+
+  public void setRequestTimeoutMs(long requestTimeoutMs) {
+    this.requestTimeoutMs = requestTimeoutMs;
+  }
+
+  public int getMaxInFlightRequests() {
+    return maxInFlightRequests;
+  }
+
+  public void setMaxInFlightRequests(int maxInFlightRequests) {
+    this.maxInFlightRequests = maxInFlightRequests;
+  }
+
+  public int getSessionMaxInFlightRequests() {
+    return sessionMaxInFlightRequests;
+  }
+
+  public void setSessionMaxInFlightRequests(int sessionMaxInFlightRequests) {
+    this.sessionMaxInFlightRequests = sessionMaxInFlightRequests;
+  }
+
+  public String getWorkerExecutor() {
+    return workerExecutor;
+  }
+
+  public void setWorkerExecutor(String workerExecutor) {
+    this.workerExecutor = workerExecutor;
+  }
+
+  public int getWorkerThreads() {
+    return workerThreads;
+  }
+
+  public void setWorkerThreads(int workerThreads) {
+    this.workerThreads = workerThreads;
+  }
+
+  public boolean isHedgeEnabled() {
+    return hedgeEnabled;
+  }
+
+  public void setHedgeEnabled(boolean hedgeEnabled) {
+    this.hedgeEnabled = hedgeEnabled;
+  }
+
+  public double getHedgePercentile() {
+    return hedgePercentile;
+  }
+
+  public void setHedgePercentile(double hedgePercentile) {
+    this.hedgePercentile = hedgePercentile;
+  }
+
+  public long getHedgeMinDelayMs() {
+    return hedgeMinDelayMs;
+  }
+
+  public void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+    this.hedgeMinDelayMs = hedgeMinDelayMs;
+  }
+
+  public long getHedgeMaxDelayMs() {
+    return hedgeMaxDelayMs;
+  }
+
+  public void setHedgeMaxDelayMs(long hedgeMaxDelayMs) {
+    this.hedgeMaxDelayMs = hedgeMaxDelayMs;
+  }
+
+  public int getHedgeBudgetPercent() {
+    return hedgeBudgetPercent;
+  }
+
+  public void setHedgeBudgetPercent(int hedgeBudgetPercent) {
+    this.hedgeBudgetPercent = hedgeBudgetPercent;
+  }
+
+  public int getReceiveThreads() {
+    return receiveThreads;
+  }
+
+  public void setReceiveThreads(int receiveThreads) {
+    this.receiveThreads = receiveThreads;
+  }
+
+  public int getProcessingLanes() {
+    return processingLanes;
+  }
+
+  public void setProcessingLanes(int processingLanes) {
+    this.processingLanes = processingLanes;
+  }
+
+  public int getLaneQueueCapacity() {
+    return laneQueueCapacity;
+  }
+
+  public void setLaneQueueCapacity(int laneQueueCapacity) {
+    this.laneQueueCapacity = laneQueueCapacity;
+  }
+
+  public int getSendQueueCapacity() {
+    return sendQueueCapacity;
+  }
+
+  public void setSendQueueCapacity(int sendQueueCapacity) {
+    this.sendQueueCapacity = sendQueueCapacity;
+  }
+
+  public long getSendRateBytesPerSec() {
+    return sendRateBytesPerSec;
+  }
+
+  public void setSendRateBytesPerSec(long sendRateBytesPerSec) {
+    this.sendRateBytesPerSec = sendRateBytesPerSec;
+  }
+
+  public long getSendBurstBytes() {
+    return sendBurstBytes;
+  }
+
+  public void setSendBurstBytes(long sendBurstBytes) {
+    this.sendBurstBytes = sendBurstBytes;
+  }
+
+  public boolean isAdaptiveDatagramSize() {
+    return adaptiveDatagramSize;
+  }
+
+  public void setAdaptiveDatagramSize(boolean adaptiveDatagramSize) {
+    this.adaptiveDatagramSize = adaptiveDatagramSize;
+  }
+
+  public int getAdaptiveMinDatagramSize() {
+    return adaptiveMinDatagramSize;
+  }
+
+  public void setAdaptiveMinDatagramSize(int adaptiveMinDatagramSize) {
+    this.adaptiveMinDatagramSize = adaptiveMinDatagramSize;
+  }
+
+  public int getAdaptiveMaxDatagramSize() {
+    return adaptiveMaxDatagramSize;
+  }
+
+  public void setAdaptiveMaxDatagramSize(int adaptiveMaxDatagramSize) {
+    this.adaptiveMaxDatagramSize = adaptiveMaxDatagramSize;
+  }
+
+  public boolean isChecksumEnabled() {
+    return checksumEnabled;
+  }
+
+  public void setChecksumEnabled(boolean checksumEnabled) {
+    this.checksumEnabled = checksumEnabled;
+  }
+
+  public int getTraceSampleEvery() {
+    return traceSampleEvery;
+  }
+
+  public void setTraceSampleEvery(int traceSampleEvery) {
+    this.traceSampleEvery = traceSampleEvery;
+  }
+
+  public boolean isNackEnabled() {
+    return nackEnabled;
+  }
+
+  public void setNackEnabled(boolean nackEnabled) {
+    this.nackEnabled = nackEnabled;
+  }
+
+  public long getNackDelayMs() {
+    return nackDelayMs;
+  }
+
+  public void setNackDelayMs(long nackDelayMs) {
+    this.nackDelayMs = nackDelayMs;
+  }
+
+  public int getNackMaxRounds() {
+    return nackMaxRounds;
+  }
+
+  public void setNackMaxRounds(int nackMaxRounds) {
+    this.nackMaxRounds = nackMaxRounds;
+  }
+
+  public int getRetransmitBufferSessions() {
+    return retransmitBufferSessions;
+  }
+
+  public void setRetransmitBufferSessions(int retransmitBufferSessions) {
+    this.retransmitBufferSessions = retransmitBufferSessions;
+  }
+
+  public int getResponseCacheMaxEntries() {
+    return responseCacheMaxEntries;
+  }
+
+  public void setResponseCacheMaxEntries(int responseCacheMaxEntries) {
+    this.responseCacheMaxEntries = responseCacheMaxEntries;
+  }
+
+  public long getResponseCacheMaxBytes() {
+    return responseCacheMaxBytes;
+  }
+
+  public void setResponseCacheMaxBytes(long responseCacheMaxBytes) {
+    this.responseCacheMaxBytes = responseCacheMaxBytes;
+  }
+
+  public long getResponseCacheTtlMs() {
+    return responseCacheTtlMs;
+  }
+
+  public void setResponseCacheTtlMs(long responseCacheTtlMs) {
+    this.responseCacheTtlMs = responseCacheTtlMs;
+  }
+}
@@ -22,6 +22,13 @@ public class ByteOrderUtils {
         return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
     }
     
+    /**
+     * 以小端序视图读取ByteBuffer中position到limit之间的内容（不移动原缓冲区的position）
+     */
+    public static ByteBuffer sliceLittleEndian(ByteBuffer buffer) {
+        return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
     /**
      * 读取uint32_t (小端)
      */
@@ -0,0 +1,90 @@
+package com.orca.com.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 线程安全的 long 键哈希表
+ * 按键的散列高位分成若干段，每段是一个独立加锁的 LongObjectHashMap：不同段之间互不竞争，
+ * 每次操作只持有一个段锁，且不装箱、不分配节点。值不能为null
+ */
+public class ConcurrentLongObjectMap<V> {
+    private final LongObjectHashMap<V>[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongObjectMap() {
+        this(16);
+    }
+
+    public ConcurrentLongObjectMap(int concurrencyLevel) {
+        int count = Integer.highestOneBit(Math.max(2, concurrencyLevel) - 1) << 1;
+        @SuppressWarnings("unchecked")
+        LongObjectHashMap<V>[] segments = (LongObjectHashMap<V>[]) new LongObjectHashMap<?>[count];
+        this.segments = segments;
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new LongObjectHashMap<>();
+        }
+    }
+
+    public V get(long key) {
+        LongObjectHashMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public V put(long key, V value) {
+        LongObjectHashMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.put(key, value);
+        }
+    }
+
+    public V remove(long key) {
+        LongObjectHashMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key);
+        }
+    }
+
+    /**
+     * 仅当键当前映射到同一个对象时移除
+     */
+    public boolean remove(long key, Object value) {
+        LongObjectHashMap<V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.remove(key, value);
+        }
+    }
+
+    /**
+     * 逐段加锁统计，结果不是全局一致的快照
+     */
+    public int size() {
+        int size = 0;
+        for (LongObjectHashMap<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 当前所有值的拷贝（逐段加锁收集）
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (LongObjectHashMap<V> segment : segments) {
+            synchronized (segment) {
+                segment.forEachValue(values::add);
+            }
+        }
+        return values;
+    }
+
+    private LongObjectHashMap<V> segmentFor(long key) {
+        return segments[(int) (LongObjectHashMap.hash(key) >>> segmentShift)];
+    }
+}
@@ -98,7 +98,14 @@ public class EvaluationConfigResponse extends UdpResponse {
     }
 
     public static EvaluationConfigResponse decode(byte[] data) {
-        java.nio.ByteBuffer buffer = ByteOrderUtils.wrapLittleEndian(data);
+        return decode(ByteOrderUtils.wrapLittleEndian(data));
+    }
+
+    /**
+     * 从ByteBuffer解码（数据为position到limit之间的内容，不移动原缓冲区的position）
+     */
+    public static EvaluationConfigResponse decode(java.nio.ByteBuffer data) {
+        java.nio.ByteBuffer buffer = ByteOrderUtils.sliceLittleEndian(data);
         
         // 读取Type
         int type = ByteOrderUtils.readUint16(buffer);
@@ -0,0 +1,55 @@
+package com.orca.com.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * 分片校验和：CRC32C（JDK 内置实现，使用 CPU 的 CRC32 指令）
+ * 覆盖分片头中 checksum 之前的11个字节与全部载荷，checksum 字段自身不参与计算
+ */
+public class FragmentChecksum {
+    /**
+     * checksum 字段在分片头中的偏移
+     */
+    public static final int CHECKSUM_OFFSET = FragmentHeader.HEADER_SIZE - 4;
+
+    private FragmentChecksum() {
+    }
+
+    /**
+     * 计算校验和，不改变两个缓冲区的position与limit
+     * @param header position处为分片头起始
+     * @param payload position到limit之间为载荷
+     */
+    public static long compute(ByteBuffer header, ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        int headerPosition = header.position();
+        int headerLimit = header.limit();
+        header.limit(headerPosition + CHECKSUM_OFFSET);
+        crc.update(header);
+        header.limit(headerLimit).position(headerPosition);
+        int payloadPosition = payload.position();
+        crc.update(payload);
+        payload.position(payloadPosition);
+        return crc.getValue();
+    }
+
+    /**
+     * 计算byte[]形式分片（分片头+载荷）的校验和
+     */
+    public static long compute(byte[] fragment) {
+        CRC32C crc = new CRC32C();
+        crc.update(fragment, 0, CHECKSUM_OFFSET);
+        crc.update(fragment, FragmentHeader.HEADER_SIZE, fragment.length - FragmentHeader.HEADER_SIZE);
+        return crc.getValue();
+    }
+
+    /**
+     * 校验已接收的分片
+     * @param datagram headerStart处为分片头，position到limit之间为载荷（即 FragmentHeader.decode 之后的状态）
+     */
+    public static boolean verify(ByteBuffer datagram, int headerStart, long expected) {
+        ByteBuffer header = datagram.duplicate().position(headerStart);
+        return compute(header, datagram) == expected;
+    }
+}
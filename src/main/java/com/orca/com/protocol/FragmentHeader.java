@@ -8,6 +8,12 @@ import java.nio.ByteBuffer;
 public class FragmentHeader {
     public static final int HEADER_SIZE = 15;
     
+    // flags 取值：NACK 控制报文（载荷为缺失的分片序号，见 NackMessage）；按NACK重发的分片；
+    // checksum 字段有效（CRC32C，见 FragmentChecksum），未设置时 checksum 为0且不校验
+    public static final int FLAG_NACK = 0x01;
+    public static final int FLAG_RETRANSMIT = 0x02;
+    public static final int FLAG_CHECKSUM = 0x04;
+    
     private long sessionId;      // uint32_t (4字节)
     private int totalPackets;    // uint16_t (2字节)
     private int currentPacket;   // uint16_t (2字节)
@@ -31,7 +37,13 @@ public class FragmentHeader {
      * 从字节数组解码
      */
     public static FragmentHeader decode(byte[] data) {
-        ByteBuffer buffer = ByteOrderUtils.wrapLittleEndian(data);
+        return decode(ByteOrderUtils.wrapLittleEndian(data));
+    }
+    
+    /**
+     * 从ByteBuffer当前位置解码（要求小端字节序），解码后position前移HEADER_SIZE
+     */
+    public static FragmentHeader decode(ByteBuffer buffer) {
         FragmentHeader header = new FragmentHeader();
         header.sessionId = ByteOrderUtils.readUint32(buffer);
         header.totalPackets = ByteOrderUtils.readUint16(buffer);
@@ -42,18 +54,40 @@ public class FragmentHeader {
         return header;
     }
     
+    /**
+     * 不解码整个头部，直接读取当前位置处的会话ID（要求小端字节序，不移动position）
+     */
+    public static long peekSessionId(ByteBuffer buffer) {
+        return Integer.toUnsignedLong(buffer.getInt(buffer.position()));
+    }
+    
     /**
      * 编码为字节数组
      */
     public byte[] encode() {
         ByteBuffer buffer = ByteOrderUtils.allocateLittleEndian(HEADER_SIZE);
+        encode(buffer);
+        return buffer.array();
+    }
+    
+    /**
+     * 编码到ByteBuffer当前位置（要求小端字节序），编码后position前移HEADER_SIZE
+     */
+    public void encode(ByteBuffer buffer) {
         ByteOrderUtils.writeUint32(buffer, sessionId);
         ByteOrderUtils.writeUint16(buffer, totalPackets);
         ByteOrderUtils.writeUint16(buffer, currentPacket);
         ByteOrderUtils.writeUint16(buffer, currentSize);
         ByteOrderUtils.writeUint8(buffer, flags);
         ByteOrderUtils.writeUint32(buffer, checksum);
-        return buffer.array();
+    }
+    
+    public boolean isNack() {
+        return (flags & FLAG_NACK) != 0;
+    }
+    
+    public boolean hasChecksum() {
+        return (flags & FLAG_CHECKSUM) != 0;
     }
     
     // Getters and Setters
@@ -1,107 +1,567 @@
 package com.orca.com.protocol;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 分片重组器
+ * 非线程安全：每个实例只能由单一线程访问（参见 FragmentDispatcher 的处理通道），
+ * 超时的残缺会话由持有线程调用 evictExpired 清理。
+ * 配置了 NackListener 时，会话停顿超过 nackDelay 仍有缺口，则在 evictExpired 中报告缺失的分片序号，
+ * 由调用方向发送端请求重发（最多 maxNackRounds 轮），而不是等到超时后丢弃整个会话。
+ * 配置了 PrefixListener 时，会话从首个分片起无缺口的前缀每次增长都会通知，调用方可在收齐之前增量解析。
+ * 配置了 ReassemblyBudget 时，未收齐会话的缓冲区在分配前向预算申请，超出全局或来源上限的分片被拒绝；
+ * 预算紧张时 evictExpired 按淘汰策略驱逐本重组器的会话。被拒绝的新会话与被驱逐的会话同 discard 一样保留为空标记直到超时，
+ * 其后续分片直接丢弃，不会重新申请整块缓冲区
  */
 public class FragmentReassembler {
-    private final Map<Long, SessionFragments> sessions = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService cleanupExecutor;
-    private final long timeoutMs;
-    
+    private static final int WHEEL_SIZE = 64;
+    private static final int TICKS_PER_TIMEOUT = 32;
+
+    private final LongObjectHashMap<SessionFragments> sessions = new LongObjectHashMap<>();
+    private final long timeoutNanos;
+    private final long nackDelayNanos;
+    private final int maxNackRounds;
+    private final NackListener nackListener; // 未启用NACK时为null
+    // 每个会话在时间轮中只有一个截止时间，收到新分片时不移动，到期时再按最后活动时间决定淘汰、发NACK或顺延
+    private final TimerWheel<SessionFragments> wheel;
+    private SessionListener sessionListener; // 可选，用于统计
+    private PrefixListener prefixListener;   // 可选，用于增量解析
+    private ReassemblyBudget budget;         // 可选，与其他通道的重组器共享
+
     public FragmentReassembler(long timeoutMs) {
-        this.timeoutMs = timeoutMs;
-        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "FragmentReassembler-Cleanup");
-            t.setDaemon(true);
-            return t;
-        });
-        this.cleanupExecutor.scheduleWithFixedDelay(this::cleanupExpired, timeoutMs, timeoutMs, TimeUnit.MILLISECONDS);
+        this(timeoutMs, 0, 0, null);
+    }
+
+    /**
+     * @param nackDelayMs 会话停顿多久后请求重发缺失分片
+     * @param maxNackRounds 每个会话最多请求重发的轮数
+     * @param nackListener 为null时不发NACK
+     */
+    public FragmentReassembler(long timeoutMs, long nackDelayMs, int maxNackRounds, NackListener nackListener) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.nackDelayNanos = TimeUnit.MILLISECONDS.toNanos(nackDelayMs);
+        this.maxNackRounds = maxNackRounds;
+        this.nackListener = (nackListener != null && nackDelayNanos > 0 && maxNackRounds > 0) ? nackListener : null;
+        long tickNanos = timeoutNanos / TICKS_PER_TIMEOUT;
+        if (this.nackListener != null) {
+            tickNanos = Math.min(tickNanos, nackDelayNanos / 4);
+        }
+        this.wheel = new TimerWheel<>(Math.max(TimeUnit.MILLISECONDS.toNanos(1), tickNanos), WHEEL_SIZE,
+            System.nanoTime());
+    }
+
+    /**
+     * 缺失分片回调（在持有线程上调用）
+     */
+    @FunctionalInterface
+    public interface NackListener {
+        void onMissing(long sessionId, int totalPackets, int[] missingPackets);
     }
-    
+
+    /**
+     * 会话结束回调（在持有线程上调用）
+     */
+    public interface SessionListener {
+        /**
+         * @param durationNanos 从收到首个分片到收齐的时间
+         */
+        void onCompleted(int totalPackets, long durationNanos);
+
+        void onExpired(int totalPackets);
+
+        /**
+         * 分片因超出重组内存预算被拒绝
+         * @param reason ReassemblyBudget.OVER_BUDGET 或 OVER_SOURCE_LIMIT
+         */
+        default void onRefused(int totalPackets, int reason) {
+        }
+
+        /**
+         * 会话因内存压力被驱逐
+         */
+        default void onEvicted(int totalPackets) {
+        }
+    }
+
+    /**
+     * 连续前缀回调（在持有线程上调用）
+     * 只对按固定大小切片的会话生效；会话收齐时不再通知，完整数据由 addFragment 返回
+     */
+    @FunctionalInterface
+    public interface PrefixListener {
+        /**
+         * @param prefix 小端序只读缓冲区，下标0对应完整数据的起始，长度为整数个分片；
+         *               其内容在会话收齐或被丢弃之前不会改变
+         * @return 该会话之后的前缀交给谁处理（可以是为该会话新建的有状态监听器），返回null则不再通知该会话
+         */
+        PrefixListener onPrefix(long sessionId, ByteBuffer prefix);
+    }
+
+    /**
+     * 设置连续前缀回调，需在持有线程开始使用前设置
+     */
+    public void setPrefixListener(PrefixListener prefixListener) {
+        this.prefixListener = prefixListener;
+    }
+
+    /**
+     * 设置重组内存预算，需在持有线程开始使用前设置
+     */
+    public void setBudget(ReassemblyBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * 设置会话结束回调，需在持有线程开始使用前设置
+     */
+    public void setSessionListener(SessionListener sessionListener) {
+        this.sessionListener = sessionListener;
+    }
+
     /**
      * 添加分片
      * @return 完整数据，如果还未收齐则返回null
      */
     public byte[] addFragment(FragmentHeader header, byte[] fragmentData) {
+        ByteBuffer completeData = addFragment(header, ByteBuffer.wrap(fragmentData));
+        if (completeData == null) {
+            return null;
+        }
+        byte[] array = completeData.array();
+        if (completeData.remaining() == array.length) {
+            return array;
+        }
+        return Arrays.copyOfRange(array, completeData.position(), completeData.limit());
+    }
+
+    /**
+     * 添加分片（数据为ByteBuffer中position到limit之间的内容）
+     * 载荷直接拷贝到会话重组缓冲区中的最终位置，返回后不再持有fragmentData的引用，调用方可立即复用该缓冲区
+     * @return 完整数据（小端序，position到limit之间），如果还未收齐则返回null
+     */
+    public ByteBuffer addFragment(FragmentHeader header, ByteBuffer fragmentData) {
+        return addFragment(header, fragmentData, 0);
+    }
+
+    /**
+     * 同上
+     * @param source 发送端地址的键，用于按来源限制重组内存（未配置预算时忽略）
+     */
+    public ByteBuffer addFragment(FragmentHeader header, ByteBuffer fragmentData, long source) {
+        int totalPackets = header.getTotalPackets();
+        if (totalPackets == 0 || header.getCurrentPacket() >= totalPackets) {
+            throw new IllegalArgumentException("Invalid fragment index " + header.getCurrentPacket()
+                + " of " + totalPackets);
+        }
+
         long sessionId = header.getSessionId();
-        SessionFragments session = sessions.computeIfAbsent(sessionId, 
-            k -> new SessionFragments(header.getTotalPackets()));
-        
-        synchronized (session) {
-            session.addFragment(header.getCurrentPacket(), fragmentData);
-            session.updateLastAccess();
-            
-            if (session.isComplete()) {
-                byte[] completeData = session.assemble();
-                sessions.remove(sessionId);
-                return completeData;
-            }
-        }
-        
+        SessionFragments session = sessions.get(sessionId);
+        if (session == null) {
+            session = new SessionFragments(sessionId, totalPackets, budget, source);
+            session.prefixListener = prefixListener;
+            session.timeout = wheel.schedule(session, nextDeadline(session));
+            sessions.put(sessionId, session);
+        } else if (session.totalPackets != totalPackets) {
+            throw new IllegalArgumentException("Fragment total mismatch for session " + sessionId
+                + ": " + totalPackets + " != " + session.totalPackets);
+        }
+
+        session.updateLastAccess();
+        if (session.discarded) {
+            return null;
+        }
+        int refused = session.addFragment(header.getCurrentPacket(), fragmentData);
+        if (refused != ReassemblyBudget.RESERVED) {
+            // 分片被丢弃；还没有任何数据的新会话已无法收齐，留作空标记，避免之后的分片再次申请整块缓冲区
+            if (session.receivedCount == 0) {
+                session.discard();
+            }
+            if (sessionListener != null) {
+                sessionListener.onRefused(totalPackets, refused);
+            }
+            return null;
+        }
+
+        if (session.isComplete()) {
+            sessions.remove(sessionId);
+            wheel.cancel(session.timeout);
+            session.releaseBudget();
+            if (sessionListener != null) {
+                sessionListener.onCompleted(totalPackets, session.lastAccess - session.createdAt);
+            }
+            return session.assemble();
+        }
+
+        if (session.prefixListener != null) {
+            ByteBuffer prefix = session.advancePrefix();
+            if (prefix != null) {
+                session.prefixListener = session.prefixListener.onPrefix(sessionId, prefix);
+            }
+        }
         return null;
     }
-    
-    private void cleanupExpired() {
-        long now = System.currentTimeMillis();
-        sessions.entrySet().removeIf(entry -> {
-            SessionFragments session = entry.getValue();
-            synchronized (session) {
-                if (now - session.getLastAccess() > timeoutMs) {
-                    return true;
+
+    /**
+     * 放弃一个会话（例如已不再需要的对冲请求的响应）：立即释放已收到的分片，
+     * 会话保留为空标记直到超时，期间到达的后续分片直接丢弃，不再重组，也不发NACK
+     */
+    public void discard(FragmentHeader header) {
+        long sessionId = header.getSessionId();
+        SessionFragments session = sessions.get(sessionId);
+        if (session == null) {
+            session = new SessionFragments(sessionId, header.getTotalPackets(), null, 0);
+            session.timeout = wheel.schedule(session, session.lastAccess + timeoutNanos);
+            sessions.put(sessionId, session);
+        }
+        session.discard();
+    }
+
+    /**
+     * 清理超过timeoutMs未收到新分片的残缺会话，只处理时间轮中已到期的槽；
+     * 启用NACK时同时为停顿的会话报告缺失分片
+     * @return 被清理的会话数（含因内存压力被驱逐的）
+     */
+    public int evictExpired() {
+        long now = System.nanoTime();
+        int before = sessions.size();
+        wheel.advance(now, session -> {
+            if (now - session.getLastAccess() >= timeoutNanos) {
+                sessions.remove(session.sessionId);
+                session.releaseBudget();
+                if (sessionListener != null && !session.discarded) {
+                    sessionListener.onExpired(session.totalPackets);
                 }
+                return;
+            }
+            if (nackListener != null && !session.discarded && session.nackRounds < maxNackRounds
+                    && now - session.quietSince() >= nackDelayNanos) {
+                session.nackRounds++;
+                session.lastNack = now;
+                nackListener.onMissing(session.sessionId, session.totalPackets, session.missingPackets());
+            }
+            session.timeout = wheel.schedule(session, nextDeadline(session));
+        });
+        int evicted = 0;
+        if (budget != null && budget.isUnderPressure()) {
+            evicted = relievePressure();
+        }
+        return before - sessions.size() + evicted;
+    }
+
+    /**
+     * 按淘汰策略驱逐本重组器持有预算的会话，直到全局使用量回落到低水位或没有可驱逐的会话；
+     * 被驱逐的会话释放缓冲区后保留为空标记直到超时
+     * @return 被驱逐的会话数
+     */
+    private int relievePressure() {
+        List<SessionFragments> candidates = new ArrayList<>();
+        sessions.forEachValue(session -> {
+            if (session.reservedBytes > 0) {
+                candidates.add(session);
             }
-            return false;
         });
+        candidates.sort(budget.isEvictLeastComplete() ? LEAST_COMPLETE_FIRST : OLDEST_FIRST);
+        int evicted = 0;
+        for (SessionFragments session : candidates) {
+            if (budget.isRelieved()) {
+                break;
+            }
+            session.discard();
+            evicted++;
+            if (sessionListener != null) {
+                sessionListener.onEvicted(session.totalPackets);
+            }
+        }
+        return evicted;
+    }
+
+    private static final Comparator<SessionFragments> OLDEST_FIRST =
+        (a, b) -> Long.compare(a.createdAt - b.createdAt, 0);
+
+    // 收到分片的比例 receivedCount/totalPackets 较低者在前（交叉相乘比较），相同时较早开始者在前
+    private static final Comparator<SessionFragments> LEAST_COMPLETE_FIRST = (a, b) -> {
+        int byCompletion = Long.compare((long) a.receivedCount * b.totalPackets,
+            (long) b.receivedCount * a.totalPackets);
+        return byCompletion != 0 ? byCompletion : OLDEST_FIRST.compare(a, b);
+    };
+
+    /**
+     * 会话的下一个检查时间：超时淘汰时间，或（还能发NACK时）下一次NACK时间，取较早者
+     */
+    private long nextDeadline(SessionFragments session) {
+        long evictAt = session.lastAccess + timeoutNanos;
+        if (nackListener == null || session.discarded || session.nackRounds >= maxNackRounds) {
+            return evictAt;
+        }
+        long nackAt = session.quietSince() + nackDelayNanos;
+        return nackAt - evictAt < 0 ? nackAt : evictAt;
+    }
+
+    /**
+     * 时间轮的tick，持有线程至少按此间隔调用 evictExpired
+     */
+    public long getTickNanos() {
+        return wheel.getTickNanos();
+    }
+
+    /**
+     * 当前未收齐的会话数
+     */
+    public int getSessionCount() {
+        return sessions.size();
     }
-    
+
     public void shutdown() {
-        cleanupExecutor.shutdown();
+        sessions.forEachValue(session -> {
+            wheel.cancel(session.timeout);
+            session.releaseBudget();
+        });
+        sessions.clear();
     }
-    
+
     /**
      * 会话分片集合
+     * 除末尾分片外，发送端按固定大小切片（见 FragmentSplitter），因此第i片在完整数据中的偏移为 i * stride。
+     * stride 取首个到达的非末尾分片的大小，之后每个分片直接写入同一块重组缓冲区（slab），收齐后无需再拼接；
+     * 若发现分片大小不一致，则退化为逐片保存、最后拼接。
+     * 配置了预算时，每次分配前先预留相应字节数，预留失败则不保存该分片；会话移除时归还全部预留。
      */
     private static class SessionFragments {
+        private final long sessionId;
         private final int totalPackets;
-        private final Map<Integer, byte[]> fragments = new TreeMap<>();
+        private final BitSet received;
+        private int receivedCount;
+        private int stride = -1;       // 非末尾分片的统一大小
+        private int lastSize = -1;     // 末尾分片的大小
+        private byte[] slab;           // 按 index * stride 直接写入的重组缓冲区
+        private byte[] pendingLast;    // stride 确定之前先到达的末尾分片
+        private byte[][] irregular;    // 分片大小不一致时的逐片存储
+        private final long createdAt;  // System.nanoTime()
         private long lastAccess;
-        
-        public SessionFragments(int totalPackets) {
+        private long lastNack;         // 最近一次NACK的时间，尚未发过时为创建时间
+        private int nackRounds;
+        private boolean discarded;
+        private final ReassemblyBudget budget; // 未配置预算时为null
+        private final long source;
+        private long reservedBytes;
+        private int prefixPackets;     // 从首个分片起连续收到的分片数
+        private PrefixListener prefixListener; // 不再需要通知时为null
+        private TimerWheel.Timeout<SessionFragments> timeout;
+
+        public SessionFragments(long sessionId, int totalPackets, ReassemblyBudget budget, long source) {
+            this.sessionId = sessionId;
             this.totalPackets = totalPackets;
-            this.lastAccess = System.currentTimeMillis();
+            // 单分片会话到达即完成，不占用预算
+            this.budget = totalPackets > 1 ? budget : null;
+            this.source = source;
+            this.received = new BitSet(totalPackets);
+            this.createdAt = System.nanoTime();
+            this.lastAccess = createdAt;
+            this.lastNack = createdAt;
+        }
+
+        /**
+         * 最后一次收到分片或发出NACK的时间，取较晚者
+         */
+        long quietSince() {
+            return lastNack - lastAccess > 0 ? lastNack : lastAccess;
         }
-        
-        public void addFragment(int packetIndex, byte[] data) {
-            fragments.put(packetIndex, data);
+
+        int[] missingPackets() {
+            int[] missing = new int[totalPackets - receivedCount];
+            int n = 0;
+            for (int i = received.nextClearBit(0); i < totalPackets; i = received.nextClearBit(i + 1)) {
+                missing[n++] = i;
+            }
+            return missing;
         }
-        
+
+        /**
+         * @return ReassemblyBudget.RESERVED（包括重复分片），或预算拒绝的原因（分片未保存）
+         */
+        public int addFragment(int packetIndex, ByteBuffer data) {
+            if (received.get(packetIndex)) {
+                return ReassemblyBudget.RESERVED; // 重复分片
+            }
+            int size = data.remaining();
+            boolean last = packetIndex == totalPackets - 1;
+
+            // 需要新内存的情况先预留：新的重组缓冲区，或单独保存的分片
+            int refused = ReassemblyBudget.RESERVED;
+            if (irregular != null || (last && (stride < 0 || size > stride))) {
+                refused = reserve(size);
+            } else if (!last && stride < 0) {
+                // 先到的末尾分片比本分片大时，重组缓冲区随即退化为逐片保存，本分片另需一份副本
+                boolean toIrregular = pendingLast != null && pendingLast.length > size;
+                refused = reserve(slabCapacity(size) + (toIrregular ? size : 0));
+            } else if (!last && size != stride) {
+                refused = reserve(size);
+            }
+            if (refused != ReassemblyBudget.RESERVED) {
+                return refused;
+            }
+
+            if (irregular != null) {
+                irregular[packetIndex] = copyOf(data);
+            } else if (totalPackets == 1) {
+                stride = size;
+                slab = new byte[size];
+                data.get(slab);
+            } else if (last) {
+                if (stride < 0) {
+                    pendingLast = copyOf(data);
+                } else if (size > stride) {
+                    toIrregular();
+                    irregular[packetIndex] = copyOf(data);
+                } else {
+                    data.get(slab, packetIndex * stride, size);
+                }
+            } else {
+                if (stride < 0) {
+                    allocateSlab(size);
+                }
+                if (irregular != null || size != stride) {
+                    if (irregular == null) {
+                        toIrregular();
+                    }
+                    irregular[packetIndex] = copyOf(data);
+                } else {
+                    data.get(slab, packetIndex * stride, size);
+                }
+            }
+
+            if (last) {
+                lastSize = size;
+            }
+            received.set(packetIndex);
+            receivedCount++;
+            return ReassemblyBudget.RESERVED;
+        }
+
+        private int reserve(long bytes) {
+            if (budget == null) {
+                return ReassemblyBudget.RESERVED;
+            }
+            int result = budget.tryReserve(source, bytes);
+            if (result == ReassemblyBudget.RESERVED) {
+                reservedBytes += bytes;
+            }
+            return result;
+        }
+
+        private void release(long bytes) {
+            if (budget != null && bytes > 0) {
+                budget.release(source, bytes);
+                reservedBytes -= bytes;
+            }
+        }
+
+        void releaseBudget() {
+            release(reservedBytes);
+        }
+
+        private int slabCapacity(int fragmentSize) {
+            long capacity = (long) fragmentSize * totalPackets;
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Session too large: " + totalPackets + " x " + fragmentSize);
+            }
+            return (int) capacity;
+        }
+
+        private void allocateSlab(int fragmentSize) {
+            stride = fragmentSize;
+            slab = new byte[slabCapacity(fragmentSize)];
+            if (pendingLast != null) {
+                if (pendingLast.length > stride) {
+                    toIrregular();
+                } else {
+                    System.arraycopy(pendingLast, 0, slab, (totalPackets - 1) * stride, pendingLast.length);
+                    release(pendingLast.length); // 已并入重组缓冲区
+                    pendingLast = null;
+                }
+            }
+        }
+
+        private void toIrregular() {
+            irregular = new byte[totalPackets][];
+            long copied = 0;
+            for (int i = received.nextSetBit(0); i >= 0; i = received.nextSetBit(i + 1)) {
+                if (i == totalPackets - 1 && pendingLast != null) {
+                    irregular[i] = pendingLast;
+                } else {
+                    int length = (i == totalPackets - 1) ? lastSize : stride;
+                    irregular[i] = Arrays.copyOfRange(slab, i * stride, i * stride + length);
+                    copied += length;
+                }
+            }
+            // 重组缓冲区换成已收到分片的副本，预留随之缩减
+            release(slab.length - copied);
+            pendingLast = null;
+            slab = null;
+        }
+
+        private static byte[] copyOf(ByteBuffer data) {
+            byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            return copy;
+        }
+
+        /**
+         * 连续前缀有增长时返回其只读视图，否则返回null；退化为逐片存储后不再提供前缀
+         */
+        ByteBuffer advancePrefix() {
+            if (slab == null || irregular != null) {
+                return null;
+            }
+            int next = received.nextClearBit(prefixPackets);
+            if (next == prefixPackets) {
+                return null;
+            }
+            prefixPackets = next;
+            // 未收齐时前缀不含末尾分片，长度总是 stride 的整数倍
+            return ByteBuffer.wrap(slab, 0, next * stride).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void discard() {
+            discarded = true;
+            prefixListener = null;
+            releaseBudget();
+            slab = null;
+            pendingLast = null;
+            irregular = null;
+        }
+
         public boolean isComplete() {
-            return fragments.size() == totalPackets;
+            return receivedCount == totalPackets;
         }
-        
-        public byte[] assemble() {
-            int totalSize = fragments.values().stream().mapToInt(f -> f.length).sum();
+
+        public ByteBuffer assemble() {
+            if (irregular == null) {
+                int length = stride * (totalPackets - 1) + lastSize;
+                return ByteBuffer.wrap(slab, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int totalSize = 0;
+            for (byte[] fragment : irregular) {
+                totalSize += fragment.length;
+            }
             byte[] result = new byte[totalSize];
             int offset = 0;
-            for (byte[] fragment : fragments.values()) {
+            for (byte[] fragment : irregular) {
                 System.arraycopy(fragment, 0, result, offset, fragment.length);
                 offset += fragment.length;
             }
-            return result;
+            return ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN);
         }
-        
+
         public long getLastAccess() {
             return lastAccess;
         }
-        
+
         public void updateLastAccess() {
-            this.lastAccess = System.currentTimeMillis();
+            this.lastAccess = System.nanoTime();
         }
     }
 }
@@ -10,9 +10,18 @@ import java.util.Random;
 public class FragmentSplitter {
     private static final Random RANDOM = new Random();
     private final int maxFragmentSize;
+    private final boolean checksum;
     
     public FragmentSplitter(int maxFragmentSize) {
+        this(maxFragmentSize, false);
+    }
+    
+    /**
+     * @param checksum 是否为每个分片计算CRC32C校验和（并设置 FLAG_CHECKSUM）
+     */
+    public FragmentSplitter(int maxFragmentSize, boolean checksum) {
         this.maxFragmentSize = maxFragmentSize;
+        this.checksum = checksum;
     }
     
     /**
@@ -27,11 +36,11 @@ public class FragmentSplitter {
             // 单个分片
             long sessionId = generateSessionId();
             FragmentHeader header = new FragmentHeader(sessionId, 1, 0, data.length);
-            byte[] headerBytes = header.encode();
+            byte[] headerBytes = encodeHeader(header);
             byte[] fragment = new byte[headerBytes.length + data.length];
             System.arraycopy(headerBytes, 0, fragment, 0, headerBytes.length);
             System.arraycopy(data, 0, fragment, headerBytes.length, data.length);
-            fragments.add(fragment);
+            fragments.add(sign(fragment));
         } else {
             // 多个分片
             long sessionId = generateSessionId();
@@ -41,11 +50,11 @@ public class FragmentSplitter {
             for (int i = 0; i < totalPackets; i++) {
                 int currentSize = Math.min(maxFragmentSize, data.length - offset);
                 FragmentHeader header = new FragmentHeader(sessionId, totalPackets, i, currentSize);
-                byte[] headerBytes = header.encode();
+                byte[] headerBytes = encodeHeader(header);
                 byte[] fragment = new byte[headerBytes.length + currentSize];
                 System.arraycopy(headerBytes, 0, fragment, 0, headerBytes.length);
                 System.arraycopy(data, offset, fragment, headerBytes.length, currentSize);
-                fragments.add(fragment);
+                fragments.add(sign(fragment));
                 offset += currentSize;
             }
         }
@@ -53,6 +62,24 @@ public class FragmentSplitter {
         return fragments;
     }
     
+    private byte[] encodeHeader(FragmentHeader header) {
+        if (checksum) {
+            header.setFlags(FragmentHeader.FLAG_CHECKSUM);
+        }
+        return header.encode();
+    }
+    
+    /**
+     * 校验和在载荷拷贝完成后计算，直接写入分片头的 checksum 字段（小端序）
+     */
+    private byte[] sign(byte[] fragment) {
+        if (checksum) {
+            ByteOrderUtils.wrapLittleEndian(fragment)
+                .putInt(FragmentChecksum.CHECKSUM_OFFSET, (int) FragmentChecksum.compute(fragment));
+        }
+        return fragment;
+    }
+    
     private long generateSessionId() {
         return RANDOM.nextLong() & 0xFFFFFFFFL; // uint32_t范围
     }
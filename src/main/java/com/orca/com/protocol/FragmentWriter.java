@@ -0,0 +1,164 @@
+package com.orca.com.protocol;
+
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * 分片写出器
+ * 与 FragmentSplitter 的分片方式相同，但不生成分片数组：每个分片以一次聚集写（gathering write）
+ * 发出，由复用的分片头缓冲区与原数据的切片组成，发送过程中不为分片分配内存。
+ * 非线程安全：分片头缓冲区在多次写出之间复用，多线程共享时调用方需加锁
+ */
+public class FragmentWriter {
+    private final int maxFragmentSize;
+    private final boolean checksum;
+    private final FragmentHeader header = new FragmentHeader();
+    private final ByteBuffer headerBuffer =
+        ByteBuffer.allocateDirect(FragmentHeader.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+
+    public FragmentWriter(int maxFragmentSize) {
+        this(maxFragmentSize, false);
+    }
+
+    /**
+     * @param checksum 是否为每个分片计算CRC32C校验和（并设置 FLAG_CHECKSUM）
+     */
+    public FragmentWriter(int maxFragmentSize, boolean checksum) {
+        this.maxFragmentSize = maxFragmentSize;
+        this.checksum = checksum;
+        this.gather[0] = headerBuffer;
+    }
+
+    /**
+     * 把position到limit之间的数据分片写入channel（例如已连接的DatagramChannel，每次写入即一个数据报）
+     * 不改变data的position与limit
+     * @return 分片数
+     */
+    public int write(GatheringByteChannel channel, ByteBuffer data) throws IOException {
+        return write(channel, data, generateSessionId(), null);
+    }
+
+    /**
+     * 同上，每个数据报写出前先以其字节数（含分片头）调用beforeDatagram，可用于限速
+     */
+    public int write(GatheringByteChannel channel, ByteBuffer data, IntConsumer beforeDatagram) throws IOException {
+        return write(channel, data, generateSessionId(), beforeDatagram);
+    }
+
+    /**
+     * 以指定的会话ID写出全部分片
+     */
+    public int write(GatheringByteChannel channel, ByteBuffer data, long sessionId,
+                     IntConsumer beforeDatagram) throws IOException {
+        return write(channel, data, sessionId, maxFragmentSize, beforeDatagram);
+    }
+
+    /**
+     * 以指定的会话ID与分片大小写出全部分片（分片大小可逐次调整，见 AdaptiveDatagramSizer）
+     */
+    public int write(GatheringByteChannel channel, ByteBuffer data, long sessionId, int fragmentSize,
+                     IntConsumer beforeDatagram) throws IOException {
+        int totalPackets = totalPackets(data.remaining(), fragmentSize);
+        header.setSessionId(sessionId);
+        header.setTotalPackets(totalPackets);
+        header.setFlags(checksum ? FragmentHeader.FLAG_CHECKSUM : 0);
+        gather[1] = data.duplicate();
+        try {
+            for (int i = 0; i < totalPackets; i++) {
+                writeFragment(channel, data, i, fragmentSize, beforeDatagram);
+            }
+        } finally {
+            gather[1] = null;
+        }
+        return totalPackets;
+    }
+
+    /**
+     * 按NACK重发指定序号的分片（带 FLAG_RETRANSMIT），data必须与首次写出时的内容相同，越界的序号被忽略
+     * @return 实际重发的分片数
+     */
+    public int retransmit(GatheringByteChannel channel, ByteBuffer data, long sessionId, int[] packetIndexes,
+                          IntConsumer beforeDatagram) throws IOException {
+        return retransmit(channel, data, sessionId, maxFragmentSize, packetIndexes, beforeDatagram);
+    }
+
+    /**
+     * 同上，fragmentSize必须与首次写出时相同
+     */
+    public int retransmit(GatheringByteChannel channel, ByteBuffer data, long sessionId, int fragmentSize,
+                          int[] packetIndexes, IntConsumer beforeDatagram) throws IOException {
+        int totalPackets = totalPackets(data.remaining(), fragmentSize);
+        header.setSessionId(sessionId);
+        header.setTotalPackets(totalPackets);
+        header.setFlags(FragmentHeader.FLAG_RETRANSMIT | (checksum ? FragmentHeader.FLAG_CHECKSUM : 0));
+        gather[1] = data.duplicate();
+        int sent = 0;
+        try {
+            for (int index : packetIndexes) {
+                if (index >= 0 && index < totalPackets) {
+                    writeFragment(channel, data, index, fragmentSize, beforeDatagram);
+                    sent++;
+                }
+            }
+        } finally {
+            gather[1] = null;
+        }
+        return sent;
+    }
+
+    private static int totalPackets(int length, int fragmentSize) {
+        int totalPackets = Math.max(1, (length + fragmentSize - 1) / fragmentSize);
+        if (totalPackets > 0xFFFF) {
+            throw new IllegalArgumentException("Data too large to fragment: " + length + " bytes");
+        }
+        return totalPackets;
+    }
+
+    private void writeFragment(GatheringByteChannel channel, ByteBuffer data, int index, int fragmentSize,
+                               IntConsumer beforeDatagram) throws IOException {
+        int offset = index * fragmentSize;
+        int currentSize = Math.min(fragmentSize, data.remaining() - offset);
+        header.setCurrentPacket(index);
+        header.setCurrentSize(currentSize);
+        headerBuffer.clear();
+        header.encode(headerBuffer);
+        headerBuffer.flip();
+        int start = data.position() + offset;
+        gather[1].limit(start + currentSize).position(start);
+        if (checksum) {
+            headerBuffer.putInt(FragmentChecksum.CHECKSUM_OFFSET, (int) FragmentChecksum.compute(headerBuffer, gather[1]));
+        }
+        if (beforeDatagram != null) {
+            beforeDatagram.accept(FragmentHeader.HEADER_SIZE + currentSize);
+        }
+        writeDatagram(channel);
+    }
+
+    private void writeDatagram(GatheringByteChannel channel) throws IOException {
+        try {
+            channel.write(gather);
+        } catch (PortUnreachableException e) {
+            // 已连接的UDP通道会在下一次写入时报告之前数据报引发的ICMP错误，当前分片并未发出，重发一次
+            gather[0].rewind();
+            gather[1].position(gather[1].limit() - header.getCurrentSize());
+            channel.write(gather);
+        }
+    }
+
+    public int getMaxFragmentSize() {
+        return maxFragmentSize;
+    }
+
+    /**
+     * 随机会话ID
+     */
+    public static long generateSessionId() {
+        return ThreadLocalRandom.current().nextLong() & 0xFFFFFFFFL; // uint32_t范围
+    }
+}
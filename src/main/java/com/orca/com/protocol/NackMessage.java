@@ -0,0 +1,40 @@
+package com.orca.com.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * NACK 控制报文：请求对端只重发缺失的分片
+ * 头部 sessionId 为被确认的会话，totalPackets 为该会话的分片总数，currentPacket 为0，
+ * flags 为 FLAG_NACK，currentSize 为载荷长度；载荷为若干个 uint16 小端序的缺失分片序号
+ */
+public class NackMessage {
+
+    private NackMessage() {
+    }
+
+    /**
+     * 编码NACK报文到buffer当前位置（要求小端字节序），序号过多时只写入buffer能容纳的部分
+     * @return 实际写入的序号数
+     */
+    public static int encode(ByteBuffer buffer, long sessionId, int totalPackets, int[] missing) {
+        int count = Math.min(missing.length, Math.min(0xFFFF, buffer.remaining() - FragmentHeader.HEADER_SIZE) / 2);
+        FragmentHeader header = new FragmentHeader(sessionId, totalPackets, 0, count * 2);
+        header.setFlags(FragmentHeader.FLAG_NACK);
+        header.encode(buffer);
+        for (int i = 0; i < count; i++) {
+            ByteOrderUtils.writeUint16(buffer, missing[i]);
+        }
+        return count;
+    }
+
+    /**
+     * 从NACK载荷（position到limit之间，小端序）解码缺失的分片序号
+     */
+    public static int[] decodeMissing(ByteBuffer payload) {
+        int[] missing = new int[payload.remaining() / 2];
+        for (int i = 0; i < missing.length; i++) {
+            missing[i] = ByteOrderUtils.readUint16(payload);
+        }
+        return missing;
+    }
+}
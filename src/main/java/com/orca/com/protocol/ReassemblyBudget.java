@@ -0,0 +1,127 @@
+package com.orca.com.protocol;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重组内存预算，由所有处理通道的重组器共享（线程安全）
+ * 未收齐会话持有的重组缓冲区字节数受全局上限与每个来源地址的上限约束，超出时分片被拒绝而不是继续分配；
+ * 使用量超过高水位时，各重组器在 evictExpired 中按淘汰策略驱逐自己持有的会话，直到回落到低水位。
+ * 单分片会话到达即完成，不计入预算
+ */
+public class ReassemblyBudget {
+    public static final String EVICT_OLDEST = "oldest";
+    public static final String EVICT_LEAST_COMPLETE = "least-complete";
+
+    // tryReserve 的结果
+    public static final int RESERVED = 0;
+    public static final int OVER_BUDGET = 1;
+    public static final int OVER_SOURCE_LIMIT = 2;
+
+    private static final double HIGH_WATER = 0.9;
+    private static final double LOW_WATER = 0.75;
+
+    private final long maxBytes;
+    private final long maxBytesPerSource;
+    private final long highWater;
+    private final long lowWater;
+    private final boolean evictLeastComplete;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> sourceBytes = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxBytes 全局上限，必须大于0
+     * @param maxBytesPerSource 每个来源地址的上限，不大于0时不限制
+     * @param evictionPolicy oldest（最早开始的会话）或 least-complete（收到分片比例最低的会话，相同时取最早的）
+     */
+    public ReassemblyBudget(long maxBytes, long maxBytesPerSource, String evictionPolicy) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Reassembly budget must be positive: " + maxBytes);
+        }
+        if (evictionPolicy == null || EVICT_LEAST_COMPLETE.equalsIgnoreCase(evictionPolicy)) {
+            this.evictLeastComplete = true;
+        } else if (EVICT_OLDEST.equalsIgnoreCase(evictionPolicy)) {
+            this.evictLeastComplete = false;
+        } else {
+            throw new IllegalArgumentException("Unknown reassembly eviction policy: " + evictionPolicy);
+        }
+        this.maxBytes = maxBytes;
+        this.maxBytesPerSource = maxBytesPerSource;
+        this.highWater = (long) (maxBytes * HIGH_WATER);
+        this.lowWater = (long) (maxBytes * LOW_WATER);
+    }
+
+    /**
+     * 为来源source的会话预留bytes字节
+     * @return RESERVED，或拒绝原因 OVER_BUDGET / OVER_SOURCE_LIMIT（此时没有预留任何字节）
+     */
+    public int tryReserve(long source, long bytes) {
+        long current;
+        do {
+            current = usedBytes.get();
+            if (current + bytes > maxBytes) {
+                return OVER_BUDGET;
+            }
+        } while (!usedBytes.compareAndSet(current, current + bytes));
+
+        if (maxBytesPerSource > 0) {
+            boolean[] refused = new boolean[1];
+            sourceBytes.compute(source, (key, held) -> {
+                long total = (held != null ? held : 0) + bytes;
+                if (total > maxBytesPerSource) {
+                    refused[0] = true;
+                    return held;
+                }
+                return total;
+            });
+            if (refused[0]) {
+                usedBytes.addAndGet(-bytes);
+                return OVER_SOURCE_LIMIT;
+            }
+        }
+        return RESERVED;
+    }
+
+    /**
+     * 归还 tryReserve 预留的字节
+     */
+    public void release(long source, long bytes) {
+        usedBytes.addAndGet(-bytes);
+        if (maxBytesPerSource > 0) {
+            sourceBytes.computeIfPresent(source, (key, held) -> held - bytes > 0 ? held - bytes : null);
+        }
+    }
+
+    /**
+     * 使用量超过高水位，应当驱逐会话
+     */
+    public boolean isUnderPressure() {
+        return usedBytes.get() > highWater;
+    }
+
+    /**
+     * 使用量已回落到低水位，可以停止驱逐
+     */
+    public boolean isRelieved() {
+        return usedBytes.get() <= lowWater;
+    }
+
+    public boolean isEvictLeastComplete() {
+        return evictLeastComplete;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 当前持有预算的来源地址数（只在启用每来源上限时统计）
+     */
+    public int getSourceCount() {
+        return sourceBytes.size();
+    }
+}
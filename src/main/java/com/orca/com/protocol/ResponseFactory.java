@@ -1,5 +1,7 @@
 package com.orca.com.protocol;
 
+import java.nio.ByteBuffer;
+
 /**
  * 响应工厂类
  */
@@ -25,4 +27,38 @@ public class ResponseFactory {
                 throw new IllegalArgumentException("Unknown response type: " + type);
         }
     }
+    
+    /**
+     * 根据类型解码响应（数据为position到limit之间的内容，例如重组器直接返回的缓冲区）
+     */
+    public static UdpResponse decode(ByteBuffer data) {
+        if (data.remaining() < 2) {
+            throw new IllegalArgumentException("Data too short to contain type");
+        }
+        
+        // 预读Type (Little Endian)
+        int pos = data.position();
+        int type = (data.get(pos + 1) & 0xFF) << 8 | (data.get(pos) & 0xFF);
+        
+        switch (type) {
+            case TerrainResponse.TYPE:
+                return TerrainResponse.decode(data);
+            case EvaluationConfigResponse.TYPE:
+                return EvaluationConfigResponse.decode(data);
+            default:
+                throw new IllegalArgumentException("Unknown response type: " + type);
+        }
+    }
+    
+    /**
+     * 生成requestId不同、内容相同的响应：拷贝原始报文并改写 RequestId 字段（紧随Type之后）后重新解码
+     */
+    public static UdpResponse withRequestId(UdpResponse response, long requestId) {
+        if (response.getRequestId() == requestId) {
+            return response;
+        }
+        byte[] data = response.encode();
+        ByteOrderUtils.wrapLittleEndian(data).putLong(2, requestId);
+        return decode(data);
+    }
 }
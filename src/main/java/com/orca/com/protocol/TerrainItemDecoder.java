@@ -0,0 +1,72 @@
+package com.orca.com.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 地形响应的增量解码器
+ * 对同一响应不断增长的数据前缀（下标0对应Type字段，已有内容只追加不修改）逐次调用 decode，
+ * 每次只解析上次停下之后新出现的完整响应项；末尾不完整的项留到下次。
+ * 非线程安全，每个响应一个实例
+ *
+ * 布局与逐项解析复用 TerrainResponseView
+ */
+public class TerrainItemDecoder {
+    private long count = -1;   // 头部到齐之前为-1
+    private int offset = TerrainResponseView.HEADER_SIZE; // 下一项的起始偏移
+    private int decoded;
+
+    /**
+     * @param prefix 小端序，position到limit之间为数据前缀（不移动其position）
+     * @return 新解码出的完整响应项（已拷贝地形数据），没有时返回空列表
+     */
+    public List<TerrainResponse.ResponseItem> decode(ByteBuffer prefix) {
+        ByteBuffer buffer = ByteOrderUtils.sliceLittleEndian(prefix);
+        int limit = buffer.limit();
+        if (count < 0) {
+            if (limit < TerrainResponseView.HEADER_SIZE) {
+                return Collections.emptyList();
+            }
+            count = TerrainResponseView.readCount(buffer);
+        }
+
+        List<TerrainResponse.ResponseItem> items = null;
+        while (decoded < count && offset + TerrainResponseView.ITEM_HEADER_SIZE <= limit) {
+            int terrainLength = TerrainResponseView.readTerrainDataLength(buffer, offset);
+            int end = offset + TerrainResponseView.ITEM_HEADER_SIZE + terrainLength;
+            if (end > limit) {
+                break;
+            }
+            if (items == null) {
+                items = new ArrayList<>();
+            }
+            items.add(TerrainResponseView.readItem(buffer, offset));
+            decoded++;
+            offset = end;
+        }
+        return items != null ? items : Collections.emptyList();
+    }
+
+    /**
+     * 报文声明的项数，头部到齐之前返回-1
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 已解码的项数
+     */
+    public int getDecodedCount() {
+        return decoded;
+    }
+
+    /**
+     * 声明的项是否已全部解码
+     */
+    public boolean isFinished() {
+        return count >= 0 && decoded >= count;
+    }
+}
@@ -12,6 +12,7 @@ public class TerrainResponse extends UdpResponse {
     
     private long count;          // uint32_t (4字节)
     private List<ResponseItem> items = new ArrayList<>();
+    private TerrainResponseView view; // 解码得到的响应由视图承载，items 按需物化
     
     /**
      * 响应项结构
@@ -125,26 +126,21 @@ public class TerrainResponse extends UdpResponse {
      * 从字节数组解码
      */
     public static TerrainResponse decode(byte[] data) {
-        if (data.length < 14) { // 2(Type) + 8(RequestId) + 4(Count)
-            throw new IllegalArgumentException("TerrainResponse data too short: " + data.length);
-        }
-        ByteBuffer buffer = ByteOrderUtils.wrapLittleEndian(data);
-        
-        // 读取Type
-        int type = ByteOrderUtils.readUint16(buffer);
-        if (type != TYPE) {
-             throw new IllegalArgumentException("Invalid type for TerrainResponse: " + type);
-        }
+        return decode(ByteOrderUtils.wrapLittleEndian(data));
+    }
+    
+    /**
+     * 从ByteBuffer解码（数据为position到limit之间的内容，不移动原缓冲区的position）
+     */
+    public static TerrainResponse decode(ByteBuffer data) {
+        // 只校验结构并建立偏移表，响应项在首次调用 getItems() 时才物化
+        TerrainResponseView view = TerrainResponseView.wrap(data);
         
         TerrainResponse response = new TerrainResponse();
-        response.setRequestId(ByteOrderUtils.readUint64(buffer));
-        response.count = ByteOrderUtils.readUint32(buffer);
-        
-        for (int i = 0; i < response.count && buffer.hasRemaining(); i++) {
-            ResponseItem item = ResponseItem.decode(buffer);
-            response.items.add(item);
-        }
-        
+        response.setRequestId(view.getRequestId());
+        response.count = view.getCount();
+        response.view = view;
+        response.items = null;
         return response;
     }
     
@@ -153,6 +149,10 @@ public class TerrainResponse extends UdpResponse {
      */
     @Override
     public byte[] encode() {
+        if (items == null) {
+            // 未物化的解码结果：原样返回报文字节
+            return view.toByteArray();
+        }
         int totalSize = 2 + 8 + 4; // Type + requestId + count
         for (ResponseItem item : items) {
             totalSize += item.getSize();
@@ -178,10 +178,21 @@ public class TerrainResponse extends UdpResponse {
     }
     
     public List<ResponseItem> getItems() {
+        if (items == null) {
+            items = view.toItems();
+        }
         return items;
     }
     
     public void setItems(List<ResponseItem> items) {
         this.items = items;
     }
+    
+    /**
+     * 承载解码结果的只读视图，可按下标直接读取响应项而不创建对象。
+     * 以下情况返回null：响应不是解码得到的，或 items 已被物化（之后可能被修改，应以 items 为准）
+     */
+    public TerrainResponseView getView() {
+        return items == null ? view : null;
+    }
 }
@@ -0,0 +1,208 @@
+package com.orca.com.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 地形分析响应的只读视图（flyweight）
+ * 直接在重组后的缓冲区上按下标读取各响应项字段，不为每项创建对象、不拷贝地形数据。
+ * 构造时只扫描一遍数据，记录每一项的起始偏移。
+ *
+ * 响应项布局: [A_Long(8)][B_Long(8)][Type(4)][Density(4)][Field6(2)][DataLength(2)][TerrainData(N)]
+ */
+public class TerrainResponseView {
+    public static final int HEADER_SIZE = 14;      // Type(2) + RequestId(8) + Count(4)
+    public static final int ITEM_HEADER_SIZE = 28; // 不含变长地形数据
+
+    // 头部与响应项内各字段的偏移，逐项读取经 readItem 等与 TerrainItemDecoder 共用
+    private static final int COUNT_OFFSET = 10;
+    private static final int A_LONGITUDE_OFFSET = 0;
+    private static final int B_LONGITUDE_OFFSET = 8;
+    private static final int TYPE_OFFSET = 16;
+    private static final int DENSITY_OFFSET = 20;
+    private static final int FIELD6_OFFSET = 24;
+    private static final int DATA_LENGTH_OFFSET = 26;
+
+    private final ByteBuffer buffer; // 小端序，下标0对应Type字段
+    private final long requestId;
+    private final long count;
+    private final int[] itemOffsets;
+    private final int size;
+
+    private TerrainResponseView(ByteBuffer buffer, long requestId, long count, int[] itemOffsets, int size) {
+        this.buffer = buffer;
+        this.requestId = requestId;
+        this.count = count;
+        this.itemOffsets = itemOffsets;
+        this.size = size;
+    }
+
+    /**
+     * 在position到limit之间的数据上建立视图（不移动原缓冲区的position），视图存活期间数据不得被修改
+     */
+    public static TerrainResponseView wrap(ByteBuffer data) {
+        if (data.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("TerrainResponse data too short: " + data.remaining());
+        }
+        ByteBuffer buffer = ByteOrderUtils.sliceLittleEndian(data);
+
+        long count = readCount(buffer);
+        long requestId = buffer.getLong(2);
+
+        // count 来自报文，按剩余字节能容纳的最大项数限制偏移表大小
+        int limit = buffer.limit();
+        int[] offsets = new int[(int) Math.min(count, (limit - HEADER_SIZE) / ITEM_HEADER_SIZE)];
+        int offset = HEADER_SIZE;
+        int size = 0;
+        while (size < count && offset < limit) {
+            if (offset + ITEM_HEADER_SIZE > limit) {
+                throw new IllegalArgumentException("TerrainResponse item " + size + " truncated at offset " + offset);
+            }
+            int terrainLength = readTerrainDataLength(buffer, offset);
+            if (offset + ITEM_HEADER_SIZE + terrainLength > limit) {
+                throw new IllegalArgumentException("TerrainResponse item " + size + " terrain data truncated");
+            }
+            offsets[size++] = offset;
+            offset += ITEM_HEADER_SIZE + terrainLength;
+        }
+        return new TerrainResponseView(buffer, requestId, count, offsets, size);
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * 报文声明的项数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 实际可读取的项数
+     */
+    public int size() {
+        return size;
+    }
+
+    public double getALongitude(int index) {
+        return buffer.getDouble(offsetOf(index) + A_LONGITUDE_OFFSET);
+    }
+
+    public double getBLongitude(int index) {
+        return buffer.getDouble(offsetOf(index) + B_LONGITUDE_OFFSET);
+    }
+
+    public long getType(int index) {
+        return Integer.toUnsignedLong(buffer.getInt(offsetOf(index) + TYPE_OFFSET));
+    }
+
+    public float getDensity(int index) {
+        return buffer.getFloat(offsetOf(index) + DENSITY_OFFSET);
+    }
+
+    public int getField6(int index) {
+        return Short.toUnsignedInt(buffer.getShort(offsetOf(index) + FIELD6_OFFSET));
+    }
+
+    public int getTerrainDataLength(int index) {
+        return readTerrainDataLength(buffer, offsetOf(index));
+    }
+
+    /**
+     * 地形数据的只读切片（共享底层缓冲区）
+     */
+    public ByteBuffer getTerrainData(int index) {
+        int offset = offsetOf(index);
+        int length = readTerrainDataLength(buffer, offset);
+        return buffer.slice(offset + ITEM_HEADER_SIZE, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * 地形数据在 getBuffer() 中的起始下标，配合 getTerrainDataLength 可直接访问底层数组
+     */
+    public int getTerrainDataOffset(int index) {
+        return offsetOf(index) + ITEM_HEADER_SIZE;
+    }
+
+    /**
+     * 整个响应所在缓冲区的副本视图（小端序，下标0对应Type字段），与视图共享数据，调用方不得修改内容。
+     * 堆缓冲区可通过 array()/arrayOffset() 直接访问，便于序列化时免拷贝
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate().order(buffer.order());
+    }
+
+    /**
+     * 物化单个响应项（会拷贝地形数据）
+     */
+    public TerrainResponse.ResponseItem getItem(int index) {
+        return readItem(buffer, offsetOf(index));
+    }
+
+    /**
+     * 物化全部响应项
+     */
+    public List<TerrainResponse.ResponseItem> toItems() {
+        List<TerrainResponse.ResponseItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(getItem(i));
+        }
+        return items;
+    }
+
+    /**
+     * 原始报文字节（拷贝）
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.limit()];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    /**
+     * 校验Type字段并读取声明的项数，buffer 至少包含 HEADER_SIZE 字节
+     */
+    static long readCount(ByteBuffer buffer) {
+        int type = Short.toUnsignedInt(buffer.getShort(0));
+        if (type != TerrainResponse.TYPE) {
+            throw new IllegalArgumentException("Invalid type for TerrainResponse: " + type);
+        }
+        return Integer.toUnsignedLong(buffer.getInt(COUNT_OFFSET));
+    }
+
+    /**
+     * 起始于 offset 的响应项的地形数据长度，buffer 至少包含该项的 ITEM_HEADER_SIZE 字节
+     */
+    static int readTerrainDataLength(ByteBuffer buffer, int offset) {
+        return Short.toUnsignedInt(buffer.getShort(offset + DATA_LENGTH_OFFSET));
+    }
+
+    /**
+     * 物化起始于 offset 的完整响应项（会拷贝地形数据）
+     */
+    static TerrainResponse.ResponseItem readItem(ByteBuffer buffer, int offset) {
+        TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+        item.setALongitude(buffer.getDouble(offset + A_LONGITUDE_OFFSET));
+        item.setBLongitude(buffer.getDouble(offset + B_LONGITUDE_OFFSET));
+        item.setType(Integer.toUnsignedLong(buffer.getInt(offset + TYPE_OFFSET)));
+        item.setDensity(buffer.getFloat(offset + DENSITY_OFFSET));
+        item.setField6(Short.toUnsignedInt(buffer.getShort(offset + FIELD6_OFFSET)));
+        int length = readTerrainDataLength(buffer, offset);
+        if (length > 0) {
+            byte[] terrainData = new byte[length];
+            buffer.get(offset + ITEM_HEADER_SIZE, terrainData);
+            item.setTerrainData(terrainData);
+        }
+        return item;
+    }
+
+    private int offsetOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Item index " + index + " out of range [0, " + size + ")");
+        }
+        return itemOffsets[index];
+    }
+}
@@ -0,0 +1,148 @@
+package com.orca.com.protocol;
+
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 按 tick 把截止时间散列到固定数量的槽中，每个槽是一条双向链表：插入与取消都是O(1)，
+ * 推进时只遍历到期的槽。截止时间超过一圈的节点留在槽中等待后续轮次。
+ * 非线程安全：由持有线程推进，多线程共享时调用方需自行加锁
+ */
+public class TimerWheel<T> {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    public TimerWheel(long tickNanos, int wheelSize, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tickNanos must be positive: " + tickNanos);
+        }
+        int slots = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        @SuppressWarnings("unchecked")
+        Timeout<T>[] buckets = (Timeout<T>[]) new Timeout<?>[slots];
+        this.buckets = buckets;
+        this.mask = slots - 1;
+    }
+
+    /**
+     * 登记截止时间（System.nanoTime() 时间基准），到期时间向上取整到tick，不会提前触发
+     */
+    public Timeout<T> schedule(T payload, long deadlineNanos) {
+        long elapsed = deadlineNanos - startNanos;
+        long deadlineTick = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        Timeout<T> timeout = new Timeout<>(payload, Math.max(deadlineTick, currentTick));
+        link(timeout);
+        return timeout;
+    }
+
+    /**
+     * 取消截止时间
+     * @return 已到期或已取消时返回false
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * 推进到now，把所有到期节点移出时间轮并交给onExpire（回调中可以再次schedule）
+     * @return 到期的节点数
+     */
+    public int advance(long nowNanos, Consumer<T> onExpire) {
+        long nowTick = (nowNanos - startNanos) / tickNanos;
+        if (nowTick < currentTick) {
+            return 0;
+        }
+        // 落后超过一圈时每个槽只需遍历一次
+        long lastTick = Math.min(nowTick, currentTick + mask);
+        int expired = 0;
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            Timeout<T> timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= nowTick) {
+                    unlink(timeout);
+                    expired++;
+                    onExpire.accept(timeout.payload);
+                }
+                timeout = next;
+            }
+        }
+        currentTick = nowTick + 1;
+        return expired;
+    }
+
+    /**
+     * 下一个tick开始的时间，持有线程可据此决定休眠时长
+     */
+    public long nextTickNanos() {
+        return startNanos + currentTick * tickNanos;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout) {
+        int index = (int) (timeout.deadlineTick & mask);
+        Timeout<T> head = buckets[index];
+        timeout.bucket = index;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[index] = timeout;
+        size++;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    /**
+     * 时间轮中的一个截止时间
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int bucket = -1; // 不在时间轮中时为-1
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public boolean isPending() {
+            return bucket >= 0;
+        }
+    }
+}
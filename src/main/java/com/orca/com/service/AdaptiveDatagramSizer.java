@@ -0,0 +1,110 @@
+package com.orca.com.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应数据报大小（每个目的地址一个实例）
+ * 以实际请求的投递结果作为探测：当前大小连续投递成功若干次后，让一个请求试用更大的数据报，
+ * 在“已确认可用”与“已知会丢”之间二分逼近路径能承载的最大值；同一大小连续丢失则回退。
+ * 已知会丢的上限一段时间后失效，以便路径变化（例如换到巨帧链路）后重新向上探测。
+ * JDK 17 无法为UDP设置DF位，分片过大时在IP层被分片或丢弃，只能从投递结果间接判断。
+ * 线程安全：每个请求调用一次，直接加锁
+ */
+public class AdaptiveDatagramSizer {
+    static final int CONFIRMATIONS_BEFORE_PROBE = 16;
+    static final int LOSSES_BEFORE_BACKOFF = 3;
+    private static final long CEILING_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final int minSize;
+    private final int maxSize;
+    private int goodSize;           // 已确认可用的大小
+    private int ceiling;            // 已知会丢失的最小大小，没有时为 maxSize + 1
+    private long ceilingSetAt;
+    private int probeSize;          // 正在试用的大小，没有时为0
+    private int confirmations;
+    private int losses;
+
+    public AdaptiveDatagramSizer(int initialSize, int minSize, int maxSize) {
+        if (minSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid datagram size bounds: " + minSize + ".." + maxSize);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.goodSize = Math.max(minSize, Math.min(maxSize, initialSize));
+        this.ceiling = maxSize + 1;
+    }
+
+    /**
+     * 下一个请求使用的数据报大小（含分片头）；同一时间只有一个请求在试用更大的大小
+     * @param unfragmentedSize 请求不分片时的数据报大小（报文长度 + 分片头），只有超过当前大小的请求才能用于探测
+     */
+    public synchronized int nextDatagramSize(int unfragmentedSize) {
+        if (probeSize == 0 && confirmations >= CONFIRMATIONS_BEFORE_PROBE && unfragmentedSize > goodSize) {
+            if (ceiling <= maxSize && System.nanoTime() - ceilingSetAt >= CEILING_TTL_NANOS) {
+                ceiling = maxSize + 1;
+            }
+            int candidate = Math.min(unfragmentedSize, goodSize + (ceiling - goodSize) / 2);
+            if (candidate > goodSize) {
+                probeSize = candidate;
+                return probeSize;
+            }
+        }
+        return goodSize;
+    }
+
+    /**
+     * 以datagramSize发出的请求收到了响应
+     * @param datagramSize 该请求实际发出的最大数据报大小，即 min(使用的大小, 不分片时的大小)
+     */
+    public synchronized void onDelivered(int datagramSize) {
+        if (probeSize > 0 && datagramSize >= probeSize) {
+            goodSize = probeSize;
+            probeSize = 0;
+            confirmations = 0;
+        } else if (datagramSize >= goodSize) {
+            confirmations++;
+        }
+        losses = 0;
+    }
+
+    /**
+     * 以datagramSize发出的请求超时未收到响应
+     */
+    public synchronized void onLost(int datagramSize) {
+        if (probeSize > 0 && datagramSize >= probeSize) {
+            markCeiling(probeSize);
+            probeSize = 0;
+            confirmations = 0;
+        } else if (datagramSize >= goodSize && goodSize > minSize && ++losses >= LOSSES_BEFORE_BACKOFF) {
+            markCeiling(goodSize);
+            goodSize = Math.max(minSize, goodSize * 3 / 4);
+            losses = 0;
+            confirmations = 0;
+        }
+    }
+
+    /**
+     * 以datagramSize发出的请求因其他原因失败（发送失败、被取代等），不能说明路径情况
+     */
+    public synchronized void onFailed(int datagramSize) {
+        if (probeSize > 0 && datagramSize >= probeSize) {
+            probeSize = 0;
+        }
+    }
+
+    private void markCeiling(int size) {
+        ceiling = size;
+        ceilingSetAt = System.nanoTime();
+    }
+
+    /**
+     * 当前已确认可用的数据报大小
+     */
+    public synchronized int getDatagramSize() {
+        return goodSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
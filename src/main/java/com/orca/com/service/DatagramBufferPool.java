@@ -0,0 +1,97 @@
+package com.orca.com.service;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 数据报接收缓冲池
+ * 复用定长的直接内存ByteBuffer（小端序），避免接收路径上每个数据报都分配新数组。
+ * 缓冲区在池空时按需分配，归还后留在池中；capacity应不小于同时在外的缓冲区上限
+ * （见 FragmentDispatcher.maxHeldBuffers），这样只在预热阶段分配，之后不再产生直接内存的分配与回收。
+ * 归还时超出容量的部分直接丢弃交给GC。
+ * 每个缓冲区在 bufferSize 之后另有8字节尾部，记录数据报来源地址的键（见 setSource），
+ * 随缓冲区一起投递到处理通道，接收路径上不为来源地址额外分配对象
+ */
+public class DatagramBufferPool {
+    private static final int SOURCE_BYTES = Long.BYTES;
+
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    private final int bufferSize;
+
+    public DatagramBufferPool(int capacity, int bufferSize) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        this.freeBuffers = new ArrayBlockingQueue<>(capacity);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * 取出一个已清空的缓冲区，limit为bufferSize（不含尾部）
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize + SOURCE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear().limit(bufferSize);
+        return buffer;
+    }
+
+    /**
+     * 在缓冲区尾部记录来源地址的键，不影响position与limit
+     */
+    public static void setSource(ByteBuffer buffer, long sourceKey) {
+        // 绝对下标的读写以limit为界，临时放开到capacity
+        int limit = buffer.limit();
+        buffer.limit(buffer.capacity()).putLong(buffer.capacity() - SOURCE_BYTES, sourceKey);
+        buffer.limit(limit);
+    }
+
+    /**
+     * 读取 setSource 记录的来源地址键，只对本池分配的缓冲区有意义
+     */
+    public static long getSource(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        long sourceKey = buffer.limit(buffer.capacity()).getLong(buffer.capacity() - SOURCE_BYTES);
+        buffer.limit(limit);
+        return sourceKey;
+    }
+
+    /**
+     * 来源地址的键：只取IP地址（同一主机的不同端口视为同一来源），IPv4为地址本身，IPv6为地址的散列
+     */
+    public static long sourceKey(SocketAddress address) {
+        if (!(address instanceof InetSocketAddress) || ((InetSocketAddress) address).getAddress() == null) {
+            return 0;
+        }
+        InetAddress inetAddress = ((InetSocketAddress) address).getAddress();
+        long key = Integer.toUnsignedLong(inetAddress.hashCode());
+        return inetAddress instanceof Inet6Address ? key | (1L << 32) : key;
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不得再访问该缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize + SOURCE_BYTES) {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 当前池中空闲的缓冲区数量
+     */
+    public int available() {
+        return freeBuffers.size();
+    }
+}
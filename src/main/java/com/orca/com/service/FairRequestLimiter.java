@@ -0,0 +1,164 @@
+package com.orca.com.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 全局在途请求上限与按客户端公平排队
+ * 在途数未满时请求直接发出；满了之后按客户端（例如WebSocket会话）分别排队，
+ * 每完成一个请求就从下一个有排队请求的客户端取一个发出（轮转），
+ * 一个客户端堆积再多请求也只占用与其他客户端相同的发送机会。
+ * 排队中的请求被取消时直接出队；排队超过 maxQueueMs 仍未轮到的请求以 TimeoutException 结束，不再发出。
+ * 线程安全：每个请求进出各加一次锁
+ */
+public class FairRequestLimiter {
+    private final int maxInFlight;
+    private final long maxQueueNanos;
+    private final Map<Object, ArrayDeque<Task<?>>> queues = new HashMap<>(); // 只含有排队请求的客户端
+    private final ArrayDeque<Object> turns = new ArrayDeque<>();              // 轮转顺序，与queues的键一致
+    private int inFlight;
+    private int queued;
+
+    /**
+     * @param maxInFlight 全局在途请求上限，不大于0时不限制
+     * @param maxQueueMs 请求最多排队多久
+     */
+    public FairRequestLimiter(int maxInFlight, long maxQueueMs) {
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : Integer.MAX_VALUE;
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMs);
+    }
+
+    /**
+     * 提交请求；取得许可时才调用request发出，其返回的future完成后归还许可
+     * @param client 公平调度的单位，按equals区分
+     * @return 请求结果；排队中被取消时request不会被调用
+     */
+    public <T> CompletableFuture<T> submit(Object client, Supplier<CompletableFuture<T>> request) {
+        Task<T> task = new Task<>(client, request);
+        synchronized (this) {
+            if (inFlight < maxInFlight && turns.isEmpty()) {
+                inFlight++;
+            } else {
+                ArrayDeque<Task<?>> queue = queues.get(client);
+                if (queue == null) {
+                    queue = new ArrayDeque<>();
+                    queues.put(client, queue);
+                    turns.addLast(client);
+                }
+                queue.addLast(task);
+                queued++;
+                task.result.whenComplete((v, e) -> {
+                    if (task.result.isCancelled()) {
+                        dequeue(task);
+                    }
+                });
+                return task.result;
+            }
+        }
+        if (!task.start(this)) {
+            release();
+        }
+        return task.result;
+    }
+
+    /**
+     * 归还一个许可：直接转交给轮到的下一个排队请求，没有排队时在途数减一
+     * 同步完成的请求（例如缓存命中）在循环中继续转交，不递归
+     */
+    private void release() {
+        Task<?> next;
+        while ((next = handOff()) != null) {
+            if (System.nanoTime() - next.queuedAt > maxQueueNanos) {
+                next.result.completeExceptionally(new TimeoutException("Request queued too long"));
+            } else if (next.start(this)) {
+                return;
+            }
+        }
+    }
+
+    private synchronized Task<?> handOff() {
+        while (!turns.isEmpty()) {
+            Object client = turns.pollFirst();
+            ArrayDeque<Task<?>> queue = queues.get(client);
+            Task<?> task = queue.pollFirst();
+            if (queue.isEmpty()) {
+                queues.remove(client);
+            } else {
+                turns.addLast(client);
+            }
+            queued--;
+            if (!task.result.isDone()) {
+                return task;
+            }
+        }
+        inFlight--;
+        return null;
+    }
+
+    private synchronized void dequeue(Task<?> task) {
+        ArrayDeque<Task<?>> queue = queues.get(task.client);
+        if (queue != null && queue.remove(task)) {
+            queued--;
+            if (queue.isEmpty()) {
+                queues.remove(task.client);
+                turns.remove(task.client);
+            }
+        }
+    }
+
+    /**
+     * 当前占用许可（已发出未完成）的请求数
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * 当前排队等待许可的请求数
+     */
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    private static final class Task<T> {
+        private final Object client;
+        private final Supplier<CompletableFuture<T>> request;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long queuedAt = System.nanoTime();
+
+        Task(Object client, Supplier<CompletableFuture<T>> request) {
+            this.client = client;
+            this.request = request;
+        }
+
+        /**
+         * 发出请求
+         * @return 请求仍在进行、完成时会自行归还许可时返回true；已同步结束（许可需由调用方继续转交）时返回false
+         */
+        boolean start(FairRequestLimiter limiter) {
+            CompletableFuture<T> upstream;
+            try {
+                upstream = request.get();
+            } catch (RuntimeException e) {
+                upstream = CompletableFuture.failedFuture(e);
+            }
+            boolean done = upstream.isDone();
+            upstream.whenComplete((v, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(v);
+                }
+                if (!done) {
+                    limiter.release();
+                }
+            });
+            return !done;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.FragmentReassembler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 分片分发器：按会话ID哈希把数据报分配到固定的处理通道（lane）
+ * 每个通道只有一个消费线程并独占一个 FragmentReassembler，
+ * 同一会话的全部分片总在同一个线程上重组，重组过程无需加锁
+ */
+public class FragmentDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(FragmentDispatcher.class);
+
+    private final Lane[] lanes;
+    private final DatagramBufferPool bufferPool;
+    private final BiConsumer<ByteBuffer, FragmentReassembler> handler;
+    private final long evictIntervalNanos;
+    private volatile boolean running = false;
+
+    /**
+     * @param handler 在通道线程上处理一个数据报（position指向分片头），返回后缓冲区会被归还到池中
+     */
+    public FragmentDispatcher(int laneCount, int queueCapacity, long reassemblyTimeoutMs,
+                              DatagramBufferPool bufferPool,
+                              BiConsumer<ByteBuffer, FragmentReassembler> handler) {
+        this(laneCount, queueCapacity, () -> new FragmentReassembler(reassemblyTimeoutMs), bufferPool, handler);
+    }
+
+    /**
+     * @param reassemblerFactory 为每个通道创建独占的重组器
+     */
+    public FragmentDispatcher(int laneCount, int queueCapacity, Supplier<FragmentReassembler> reassemblerFactory,
+                              DatagramBufferPool bufferPool,
+                              BiConsumer<ByteBuffer, FragmentReassembler> handler) {
+        this.bufferPool = bufferPool;
+        this.handler = handler;
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, queueCapacity, reassemblerFactory.get());
+        }
+        // 按重组器时间轮的tick推进超时检查
+        this.evictIntervalNanos = lanes[0].reassembler.getTickNanos();
+    }
+
+    /**
+     * 全部通道最多同时持有的缓冲区数：各通道队列的实际容量，加上各自正在处理的一个
+     */
+    public static int maxHeldBuffers(int laneCount, int queueCapacity) {
+        return Math.max(1, laneCount) * (MpscRing.roundedCapacity(queueCapacity) + 1);
+    }
+
+    public void start() {
+        running = true;
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+        }
+    }
+
+    /**
+     * 把数据报投递到会话所属的通道，投递成功后缓冲区的所有权转移给通道
+     * @return 通道队列已满时返回false，此时缓冲区仍归调用方所有
+     */
+    public boolean dispatch(long sessionId, ByteBuffer packet) {
+        Lane lane = lanes[laneIndex(sessionId, lanes.length)];
+        if (!lane.queue.offer(packet)) {
+            return false;
+        }
+        if (lane.waiting) {
+            LockSupport.unpark(lane.thread);
+        }
+        return true;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * 会话ID到通道的映射，先做乘法散列避免连续ID集中在相邻通道
+     */
+    static int laneIndex(long sessionId, int laneCount) {
+        return (int) (((sessionId * 0x9E3779B97F4A7C15L) >>> 32) % laneCount);
+    }
+
+    private void runLane(Lane lane) {
+        long nextEviction = System.nanoTime() + evictIntervalNanos;
+        while (running) {
+            ByteBuffer packet = lane.queue.poll();
+            if (packet != null) {
+                try {
+                    handler.accept(packet, lane.reassembler);
+                } catch (Exception e) {
+                    logger.error("Error processing packet on lane {}", lane.index, e);
+                } finally {
+                    bufferPool.release(packet);
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now - nextEviction >= 0) {
+                lane.reassembler.evictExpired();
+                nextEviction = now + evictIntervalNanos;
+            }
+
+            if (packet == null) {
+                // 先声明等待再复查队列，与dispatch中的入队+检查配对，避免丢失唤醒
+                lane.waiting = true;
+                if (lane.queue.isEmpty()) {
+                    LockSupport.parkNanos(this, nextEviction - now);
+                }
+                lane.waiting = false;
+            }
+        }
+        lane.reassembler.shutdown();
+    }
+
+    /**
+     * 处理通道：单消费者队列 + 独占的重组器
+     */
+    private class Lane {
+        private final int index;
+        private final MpscRing<ByteBuffer> queue;
+        private final FragmentReassembler reassembler;
+        private final Thread thread;
+        private volatile boolean waiting = false;
+
+        Lane(int index, int queueCapacity, FragmentReassembler reassembler) {
+            this.index = index;
+            this.queue = new MpscRing<>(queueCapacity);
+            this.reassembler = reassembler;
+            this.thread = new Thread(() -> runLane(this), "UdpService-Lane-" + index);
+            this.thread.setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.orca.com.service;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求策略
+ * 对冲延迟取最近成功响应延迟的指定百分位（限制在上下限之间，样本不足时取上限）；
+ * 对冲次数受预算约束：每个请求积累 budgetPercent/100 次对冲的额度，额度有上限，
+ * 上游整体变慢时对冲不会让请求量成倍增加
+ */
+public class HedgePolicy {
+    private static final int WINDOW = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final int MIN_SAMPLES = 32;
+    private static final long CREDIT_PER_HEDGE = 100;
+    private static final long MAX_CREDIT = 10 * CREDIT_PER_HEDGE;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final int budgetPercent;
+    private final long[] samples = new long[WINDOW]; // 环形窗口，由自身加锁保护
+    private long sampleCount;
+    private volatile long delayNanos;
+    private final AtomicLong credit = new AtomicLong(CREDIT_PER_HEDGE);
+
+    /**
+     * @param percentile 0-100
+     * @param budgetPercent 对冲请求数最多占请求数的百分比
+     */
+    public HedgePolicy(double percentile, long minDelayMs, long maxDelayMs, int budgetPercent) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid hedge percentile: " + percentile);
+        }
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.maxDelayNanos = Math.max(minDelayNanos, TimeUnit.MILLISECONDS.toNanos(maxDelayMs));
+        this.budgetPercent = budgetPercent;
+        this.delayNanos = maxDelayNanos;
+    }
+
+    /**
+     * 记录一次成功交换的延迟
+     */
+    public void recordLatency(long latencyNanos) {
+        long[] snapshot = null;
+        int size = 0;
+        synchronized (samples) {
+            samples[(int) (sampleCount % WINDOW)] = latencyNanos;
+            sampleCount++;
+            if (sampleCount >= MIN_SAMPLES && sampleCount % RECOMPUTE_EVERY == 0) {
+                size = (int) Math.min(sampleCount, WINDOW);
+                snapshot = Arrays.copyOf(samples, size);
+            }
+        }
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            long value = snapshot[Math.min(size - 1, (int) Math.ceil(percentile / 100 * size) - 1)];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+        }
+    }
+
+    /**
+     * 发出首个请求后等待多久再发对冲请求
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * 每发出一个（非对冲）请求调用一次，积累对冲额度
+     */
+    public void onRequest() {
+        if (credit.get() < MAX_CREDIT) {
+            credit.addAndGet(budgetPercent);
+        }
+    }
+
+    /**
+     * 取得一次对冲的额度
+     * @return 额度不足时返回false，不发对冲请求
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long current = credit.get();
+            if (current < CREDIT_PER_HEDGE) {
+                return false;
+            }
+            if (credit.compareAndSet(current, current - CREDIT_PER_HEDGE)) {
+                return true;
+            }
+        }
+    }
+}
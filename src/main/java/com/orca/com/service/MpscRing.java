@@ -0,0 +1,87 @@
+package com.orca.com.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界多生产者单消费者环形队列
+ * 生产者通过CAS抢占槽位，每个槽位带序号标记可读/可写状态；消费者只有一个，无需CAS。
+ * 满时offer直接返回false，不阻塞生产者（UDP接收线程）。
+ */
+public class MpscRing<E> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // 仅消费者线程访问
+
+    public MpscRing(int capacity) {
+        int size = roundedCapacity(capacity);
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 实际容量：capacity向上取整到2的幂（至少为2）
+     */
+    public static int roundedCapacity(int capacity) {
+        return Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    }
+
+    /**
+     * 入队（可由多个线程并发调用）
+     * @return 队列已满时返回false
+     */
+    public boolean offer(E element) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements[index] = element;
+                    // volatile写：与消费者的等待标记构成Dekker式配对，保证唤醒不丢失
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 出队（只能由唯一的消费者线程调用）
+     * @return 队列为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, head + elements.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * 队列是否为空（只能由消费者线程调用）
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
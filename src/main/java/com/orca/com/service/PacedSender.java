@@ -0,0 +1,221 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.FragmentWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * 限速批量发送器
+ * 调用方只把编码好的请求放入发送队列（不阻塞，满时直接拒绝），由独立的发送线程写出：
+ * 每次唤醒连续写出队列中的全部请求，配置了速率时按令牌桶对每个数据报限速，
+ * 超过突发上限的流量被均匀摊开，而不是一次性冲击上游的接收缓冲区。
+ * 启用重发缓冲区时，最近发出的请求按会话保留，对端发来NACK后只重发缺失的分片。
+ * FragmentWriter 与 RetransmitBuffer 只在发送线程上使用，无需加锁
+ */
+public class PacedSender {
+    private static final Logger logger = LoggerFactory.getLogger(PacedSender.class);
+
+    private final GatheringByteChannel channel;
+    private final FragmentWriter writer;
+    private final IntConsumer beforeDatagram; // 限速与统计，可为null
+    private final RetransmitBuffer retransmitBuffer; // 未启用重发时为null
+    private final MpscRing<Outbound> queue;
+    private final Thread thread;
+    private PacketTracer tracer; // 可选，按requestId跟踪发送
+    private volatile boolean waiting = false;
+    private volatile boolean running = false;
+
+    /**
+     * @param bytesPerSecond 发送速率上限（含分片头），不大于0时不限速
+     * @param burstBytes 令牌桶容量，即空闲后允许连续发出的字节数
+     */
+    public PacedSender(GatheringByteChannel channel, int maxFragmentSize, int queueCapacity,
+                       long bytesPerSecond, long burstBytes) {
+        this(channel, new FragmentWriter(maxFragmentSize), queueCapacity, pacer(bytesPerSecond, burstBytes), 0);
+    }
+
+    /**
+     * @param writer 只由发送线程使用
+     * @param beforeDatagram 每个数据报写出前以其字节数调用（在发送线程上，可阻塞以限速），可为null
+     * @param retransmitSessions 为NACK保留的最近会话数，不大于0时不保留
+     */
+    public PacedSender(GatheringByteChannel channel, FragmentWriter writer, int queueCapacity,
+                       IntConsumer beforeDatagram, int retransmitSessions) {
+        this.channel = channel;
+        this.writer = writer;
+        this.beforeDatagram = beforeDatagram;
+        this.retransmitBuffer = retransmitSessions > 0 ? new RetransmitBuffer(retransmitSessions) : null;
+        this.queue = new MpscRing<>(queueCapacity);
+        this.thread = new Thread(this::run, "UdpService-Sender");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 按令牌桶限速的 beforeDatagram
+     * @return bytesPerSecond不大于0时返回null（不限速）
+     */
+    public static IntConsumer pacer(long bytesPerSecond, long burstBytes) {
+        return bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, burstBytes)::acquire : null;
+    }
+
+    /**
+     * 设置发送线程名（默认 UdpService-Sender），需在 start 之前设置
+     */
+    public void setThreadName(String name) {
+        thread.setName(name);
+    }
+
+    /**
+     * 设置逐包跟踪，需在 start 之前设置
+     */
+    public void setTracer(PacketTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * 停止发送线程，队列中尚未发出的请求被丢弃（其等待方由超时或停止流程结束）
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * 把请求放入发送队列（可由多个线程并发调用）
+     * @param data 完整的请求报文，入队后调用方不能再修改
+     * @param onFailure 写出失败时在发送线程上回调
+     * @return 队列已满或已停止时返回false
+     */
+    public boolean send(long requestId, ByteBuffer data, Consumer<Exception> onFailure) {
+        return send(requestId, data, writer.getMaxFragmentSize(), onFailure);
+    }
+
+    /**
+     * 同上，按指定的分片大小（不含分片头）切分
+     */
+    public boolean send(long requestId, ByteBuffer data, int fragmentSize, Consumer<Exception> onFailure) {
+        return enqueue(new Outbound(Outbound.REQUEST, requestId, data, fragmentSize, null, onFailure));
+    }
+
+    /**
+     * 按对端NACK重发会话中的指定分片；会话已不在重发缓冲区时忽略
+     * @return 队列已满或已停止时返回false
+     */
+    public boolean retransmit(long sessionId, int[] packetIndexes) {
+        return enqueue(new Outbound(Outbound.RETRANSMIT, sessionId, null, 0, packetIndexes, null));
+    }
+
+    /**
+     * 原样发送一个已编码好的数据报（例如NACK控制报文），同样受限速约束
+     * @return 队列已满或已停止时返回false
+     */
+    public boolean sendDatagram(ByteBuffer datagram) {
+        return enqueue(new Outbound(Outbound.DATAGRAM, 0, datagram, 0, null, null));
+    }
+
+    private boolean enqueue(Outbound outbound) {
+        if (!running || !queue.offer(outbound)) {
+            return false;
+        }
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    private void run() {
+        while (running) {
+            Outbound outbound = queue.poll();
+            if (outbound == null) {
+                // 先声明等待再复查队列，与send中的入队+检查配对，避免丢失唤醒
+                waiting = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                continue;
+            }
+            try {
+                write(outbound);
+            } catch (IOException | RuntimeException e) {
+                if (outbound.onFailure != null) {
+                    logger.error("Failed to send UDP request: requestId={}", outbound.id, e);
+                    outbound.onFailure.accept(e);
+                } else {
+                    logger.warn("Failed to send UDP datagram", e);
+                }
+            }
+        }
+    }
+
+    private void write(Outbound outbound) throws IOException {
+        switch (outbound.kind) {
+            case Outbound.REQUEST: {
+                long sessionId = FragmentWriter.generateSessionId();
+                int fragments = writer.write(channel, outbound.data, sessionId, outbound.fragmentSize, beforeDatagram);
+                if (retransmitBuffer != null) {
+                    retransmitBuffer.put(sessionId, outbound.data, outbound.fragmentSize);
+                }
+                if (tracer != null && tracer.isTracedRequest(outbound.id)) {
+                    tracer.traceRequest(outbound.id, "sent", "session=" + sessionId + ", fragments=" + fragments
+                        + ", fragmentSize=" + outbound.fragmentSize);
+                }
+                break;
+            }
+            case Outbound.RETRANSMIT: {
+                RetransmitBuffer.SentSession sent = retransmitBuffer != null ? retransmitBuffer.get(outbound.id) : null;
+                if (sent == null) {
+                    logger.debug("NACK for unknown session {}, ignored", outbound.id);
+                    return;
+                }
+                int fragments = writer.retransmit(channel, sent.getData(), outbound.id, sent.getFragmentSize(),
+                    outbound.packetIndexes, beforeDatagram);
+                logger.debug("Retransmitted {} fragments of session {}", fragments, outbound.id);
+                break;
+            }
+            default:
+                if (beforeDatagram != null) {
+                    beforeDatagram.accept(outbound.data.remaining());
+                }
+                channel.write(outbound.data);
+        }
+    }
+
+    /**
+     * 发送队列中的一项：完整请求、按NACK重发的分片或原样发送的数据报
+     */
+    private static final class Outbound {
+        private static final int REQUEST = 0;
+        private static final int RETRANSMIT = 1;
+        private static final int DATAGRAM = 2;
+
+        private final int kind;
+        private final long id;              // 请求为requestId，重发为sessionId
+        private final ByteBuffer data;
+        private final int fragmentSize;
+        private final int[] packetIndexes;
+        private final Consumer<Exception> onFailure;
+
+        Outbound(int kind, long id, ByteBuffer data, int fragmentSize, int[] packetIndexes,
+                 Consumer<Exception> onFailure) {
+            this.kind = kind;
+            this.id = id;
+            this.data = data;
+            this.fragmentSize = fragmentSize;
+            this.packetIndexes = packetIndexes;
+            this.onFailure = onFailure;
+        }
+    }
+}
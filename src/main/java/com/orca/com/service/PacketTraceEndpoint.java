@@ -0,0 +1,61 @@
+package com.orca.com.service;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.actuate.endpoint.Access;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 逐包跟踪的运行时开关（Actuator端点 /actuator/packettrace）
+ * GET 查看当前跟踪目标；POST {"sessionId":..} / {"requestId":..} / {"sampleEvery":..} 开启；DELETE 全部关闭。
+ * 可写且无认证，默认关闭：需设置 management.endpoint.packettrace.access=unrestricted 并加入 exposure.include
+ */
+@Component
+@Endpoint(id = "packettrace", defaultAccess = Access.NONE)
+public class PacketTraceEndpoint {
+    private final PacketTracer tracer;
+
+    public PacketTraceEndpoint(UdpService udpService) {
+        this.tracer = udpService.getPacketTracer();
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("active", tracer.isActive());
+        status.put("sampleEvery", tracer.getSampleEvery());
+        status.put("sessions", tracer.getTracedSessions());
+        status.put("requests", tracer.getTracedRequests());
+        return status;
+    }
+
+    /**
+     * 参数可任意组合，未给出的不变
+     */
+    @WriteOperation
+    public Map<String, Object> trace(@Nullable Long sessionId, @Nullable Long requestId,
+                                     @Nullable Integer sampleEvery) {
+        if (sessionId != null) {
+            tracer.traceSession(sessionId);
+        }
+        if (requestId != null) {
+            tracer.traceRequest(requestId);
+        }
+        if (sampleEvery != null) {
+            tracer.setSampleEvery(sampleEvery);
+        }
+        return status();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> clear() {
+        tracer.clear();
+        return status();
+    }
+}
@@ -0,0 +1,124 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.FragmentHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 逐包跟踪
+ * 默认关闭，关闭时每个数据报只多一次volatile读，与日志级别无关。运行时可针对单个会话ID或requestId开启
+ * （见 PacketTraceEndpoint），也可按 1/N 抽样输出分片头摘要；跟踪日志统一写到 com.orca.trace
+ */
+public class PacketTracer {
+    private static final Logger traceLogger = LoggerFactory.getLogger("com.orca.trace");
+    private static final int HEX_PREFIX_BYTES = 16;
+
+    private final Set<Long> sessions = ConcurrentHashMap.newKeySet();
+    private final Set<Long> requests = ConcurrentHashMap.newKeySet();
+    private final AtomicLong packetCounter = new AtomicLong();
+    private volatile int sampleEvery;
+    private volatile boolean active;
+
+    /**
+     * @param sampleEvery 每N个数据报输出一条摘要，不大于0时不抽样
+     */
+    public PacketTracer(int sampleEvery) {
+        setSampleEvery(sampleEvery);
+    }
+
+    /**
+     * 是否有任何跟踪目标或抽样；调用方先检查再调用其他跟踪方法，关闭时不产生任何开销
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 已解码分片头的数据报（在处理通道线程上调用）
+     * @param datagram headerStart处为分片头
+     */
+    public void onPacket(FragmentHeader header, ByteBuffer datagram, int headerStart) {
+        if (!sessions.isEmpty() && sessions.contains(header.getSessionId())) {
+            byte[] prefix = new byte[Math.min(datagram.limit() - headerStart, HEX_PREFIX_BYTES)];
+            datagram.get(headerStart, prefix);
+            traceLogger.info("Fragment {}/{} of session {}: size={}, flags={}, first bytes={}",
+                header.getCurrentPacket(), header.getTotalPackets(), header.getSessionId(),
+                header.getCurrentSize(), header.getFlags(), HexFormat.of().formatHex(prefix));
+            return;
+        }
+        int every = sampleEvery;
+        if (every > 0 && packetCounter.incrementAndGet() % every == 0) {
+            traceLogger.info("Sampled fragment {}/{} of session {}: size={}, flags={}",
+                header.getCurrentPacket(), header.getTotalPackets(), header.getSessionId(),
+                header.getCurrentSize(), header.getFlags());
+        }
+    }
+
+    public boolean isTracedRequest(long requestId) {
+        return active && !requests.isEmpty() && requests.contains(requestId);
+    }
+
+    /**
+     * 输出被跟踪请求的一个事件，调用方先用 isTracedRequest 判断
+     */
+    public void traceRequest(long requestId, String event, Object detail) {
+        traceLogger.info("Request {}: {} {}", requestId, event, detail);
+    }
+
+    public void traceSession(long sessionId) {
+        sessions.add(sessionId);
+        updateActive();
+    }
+
+    public void untraceSession(long sessionId) {
+        sessions.remove(sessionId);
+        updateActive();
+    }
+
+    public void traceRequest(long requestId) {
+        requests.add(requestId);
+        updateActive();
+    }
+
+    public void untraceRequest(long requestId) {
+        requests.remove(requestId);
+        updateActive();
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = Math.max(0, sampleEvery);
+        updateActive();
+    }
+
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * 清除全部跟踪目标并关闭抽样
+     */
+    public void clear() {
+        sessions.clear();
+        requests.clear();
+        setSampleEvery(0);
+    }
+
+    public Set<Long> getTracedSessions() {
+        return new TreeSet<>(sessions);
+    }
+
+    public Set<Long> getTracedRequests() {
+        return new TreeSet<>(requests);
+    }
+
+    private void updateActive() {
+        active = sampleEvery > 0 || !sessions.isEmpty() || !requests.isEmpty();
+    }
+}
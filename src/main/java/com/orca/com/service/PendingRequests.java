@@ -0,0 +1,184 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.ConcurrentLongObjectMap;
+import com.orca.com.protocol.TimerWheel;
+import com.orca.com.protocol.UdpResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 等待上游响应的请求表
+ * requestId 到 future 的映射（long键分段哈希表，不装箱），每个请求的截止时间登记在哈希时间轮中（登记与取消均为O(1)），
+ * 由定时线程按tick推进，超时的请求以 TimeoutException 结束并立即从表中移除。
+ * 时间轮与哈希表一样按 requestId 分段，每段独立加锁，登记与取消不经过全局锁
+ */
+public class PendingRequests {
+    private static final long TICK_MS = 100;
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_STRIPES = 16;
+    private static final int STRIPE_SHIFT = 64 - Integer.numberOfTrailingZeros(WHEEL_STRIPES);
+
+    private final ConcurrentLongObjectMap<Pending> pending = new ConcurrentLongObjectMap<>();
+    private final long timeoutNanos;
+    private final TimerWheel<Pending>[] wheels; // 每段由自身加锁保护
+    private ScheduledExecutorService timer;
+
+    /**
+     * @param timeoutMs 等待响应的超时时间，不大于0时不超时
+     */
+    public PendingRequests(long timeoutMs) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        @SuppressWarnings("unchecked")
+        TimerWheel<Pending>[] wheels = (TimerWheel<Pending>[]) new TimerWheel<?>[WHEEL_STRIPES];
+        this.wheels = wheels;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < WHEEL_STRIPES; i++) {
+            wheels[i] = new TimerWheel<>(TimeUnit.MILLISECONDS.toNanos(TICK_MS), WHEEL_SIZE, startNanos);
+        }
+    }
+
+    public synchronized void start() {
+        if (timer != null || timeoutNanos <= 0) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "UdpService-Timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(() -> expire(System.nanoTime()), TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定时线程，仍在等待的请求全部以异常结束
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (timer != null) {
+                timer.shutdownNow();
+                timer = null;
+            }
+        }
+        for (Pending entry : pending.values()) {
+            if (pending.remove(entry.requestId, entry)) {
+                cancelTimeout(entry);
+                entry.future.completeExceptionally(new IllegalStateException("UDP service stopped"));
+            }
+        }
+    }
+
+    /**
+     * 登记等待响应的请求；相同requestId的旧请求不会再收到响应，直接以异常结束
+     */
+    public void register(long requestId, CompletableFuture<UdpResponse> future) {
+        Pending entry = new Pending(requestId, future, wheelFor(requestId));
+        Pending previous = pending.put(requestId, entry);
+        if (previous != null) {
+            cancelTimeout(previous);
+            previous.future.completeExceptionally(
+                new IllegalStateException("Superseded by a new request with requestId " + requestId));
+        }
+        // 先入表再登记截止时间：到期处理按 (requestId, entry) 移除，已被移除的条目到期时直接忽略
+        if (timeoutNanos > 0) {
+            synchronized (entry.wheel) {
+                if (!entry.removed) {
+                    entry.timeout = entry.wheel.schedule(entry, System.nanoTime() + timeoutNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除并返回等待中的请求（收到响应或发送失败时调用）
+     * @return 不存在（已超时或已完成）时返回null
+     */
+    public CompletableFuture<UdpResponse> remove(long requestId) {
+        Pending entry = pending.remove(requestId);
+        if (entry == null) {
+            return null;
+        }
+        cancelTimeout(entry);
+        return entry.future;
+    }
+
+    /**
+     * 等待中的请求，不移除
+     * @return 不存在时返回null
+     */
+    public CompletableFuture<UdpResponse> get(long requestId) {
+        Pending entry = pending.get(requestId);
+        return entry != null ? entry.future : null;
+    }
+
+    /**
+     * 仅当requestId仍对应给定的future时移除
+     * @return 是否移除
+     */
+    public boolean remove(long requestId, CompletableFuture<UdpResponse> future) {
+        Pending entry = pending.get(requestId);
+        if (entry == null || entry.future != future || !pending.remove(requestId, entry)) {
+            return false;
+        }
+        cancelTimeout(entry);
+        return true;
+    }
+
+    /**
+     * 推进时间轮，结束所有已超时的请求
+     * @return 超时的请求数
+     */
+    public int expire(long nowNanos) {
+        List<Pending> expired = new ArrayList<>();
+        for (TimerWheel<Pending> wheel : wheels) {
+            synchronized (wheel) {
+                wheel.advance(nowNanos, expired::add);
+            }
+        }
+        int count = 0;
+        for (Pending entry : expired) {
+            if (pending.remove(entry.requestId, entry)) {
+                entry.future.completeExceptionally(
+                    new TimeoutException("No response for requestId " + entry.requestId));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    private void cancelTimeout(Pending entry) {
+        synchronized (entry.wheel) {
+            entry.removed = true;
+            entry.wheel.cancel(entry.timeout);
+        }
+    }
+
+    private TimerWheel<Pending> wheelFor(long requestId) {
+        // requestId 多为连续递增，先混合再取高位，使相邻请求落在不同段
+        return wheels[(int) ((requestId * 0x9E3779B97F4A7C15L) >>> STRIPE_SHIFT)];
+    }
+
+    private static final class Pending {
+        private final long requestId;
+        private final CompletableFuture<UdpResponse> future;
+        private final TimerWheel<Pending> wheel; // 所在的时间轮分段
+        // timeout 与 removed 由所在时间轮的锁保护
+        private TimerWheel.Timeout<Pending> timeout;
+        private boolean removed;
+
+        Pending(long requestId, CompletableFuture<UdpResponse> future, TimerWheel<Pending> wheel) {
+            this.requestId = requestId;
+            this.future = future;
+            this.wheel = wheel;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.orca.com.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热路径日志限频：同一类事件每个间隔最多放行一条，其间被抑制的次数由下一条带出。
+ * 未到间隔时只有一次时钟读取与一次计数，调用方不会格式化参数；事件总数应另由计数器记录
+ */
+public class RateLimitedLog {
+    private final long intervalNanos;
+    private final AtomicLong nextAt;
+    private final LongAdder suppressed = new LongAdder();
+
+    public RateLimitedLog(long intervalMs) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.nextAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 是否输出本次事件（可由多个线程并发调用）；返回true时调用方随即输出日志并附上 drainSuppressed()
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long next = nextAt.get();
+        if (now - next >= 0 && nextAt.compareAndSet(next, now + intervalNanos)) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    /**
+     * 上一条输出以来被抑制的事件数，并清零
+     */
+    public long drainSuppressed() {
+        return suppressed.sumThenReset();
+    }
+}
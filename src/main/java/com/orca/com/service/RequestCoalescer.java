@@ -0,0 +1,160 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.ResponseFactory;
+import com.orca.com.protocol.UdpRequest;
+import com.orca.com.protocol.UdpResponse;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 请求合并（single-flight）
+ * 除 requestId 外编码完全相同的请求在途期间只向上游发送一次，
+ * 后到的请求共享同一次UDP交换，结果改写为各自的 requestId 后返回。
+ * 每个调用方拿到各自派生的future，取消只影响自己；全部调用方都取消后，取消传递给sender返回的future
+ * （例如仍在排队的请求随之出队，不再发出）
+ */
+public class RequestCoalescer {
+    private static final int REQUEST_ID_OFFSET = 2; // Type(2)之后
+    private static final int REQUEST_ID_SIZE = 8;
+
+    private final Map<RequestKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final long staleNanos;
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param staleAfterMs 在途超过该时长仍未完成的交换不再接受合并，后续请求重新发送
+     */
+    public RequestCoalescer(long staleAfterMs) {
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleAfterMs);
+    }
+
+    /**
+     * 发送请求；已有相同请求在途时不调用sender，直接等待其结果
+     * @param sender 返回的future被取消时应放弃该次发送
+     */
+    public CompletableFuture<UdpResponse> execute(UdpRequest request,
+                                                  Function<UdpRequest, CompletableFuture<UdpResponse>> sender) {
+        RequestKey key = RequestKey.of(request);
+        Flight flight = new Flight(key);
+        while (true) {
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                break;
+            }
+            if (System.nanoTime() - existing.startNanos <= staleNanos && existing.join()) {
+                coalesced.increment();
+                long requestId = request.getRequestId();
+                return existing.follow(
+                    existing.future.thenApply(response -> ResponseFactory.withRequestId(response, requestId)));
+            }
+            if (inFlight.replace(key, existing, flight)) {
+                break;
+            }
+        }
+
+        CompletableFuture<UdpResponse> upstream;
+        try {
+            upstream = sender.apply(request);
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        flight.upstream = upstream;
+        upstream.whenComplete((response, e) -> {
+            inFlight.remove(key, flight);
+            if (e != null) {
+                flight.future.completeExceptionally(e);
+            } else {
+                flight.future.complete(response);
+            }
+        });
+        // 发起者同样拿到派生的future：它被取消（超时、客户端断开）时不影响合并进来的其他请求
+        return flight.follow(flight.future.thenApply(response -> response));
+    }
+
+    /**
+     * 被合并（未单独发送）的请求数
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private final class Flight {
+        private final RequestKey key;
+        private final CompletableFuture<UdpResponse> future = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger waiters = new AtomicInteger(1); // 归零后不再接受合并
+        private volatile CompletableFuture<UdpResponse> upstream;
+
+        Flight(RequestKey key) {
+            this.key = key;
+        }
+
+        /**
+         * 合并进本次交换；全部调用方已取消时返回false
+         */
+        boolean join() {
+            int n;
+            do {
+                n = waiters.get();
+                if (n == 0) {
+                    return false;
+                }
+            } while (!waiters.compareAndSet(n, n + 1));
+            return true;
+        }
+
+        CompletableFuture<UdpResponse> follow(CompletableFuture<UdpResponse> waiter) {
+            waiter.whenComplete((response, e) -> {
+                if (waiter.isCancelled() && waiters.decrementAndGet() == 0 && !future.isDone()) {
+                    abandon();
+                }
+            });
+            return waiter;
+        }
+
+        private void abandon() {
+            inFlight.remove(key, this);
+            upstream.cancel(false);
+        }
+    }
+
+    /**
+     * 合并键：把 requestId 字段清零后的请求编码
+     */
+    static final class RequestKey {
+        private final byte[] encoded;
+        private final int hash;
+
+        private RequestKey(byte[] encoded) {
+            this.encoded = encoded;
+            this.hash = Arrays.hashCode(encoded);
+        }
+
+        static RequestKey of(UdpRequest request) {
+            byte[] encoded = request.encode();
+            Arrays.fill(encoded, REQUEST_ID_OFFSET, REQUEST_ID_OFFSET + REQUEST_ID_SIZE, (byte) 0);
+            return new RequestKey(encoded);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RequestKey && Arrays.equals(encoded, ((RequestKey) o).encoded);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
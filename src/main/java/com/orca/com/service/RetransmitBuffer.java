@@ -0,0 +1,67 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.LongObjectHashMap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 重发缓冲区：保留最近发出的若干个会话的完整报文，供对端NACK时按序号重发
+ * 按发送顺序淘汰最旧的会话，容量固定。非线程安全：只由发送线程使用
+ */
+public class RetransmitBuffer {
+    private final LongObjectHashMap<SentSession> sessions;
+    private final long[] order; // 环形记录发送顺序
+    private int next;
+    private int count;
+
+    public RetransmitBuffer(int capacity) {
+        this.order = new long[Math.max(1, capacity)];
+        this.sessions = new LongObjectHashMap<>(order.length);
+    }
+
+    /**
+     * 保存会话报文，缓冲区满时淘汰最早保存的会话
+     */
+    public void put(long sessionId, ByteBuffer data, int fragmentSize) {
+        if (count == order.length) {
+            sessions.remove(order[next]);
+        } else {
+            count++;
+        }
+        order[next] = sessionId;
+        next = (next + 1) % order.length;
+        sessions.put(sessionId, new SentSession(data, fragmentSize));
+    }
+
+    /**
+     * @return 已淘汰或从未保存时返回null
+     */
+    public SentSession get(long sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * 已发出的会话：完整报文与首次发送时的分片大小（重发时必须按同样的大小切分）
+     */
+    public static final class SentSession {
+        private final ByteBuffer data;
+        private final int fragmentSize;
+
+        SentSession(ByteBuffer data, int fragmentSize) {
+            this.data = data;
+            this.fragmentSize = fragmentSize;
+        }
+
+        public ByteBuffer getData() {
+            return data;
+        }
+
+        public int getFragmentSize() {
+            return fragmentSize;
+        }
+    }
+}
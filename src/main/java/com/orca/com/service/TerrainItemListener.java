@@ -0,0 +1,20 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.TerrainResponse;
+
+import java.util.List;
+
+/**
+ * 地形响应的逐项回调：响应分片从头起连续到达的部分一旦包含完整的响应项，即按顺序交给监听器，
+ * 不必等待最后一个分片。完整响应仍由 sendRequest 返回的 future 给出（包含全部响应项）
+ */
+@FunctionalInterface
+public interface TerrainItemListener {
+    /**
+     * 在接收处理通道线程上调用，实现应尽快返回
+     * @param count 报文声明的总项数
+     * @param offset 本批第一项在响应中的序号
+     * @param items 新到达的完整响应项
+     */
+    void onItems(long count, int offset, List<TerrainResponse.ResponseItem> items);
+}
@@ -0,0 +1,187 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.TerrainResponseView;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 地形查询响应缓存（LRU）
+ * 以规范化后的 A/B 经纬度与数据源为键，缓存响应的原始报文字节；同时限制条目数、总字节数与存活时间。
+ * 命中时拷贝报文并改写为新请求的 requestId，再解码为新的响应视图
+ */
+public class TerrainResponseCache {
+    private static final int REQUEST_ID_OFFSET = 2; // Type(2)之后
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TerrainResponseCache(int maxEntries, long maxBytes, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * 查询缓存
+     * @return 以request的requestId重新生成的响应，未命中或已过期时返回null
+     */
+    public TerrainResponse get(TerrainRequest request) {
+        Key key = Key.of(request);
+        byte[] data;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdNanos > ttlNanos) {
+                remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            data = entry.data;
+        }
+        hits.increment();
+
+        byte[] copy = data.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putLong(REQUEST_ID_OFFSET, request.getRequestId());
+        return TerrainResponse.decode(copy);
+    }
+
+    /**
+     * 写入缓存；单个响应超过总字节上限时不缓存
+     */
+    public void put(TerrainRequest request, TerrainResponse response) {
+        TerrainResponseView view = response.getView();
+        byte[] data = view != null ? view.toByteArray() : response.encode();
+        if (data.length > maxBytes) {
+            return;
+        }
+        Key key = Key.of(request);
+        synchronized (this) {
+            remove(key);
+            entries.put(key, new Entry(data, System.nanoTime()));
+            totalBytes += data.length;
+            evictOverflow();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.data.length;
+        }
+    }
+
+    /**
+     * 按最久未访问的顺序淘汰，直到满足条目数与字节数上限
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && it.hasNext()) {
+            totalBytes -= it.next().getValue().data.length;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] data;
+        private final long createdNanos;
+
+        Entry(byte[] data, long createdNanos) {
+            this.data = data;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    /**
+     * 缓存键：坐标按位比较，-0.0 归一为 0.0
+     */
+    static final class Key {
+        private final long aLongitude;
+        private final long aLatitude;
+        private final long bLongitude;
+        private final long bLatitude;
+        private final int dataSource;
+
+        private Key(long aLongitude, long aLatitude, long bLongitude, long bLatitude, int dataSource) {
+            this.aLongitude = aLongitude;
+            this.aLatitude = aLatitude;
+            this.bLongitude = bLongitude;
+            this.bLatitude = bLatitude;
+            this.dataSource = dataSource;
+        }
+
+        static Key of(TerrainRequest request) {
+            return new Key(normalize(request.getALongitude()), normalize(request.getALatitude()),
+                normalize(request.getBLongitude()), normalize(request.getBLatitude()), request.getDataSource());
+        }
+
+        private static long normalize(double value) {
+            return value == 0.0 ? 0L : Double.doubleToLongBits(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return aLongitude == other.aLongitude && aLatitude == other.aLatitude
+                && bLongitude == other.bLongitude && bLatitude == other.bLatitude
+                && dataSource == other.dataSource;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = Long.hashCode(aLongitude);
+            h = 31 * h + Long.hashCode(aLatitude);
+            h = 31 * h + Long.hashCode(bLongitude);
+            h = 31 * h + Long.hashCode(bLatitude);
+            return 31 * h + dataSource;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.orca.com.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 令牌桶限速
+ * 按 bytesPerSecond 持续补充令牌，最多积累 burstBytes；取令牌不足时记为欠账并休眠到欠账还清。
+ * 非线程安全：只由发送线程使用
+ */
+public class TokenBucket {
+    private final double bytesPerNano;
+    private final double burstBytes;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive: " + bytesPerSecond);
+        }
+        this.bytesPerNano = bytesPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+        this.burstBytes = Math.max(1, burstBytes);
+        this.tokens = this.burstBytes;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 取出bytes个令牌，需要等待时返回需要休眠的纳秒数（不休眠）
+     */
+    public long reserve(int bytes, long nowNanos) {
+        tokens = Math.min(burstBytes, tokens + (nowNanos - lastRefillNanos) * bytesPerNano);
+        lastRefillNanos = nowNanos;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / bytesPerNano);
+    }
+
+    /**
+     * 取出bytes个令牌，不足时阻塞当前线程
+     */
+    public void acquire(int bytes) {
+        long waitNanos = reserve(bytes, System.nanoTime());
+        long deadline = System.nanoTime() + waitNanos;
+        while (waitNanos > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.FragmentReassembler;
+import com.orca.com.protocol.ReassemblyBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * UDP网关指标（Micrometer）
+ * 热路径上的计数器在构造时注册好直接持有，不在每次记录时按名称查找
+ */
+public class UdpMetrics implements FragmentReassembler.SessionListener {
+    private final MeterRegistry registry;
+    private final Counter datagramsIn;
+    private final Counter datagramsOut;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+    private final Counter laneFullDrops;
+    private final Counter runtDrops;
+    private final Counter sessionsCompleted;
+    private final Counter sessionsExpired;
+    private final Counter sessionsEvicted;
+    private final Counter refusedOverBudget;
+    private final Counter refusedOverSourceLimit;
+    private final DistributionSummary fragmentsPerSession;
+    private final Timer reassemblyLatency;
+    private final Counter headerFailures;
+    private final Counter checksumFailures;
+    private final Counter responseFailures;
+    private final Counter sendRejected;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    // 按 请求类型/结果 缓存的请求延迟计时器
+    private final ConcurrentMap<String, Timer> requestTimers = new ConcurrentHashMap<>();
+
+    public UdpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.datagramsIn = direction(Counter.builder("orca.udp.datagrams"), "in").register(registry);
+        this.datagramsOut = direction(Counter.builder("orca.udp.datagrams"), "out").register(registry);
+        this.bytesIn = direction(Counter.builder("orca.udp.bytes").baseUnit("bytes"), "in").register(registry);
+        this.bytesOut = direction(Counter.builder("orca.udp.bytes").baseUnit("bytes"), "out").register(registry);
+        this.laneFullDrops = Counter.builder("orca.udp.datagrams.dropped").tag("reason", "lane-full")
+            .description("Datagrams dropped before processing").register(registry);
+        this.runtDrops = Counter.builder("orca.udp.datagrams.dropped").tag("reason", "runt").register(registry);
+        this.sessionsCompleted = Counter.builder("orca.udp.reassembly.sessions")
+            .tag("outcome", "completed").register(registry);
+        this.sessionsExpired = Counter.builder("orca.udp.reassembly.sessions")
+            .tag("outcome", "expired").register(registry);
+        this.sessionsEvicted = Counter.builder("orca.udp.reassembly.sessions")
+            .tag("outcome", "evicted").register(registry);
+        this.refusedOverBudget = Counter.builder("orca.udp.reassembly.refused").tag("limit", "global")
+            .description("Fragments dropped because the reassembly memory budget was exhausted").register(registry);
+        this.refusedOverSourceLimit = Counter.builder("orca.udp.reassembly.refused").tag("limit", "source")
+            .register(registry);
+        this.fragmentsPerSession = DistributionSummary.builder("orca.udp.reassembly.fragments")
+            .description("Fragments per completed reassembly session")
+            .publishPercentileHistogram()
+            .register(registry);
+        this.reassemblyLatency = Timer.builder("orca.udp.reassembly.latency")
+            .description("Time from first to last fragment of a session")
+            .publishPercentileHistogram()
+            .register(registry);
+        this.headerFailures = decodeFailures("header");
+        this.checksumFailures = decodeFailures("checksum");
+        this.responseFailures = decodeFailures("response");
+        this.sendRejected = Counter.builder("orca.udp.send.rejected")
+            .description("Requests rejected because the send queue was full")
+            .register(registry);
+        this.hedgesSent = Counter.builder("orca.udp.hedge.requests").tag("result", "sent").register(registry);
+        this.hedgesWon = Counter.builder("orca.udp.hedge.requests").tag("result", "won")
+            .description("Hedged requests whose response arrived first").register(registry);
+    }
+
+    private static Counter.Builder direction(Counter.Builder builder, String direction) {
+        return builder.tag("direction", direction);
+    }
+
+    private Counter decodeFailures(String stage) {
+        return Counter.builder("orca.udp.decode.failures").tag("stage", stage).register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public void datagramReceived(int bytes) {
+        datagramsIn.increment();
+        bytesIn.increment(bytes);
+    }
+
+    /**
+     * 处理通道队列已满，数据报在接收线程上被丢弃
+     */
+    public void laneFull() {
+        laneFullDrops.increment();
+    }
+
+    /**
+     * 数据报短于分片头，在接收线程上被丢弃
+     */
+    public void runt() {
+        runtDrops.increment();
+    }
+
+    public void datagramSent(int bytes) {
+        datagramsOut.increment();
+        bytesOut.increment(bytes);
+    }
+
+    @Override
+    public void onCompleted(int totalPackets, long durationNanos) {
+        sessionsCompleted.increment();
+        fragmentsPerSession.record(totalPackets);
+        reassemblyLatency.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void onExpired(int totalPackets) {
+        sessionsExpired.increment();
+    }
+
+    @Override
+    public void onRefused(int totalPackets, int reason) {
+        if (reason == ReassemblyBudget.OVER_SOURCE_LIMIT) {
+            refusedOverSourceLimit.increment();
+        } else {
+            refusedOverBudget.increment();
+        }
+    }
+
+    @Override
+    public void onEvicted(int totalPackets) {
+        sessionsEvicted.increment();
+    }
+
+    public long getRefusedCount() {
+        return (long) (refusedOverBudget.count() + refusedOverSourceLimit.count());
+    }
+
+    public long getEvictedCount() {
+        return (long) sessionsEvicted.count();
+    }
+
+    public void invalidHeader() {
+        headerFailures.increment();
+    }
+
+    public void checksumMismatch() {
+        checksumFailures.increment();
+    }
+
+    public void responseDecodeFailed() {
+        responseFailures.increment();
+    }
+
+    public long getChecksumFailureCount() {
+        return (long) checksumFailures.count();
+    }
+
+    public void sendRejected() {
+        sendRejected.increment();
+    }
+
+    public void hedgeSent() {
+        hedgesSent.increment();
+    }
+
+    public void hedgeWon() {
+        hedgesWon.increment();
+    }
+
+    public long getHedgeWonCount() {
+        return (long) hedgesWon.count();
+    }
+
+    /**
+     * 记录一次请求从进入 sendRequest 到得到结果的时间
+     * @param failure 成功时为null
+     */
+    public void requestCompleted(String type, boolean cached, Throwable failure, long durationNanos) {
+        String outcome = cached ? "cached" : outcome(failure);
+        requestTimers.computeIfAbsent(type + '/' + outcome, key -> Timer.builder("orca.udp.request.latency")
+                .description("End-to-end UDP request latency")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "success";
+        }
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause() : failure;
+        return cause instanceof TimeoutException ? "timeout" : "error";
+    }
+}
@@ -2,20 +2,35 @@ package com.orca.com.service;
 
 import com.orca.com.config.UdpProperties;
 import com.orca.com.protocol.*;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 /**
  * UDP服务：监听19210端口，发送到19211端口
@@ -23,188 +38,780 @@ import java.util.concurrent.Executors;
 @Service
 public class UdpService {
     private static final Logger logger = LoggerFactory.getLogger(UdpService.class);
+    // 未指明客户端的请求共用一个排队单位
+    private static final Object DEFAULT_CLIENT = new Object();
+    // 对冲请求使用独立的requestId区间，不与客户端分配的requestId冲突
+    private static final long HEDGE_REQUEST_ID_BASE = 0x4845_0000_0000_0000L;
+    private static final int REQUEST_ID_OFFSET = 2; // 请求与响应报文中 Type(2) 之后
+    private static final long DROP_LOG_INTERVAL_MS = 10_000;
     
     private final UdpProperties properties;
-    private DatagramSocket listenSocket;
-    private DatagramSocket sendSocket;
-    private InetAddress sendAddress;
-    private final FragmentReassembler reassembler;
-    private final FragmentSplitter splitter;
+    private final List<ReceiveShard> shards = new ArrayList<>();
+    private DatagramBufferPool bufferPool;
+    private FragmentDispatcher dispatcher;
+    private UpstreamPool upstreams; // 每个上游一个已连接的发送channel与发送线程
+    private final long reassemblyTimeoutMs;
+    private final ReassemblyBudget reassemblyBudget; // 未限制重组内存时为null，各处理通道共享
+    private final int maxFragmentSize;
     private final ExecutorService executorService;
+    private final TerrainResponseCache responseCache; // 未启用时为null
+    private final RequestCoalescer coalescer;
+    private final FairRequestLimiter limiter;
+    private final UdpMetrics metrics;
+    private final PacketTracer tracer;
+    private final HedgePolicy hedgePolicy; // 未启用对冲时为null
+    private final ScheduledExecutorService hedgeTimer; // 未启用对冲时为null
+    private final AtomicLong hedgeIdGenerator = new AtomicLong(HEDGE_REQUEST_ID_BASE);
     private volatile boolean running = false;
     
-    // 请求ID到响应回调的映射
-    private final Map<Long, CompletableFuture<UdpResponse>> pendingRequests = new ConcurrentHashMap<>();
+    // 请求ID到响应回调的映射，超时由时间轮统一处理
+    private final PendingRequests pendingRequests;
+    // 请求ID到逐项回调的映射，只包含要求逐项推送的地形请求
+    private final ConcurrentLongObjectMap<TerrainItemListener> itemListeners = new ConcurrentLongObjectMap<>();
+    // 逐包丢弃的原因已由计数器记录，日志按类别限频，只用于提示（单个会话的细节通过 PacketTracer 跟踪）
+    private final RateLimitedLog runtLog = new RateLimitedLog(DROP_LOG_INTERVAL_MS);
+    private final RateLimitedLog laneFullLog = new RateLimitedLog(DROP_LOG_INTERVAL_MS);
+    private final RateLimitedLog invalidPacketLog = new RateLimitedLog(DROP_LOG_INTERVAL_MS);
+    private final RateLimitedLog checksumLog = new RateLimitedLog(DROP_LOG_INTERVAL_MS);
     
     public UdpService(UdpProperties properties) {
+        this(properties, new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public UdpService(UdpProperties properties, MeterRegistry meterRegistry) {
         this.properties = properties;
-        this.reassembler = new FragmentReassembler(properties.getReassemblyTimeoutMs());
-        this.splitter = new FragmentSplitter(properties.getMaxDatagramSize() - FragmentHeader.HEADER_SIZE);
-        this.executorService = Executors.newFixedThreadPool(2, r -> {
-            Thread t = new Thread(r, "UdpService-Worker");
-            t.setDaemon(true);
-            return t;
-        });
+        this.metrics = new UdpMetrics(meterRegistry);
+        this.tracer = new PacketTracer(properties.getTraceSampleEvery());
+        this.reassemblyTimeoutMs = properties.getReassemblyTimeoutMs();
+        this.reassemblyBudget = properties.getReassemblyMaxBytes() > 0
+            ? new ReassemblyBudget(properties.getReassemblyMaxBytes(), properties.getReassemblyMaxBytesPerSource(),
+                properties.getReassemblyEvictionPolicy())
+            : null;
+        this.maxFragmentSize = properties.getMaxDatagramSize() - FragmentHeader.HEADER_SIZE;
+        // 接收与重组在专用线程上，这里只负责解码完整响应并完成等待方
+        this.executorService = WorkerExecutors.create(properties.getWorkerExecutor(),
+            properties.getWorkerThreads(), "UdpService-Worker");
+        this.responseCache = properties.getResponseCacheMaxEntries() > 0
+            ? new TerrainResponseCache(properties.getResponseCacheMaxEntries(),
+                properties.getResponseCacheMaxBytes(), properties.getResponseCacheTtlMs())
+            : null;
+        this.coalescer = new RequestCoalescer(properties.getRequestTimeoutMs());
+        if (properties.isHedgeEnabled()) {
+            this.hedgePolicy = new HedgePolicy(properties.getHedgePercentile(), properties.getHedgeMinDelayMs(),
+                properties.getHedgeMaxDelayMs(), properties.getHedgeBudgetPercent());
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "UdpService-Hedge");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+            this.hedgeTimer = timer;
+        } else {
+            this.hedgePolicy = null;
+            this.hedgeTimer = null;
+        }
+        this.limiter = new FairRequestLimiter(properties.getMaxInFlightRequests(),
+            properties.getRequestTimeoutMs());
+        this.pendingRequests = new PendingRequests(properties.getRequestTimeoutMs());
+        registerGauges(meterRegistry);
+    }
+    
+    private void registerGauges(MeterRegistry registry) {
+        Gauge.builder("orca.udp.pending.requests", pendingRequests, PendingRequests::size)
+            .description("Requests waiting for an upstream response").register(registry);
+        Gauge.builder("orca.udp.coalescer.inflight", coalescer, RequestCoalescer::getInFlightCount)
+            .register(registry);
+        FunctionCounter.builder("orca.udp.coalescer.joined", coalescer, RequestCoalescer::getCoalescedCount)
+            .description("Requests served by joining an identical in-flight request").register(registry);
+        Gauge.builder("orca.udp.limiter.inflight", limiter, FairRequestLimiter::getInFlightCount)
+            .description("Upstream requests holding an in-flight permit").register(registry);
+        Gauge.builder("orca.udp.limiter.queued", limiter, FairRequestLimiter::getQueuedCount)
+            .description("Requests waiting for an in-flight permit").register(registry);
+        if (reassemblyBudget != null) {
+            Gauge.builder("orca.udp.reassembly.bytes", reassemblyBudget, ReassemblyBudget::getUsedBytes)
+                .description("Buffer bytes held by incomplete reassembly sessions").baseUnit("bytes")
+                .register(registry);
+        }
+        if (responseCache != null) {
+            Gauge.builder("orca.udp.cache.entries", responseCache, TerrainResponseCache::size).register(registry);
+            Gauge.builder("orca.udp.cache.bytes", responseCache, TerrainResponseCache::getTotalBytes)
+                .baseUnit("bytes").register(registry);
+            FunctionCounter.builder("orca.udp.cache.requests", responseCache, TerrainResponseCache::getHitCount)
+                .tag("result", "hit").register(registry);
+            FunctionCounter.builder("orca.udp.cache.requests", responseCache, TerrainResponseCache::getMissCount)
+                .tag("result", "miss").register(registry);
+            FunctionCounter.builder("orca.udp.cache.evictions", responseCache, TerrainResponseCache::getEvictionCount)
+                .register(registry);
+        }
     }
     
     @PostConstruct
     public void start() throws IOException {
-        // 监听socket
-        listenSocket = new DatagramSocket(properties.getListenPort(), 
-            InetAddress.getByName(properties.getListenHost()));
-        listenSocket.setReceiveBufferSize(64 * 1024);
+        // 接收缓冲区来自复用的直接内存池
+        // 自适应模式下上游也可能发出更大的分片，接收缓冲区按上限分配
+        int receiveBufferSize = properties.isAdaptiveDatagramSize()
+            ? Math.max(properties.getMaxDatagramSize(), properties.getAdaptiveMaxDatagramSize())
+            : properties.getMaxDatagramSize();
+        // 池容量覆盖同时在外的全部缓冲区（各通道队列与正在处理的，加上各接收线程手中的），突发时也不临时分配
+        int poolCapacity = FragmentDispatcher.maxHeldBuffers(properties.getProcessingLanes(),
+            properties.getLaneQueueCapacity()) + Math.max(1, properties.getReceiveThreads());
+        bufferPool = new DatagramBufferPool(poolCapacity, receiveBufferSize);
+        // 按会话哈希分配的处理通道，每个通道独占重组状态
+        // 启用NACK时，停顿的残缺会话向上游请求重发缺失分片
+        Supplier<FragmentReassembler> reassemblerFactory = () -> {
+            FragmentReassembler reassembler = properties.isNackEnabled()
+                ? new FragmentReassembler(reassemblyTimeoutMs, properties.getNackDelayMs(),
+                    properties.getNackMaxRounds(), this::sendNack)
+                : new FragmentReassembler(reassemblyTimeoutMs);
+            reassembler.setSessionListener(metrics);
+            reassembler.setPrefixListener(this::onResponsePrefix);
+            reassembler.setBudget(reassemblyBudget);
+            return reassembler;
+        };
+        dispatcher = new FragmentDispatcher(properties.getProcessingLanes(), properties.getLaneQueueCapacity(),
+            reassemblerFactory, bufferPool, this::processReceivedPacket);
         
-        // 发送socket
-        sendSocket = new DatagramSocket();
-        sendAddress = InetAddress.getByName(properties.getSendHost());
+        // 监听channel（阻塞模式）：多个接收线程时通过SO_REUSEPORT在同一端口上打开多个channel，
+        // 由内核按来源地址哈希分流，同一发送端的全部分片总会落到同一个分片上
+        int shardCount = Math.max(1, properties.getReceiveThreads());
+        DatagramChannel first = DatagramChannel.open();
+        if (shardCount > 1 && !first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+            logger.warn("SO_REUSEPORT not supported on this platform, falling back to a single receive thread");
+            shardCount = 1;
+        }
+        for (int i = 0; i < shardCount; i++) {
+            DatagramChannel channel = (i == 0) ? first : DatagramChannel.open();
+            bindListenChannel(channel, shardCount > 1);
+            shards.add(new ReceiveShard(i, channel));
+        }
+        
+        // 上游后端：未配置列表时只有 sendHost:sendPort
+        List<UpstreamEndpoint> endpoints = new ArrayList<>();
+        if (properties.getUpstreams() == null || properties.getUpstreams().isEmpty()) {
+            endpoints.add(openUpstream(0, new InetSocketAddress(
+                InetAddress.getByName(properties.getSendHost()), properties.getSendPort())));
+        } else {
+            for (String upstream : properties.getUpstreams()) {
+                endpoints.add(openUpstream(endpoints.size(), UpstreamEndpoint.parseAddress(upstream)));
+            }
+        }
+        upstreams = new UpstreamPool(endpoints, UpstreamBalancer.create(properties.getUpstreamBalancer()),
+            properties.getUpstreamEjectAfterTimeouts(), properties.getUpstreamEjectMs());
+        registerUpstreamGauges(metrics.getRegistry());
         
         running = true;
+        dispatcher.start();
+        for (UpstreamEndpoint endpoint : endpoints) {
+            endpoint.getSender().start();
+        }
+        pendingRequests.start();
         
-        // 启动接收线程
-        executorService.execute(this::receiveLoop);
+        // 每个分片一个独立的接收线程
+        for (ReceiveShard shard : shards) {
+            shard.thread = new Thread(() -> receiveLoop(shard), "UdpService-Receiver-" + shard.index);
+            shard.thread.setDaemon(true);
+            shard.thread.start();
+        }
         
-        logger.info("UDP Service started - Listening on {}:{}, Sending to {}:{}", 
-            properties.getListenHost(), properties.getListenPort(),
-            properties.getSendHost(), properties.getSendPort());
+        logger.info("UDP Service started - Listening on {}:{} ({} receive threads, {} lanes), Sending to {} ({})", 
+            properties.getListenHost(), properties.getListenPort(), shards.size(), dispatcher.getLaneCount(),
+            endpoints, properties.getUpstreamBalancer());
+    }
+    
+    /**
+     * 打开到一个上游的发送socket与发送线程：调用方（WebFlux事件循环）只入队，不在socket写上阻塞；
+     * 限速与数据报大小调节按上游分别进行
+     * @param index 上游序号，与地址一起用于发送线程名，便于在线程转储中区分
+     */
+    private UpstreamEndpoint openUpstream(int index, InetSocketAddress address) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.connect(address);
+        IntConsumer pacer = PacedSender.pacer(properties.getSendRateBytesPerSec(), properties.getSendBurstBytes());
+        IntConsumer beforeDatagram = pacer == null ? metrics::datagramSent : bytes -> {
+            pacer.accept(bytes);
+            metrics.datagramSent(bytes);
+        };
+        PacedSender sender = new PacedSender(channel,
+            new FragmentWriter(maxFragmentSize, properties.isChecksumEnabled()),
+            properties.getSendQueueCapacity(), beforeDatagram,
+            properties.isNackEnabled() ? properties.getRetransmitBufferSessions() : 0);
+        sender.setTracer(tracer);
+        sender.setThreadName("UdpService-Sender-" + index + "-" + address.getHostString() + ":" + address.getPort());
+        AdaptiveDatagramSizer datagramSizer = properties.isAdaptiveDatagramSize()
+            ? new AdaptiveDatagramSizer(properties.getMaxDatagramSize(),
+                properties.getAdaptiveMinDatagramSize(), properties.getAdaptiveMaxDatagramSize())
+            : null;
+        return new UpstreamEndpoint(address, channel, sender, datagramSizer);
+    }
+    
+    private void registerUpstreamGauges(MeterRegistry registry) {
+        for (UpstreamEndpoint endpoint : upstreams.getEndpoints()) {
+            String tag = endpoint.toString();
+            Gauge.builder("orca.udp.upstream.outstanding", endpoint, UpstreamEndpoint::getOutstanding)
+                .tag("endpoint", tag).register(registry);
+            Gauge.builder("orca.udp.upstream.latency", endpoint, e -> e.getLatencyEwmaNanos() / 1e9)
+                .description("Moving average of successful response latency").baseUnit("seconds")
+                .tag("endpoint", tag).register(registry);
+            Gauge.builder("orca.udp.upstream.available", endpoint, e -> e.isAvailable(System.nanoTime()) ? 1 : 0)
+                .tag("endpoint", tag).register(registry);
+            if (endpoint.getDatagramSizer() != null) {
+                Gauge.builder("orca.udp.datagram.size", endpoint.getDatagramSizer(),
+                        AdaptiveDatagramSizer::getDatagramSize)
+                    .description("Confirmed outbound datagram size").baseUnit("bytes")
+                    .tag("endpoint", tag).register(registry);
+            }
+        }
+    }
+    
+    private void bindListenChannel(DatagramChannel channel, boolean reusePort) throws IOException {
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 64 * 1024);
+        if (reusePort) {
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        channel.bind(new InetSocketAddress(
+            InetAddress.getByName(properties.getListenHost()), properties.getListenPort()));
     }
     
     @PreDestroy
     public void stop() {
         running = false;
-        if (listenSocket != null && !listenSocket.isClosed()) {
-            listenSocket.close();
+        for (ReceiveShard shard : shards) {
+            try {
+                shard.channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close listen channel", e);
+            }
         }
-        if (sendSocket != null && !sendSocket.isClosed()) {
-            sendSocket.close();
+        // 阻塞在receive中的线程退出后socket才真正关闭，等待它们结束，保证返回时监听端口已释放
+        for (ReceiveShard shard : shards) {
+            if (shard.thread != null) {
+                try {
+                    shard.thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        shards.clear();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+        if (upstreams != null) {
+            for (UpstreamEndpoint endpoint : upstreams.getEndpoints()) {
+                endpoint.getSender().shutdown();
+                try {
+                    endpoint.getChannel().close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close send channel to {}", endpoint, e);
+                }
+            }
         }
         executorService.shutdown();
-        reassembler.shutdown();
+        if (hedgeTimer != null) {
+            hedgeTimer.shutdownNow();
+        }
+        pendingRequests.shutdown();
         logger.info("UDP Service stopped");
     }
     
     /**
      * 发送UDP请求并等待响应
+     * 地形请求先查响应缓存，命中时直接返回，不经过网络；
+     * 与在途请求相同（仅requestId不同）的请求合并到同一次UDP交换
      */
     public CompletableFuture<UdpResponse> sendRequest(UdpRequest request) {
+        return sendRequest(request, DEFAULT_CLIENT);
+    }
+    
+    /**
+     * 同上；真正发往上游的请求受全局在途上限约束，超出时按client轮转排队
+     * （缓存命中与合并到在途请求的不占用许可）
+     * @param client 公平调度的单位，例如WebSocket会话ID
+     */
+    public CompletableFuture<UdpResponse> sendRequest(UdpRequest request, Object client) {
+        return sendRequest(request, client, null);
+    }
+    
+    /**
+     * 同上；地形请求的响应分片从头起连续到达的部分一旦包含完整的响应项，即交给itemListener，不必等到收齐。
+     * 缓存命中、或合并到其他在途请求时不会逐项回调，只由返回的future给出完整响应
+     * @param itemListener 为null时同 sendRequest(request, client)
+     */
+    public CompletableFuture<UdpResponse> sendRequest(UdpRequest request, Object client,
+                                                      TerrainItemListener itemListener) {
+        if (itemListener != null && request instanceof TerrainRequest) {
+            long requestId = request.getRequestId();
+            itemListeners.put(requestId, itemListener);
+            CompletableFuture<UdpResponse> future = dispatchRequest(request, client);
+            future.whenComplete((response, e) -> itemListeners.remove(requestId, itemListener));
+            return future;
+        }
+        return dispatchRequest(request, client);
+    }
+    
+    private CompletableFuture<UdpResponse> dispatchRequest(UdpRequest request, Object client) {
+        long startNanos = System.nanoTime();
+        String type = request.getClass().getSimpleName();
+        if (responseCache != null && request instanceof TerrainRequest) {
+            TerrainRequest terrainRequest = (TerrainRequest) request;
+            TerrainResponse cached = responseCache.get(terrainRequest);
+            if (cached != null) {
+                if (tracer.isTracedRequest(request.getRequestId())) {
+                    tracer.traceRequest(request.getRequestId(), "cache hit", type);
+                }
+                metrics.requestCompleted(type, true, null, System.nanoTime() - startNanos);
+                return CompletableFuture.completedFuture(cached);
+            }
+            // 先写缓存再结束合并，避免两者之间到达的相同请求再次发送
+            return recordLatency(coalescer.execute(request, r -> {
+                CompletableFuture<UdpResponse> sent = limitedSend(r, client);
+                CompletableFuture<UdpResponse> stored = sent.whenComplete((response, e) -> {
+                    if (response instanceof TerrainResponse) {
+                        responseCache.put(terrainRequest, (TerrainResponse) response);
+                    }
+                });
+                // 合并方放弃时取消要传到限流器，排队中的请求才会出队
+                stored.whenComplete((response, e) -> {
+                    if (stored.isCancelled()) {
+                        sent.cancel(false);
+                    }
+                });
+                return stored;
+            }), type, startNanos);
+        }
+        return recordLatency(coalescer.execute(request, r -> limitedSend(r, client)), type, startNanos);
+    }
+    
+    private CompletableFuture<UdpResponse> limitedSend(UdpRequest request, Object client) {
+        return limiter.submit(client, () -> send(request));
+    }
+    
+    private CompletableFuture<UdpResponse> recordLatency(CompletableFuture<UdpResponse> future,
+                                                         String type, long startNanos) {
+        future.whenComplete((response, e) -> metrics.requestCompleted(type, false, e, System.nanoTime() - startNanos));
+        return future;
+    }
+    
+    /**
+     * 校验和不匹配而被丢弃的分片数
+     */
+    public long getChecksumFailureCount() {
+        return metrics.getChecksumFailureCount();
+    }
+    
+    /**
+     * 逐包跟踪开关（供 PacketTraceEndpoint 在运行时调整）
+     */
+    public PacketTracer getPacketTracer() {
+        return tracer;
+    }
+    
+    /**
+     * 每个WebSocket会话的在途请求上限
+     */
+    public int getSessionMaxInFlightRequests() {
+        return properties.getSessionMaxInFlightRequests();
+    }
+    
+    public FairRequestLimiter getLimiter() {
+        return limiter;
+    }
+    
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+    
+    /**
+     * 响应缓存，未启用时返回null
+     */
+    public TerrainResponseCache getResponseCache() {
+        return responseCache;
+    }
+    
+    private CompletableFuture<UdpResponse> send(UdpRequest request) {
+        // 编码在调用线程上完成，写出交给上游的发送线程
+        byte[] encoded = request.encode();
+        long requestId = request.getRequestId();
+        UpstreamEndpoint endpoint = upstreams.select();
+        if (hedgePolicy == null) {
+            return sendAttempt(requestId, encoded, endpoint);
+        }
+        HedgedExchange exchange = new HedgedExchange(requestId, encoded, endpoint);
+        exchange.start();
+        return exchange.result;
+    }
+    
+    /**
+     * 向选定的上游发出一次交换
+     * @param endpoint 已由 upstreams.select 选定并计入在途数
+     */
+    private CompletableFuture<UdpResponse> sendAttempt(long requestId, byte[] encoded, UpstreamEndpoint endpoint) {
         CompletableFuture<UdpResponse> future = new CompletableFuture<>();
-        pendingRequests.put(request.getRequestId(), future);
+        pendingRequests.register(requestId, future);
         
-        try {
-            byte[] requestData = request.encode();
-            List<byte[]> fragments = splitter.split(requestData);
-            
-            for (byte[] fragment : fragments) {
-                DatagramPacket packet = new DatagramPacket(
-                    fragment, fragment.length, 
-                    sendAddress, properties.getSendPort());
-                sendSocket.send(packet);
-            }
-            
-            logger.debug("Sent UDP request: requestId={}, fragments={}", 
-                request.getRequestId(), fragments.size());
-        } catch (IOException e) {
-            logger.error("Failed to send UDP request", e);
-            pendingRequests.remove(request.getRequestId());
-            future.completeExceptionally(e);
+        // 请求结束（响应、超时或失败）后归还上游的在途计数并更新健康状态
+        long sentAt = System.nanoTime();
+        future.whenComplete((response, e) -> upstreams.requestCompleted(endpoint, System.nanoTime() - sentAt, e));
+        
+        ByteBuffer data = ByteBuffer.wrap(encoded);
+        int fragmentSize = maxFragmentSize;
+        AdaptiveDatagramSizer datagramSizer = endpoint.getDatagramSizer();
+        if (datagramSizer != null) {
+            int unfragmentedSize = data.remaining() + FragmentHeader.HEADER_SIZE;
+            int datagramSize = datagramSizer.nextDatagramSize(unfragmentedSize);
+            fragmentSize = datagramSize - FragmentHeader.HEADER_SIZE;
+            // 投递结果反馈给大小调节：收到响应说明该大小可用，超时视为丢失
+            int sentSize = Math.min(datagramSize, unfragmentedSize);
+            future.whenComplete((response, e) -> {
+                if (e == null) {
+                    datagramSizer.onDelivered(sentSize);
+                } else if (e instanceof TimeoutException) {
+                    datagramSizer.onLost(sentSize);
+                } else {
+                    datagramSizer.onFailed(sentSize);
+                }
+            });
+        }
+        boolean queued = endpoint.getSender().send(requestId, data, fragmentSize,
+            e -> failPending(requestId, future, e));
+        if (!queued) {
+            metrics.sendRejected();
+            logger.warn("Send queue full, rejecting UDP request: requestId={}, upstream={}", requestId, endpoint);
+            failPending(requestId, future, new IOException("UDP send queue full"));
         }
         
         return future;
     }
     
     /**
-     * 接收循环
+     * 对冲交换
+     * 首个请求发出后，超过对冲延迟仍未完成且有对冲额度时，以新的requestId再发一份（优先发往其他上游）。
+     * 先成功的一方的响应（改写回原requestId）作为结果，另一方被取消：其 future 留在等待表中作为标记直到超时，
+     * 随后到达的响应分片据此在重组前被丢弃（见 processReceivedPacket）。
+     * 一方失败时等待另一方，双方都失败才以失败结束
      */
-    private void receiveLoop() {
-        byte[] buffer = new byte[properties.getMaxDatagramSize()];
-        
+    private final class HedgedExchange {
+        private final long requestId;
+        private final byte[] encoded;
+        private final UpstreamEndpoint primaryEndpoint;
+        private final CompletableFuture<UdpResponse> result = new CompletableFuture<>();
+        private final long startNanos = System.nanoTime();
+        // 以下由this保护
+        private CompletableFuture<UdpResponse> primary;
+        private CompletableFuture<UdpResponse> hedge;
+        private ScheduledFuture<?> hedgeTask;
+
+        HedgedExchange(long requestId, byte[] encoded, UpstreamEndpoint primaryEndpoint) {
+            this.requestId = requestId;
+            this.encoded = encoded;
+            this.primaryEndpoint = primaryEndpoint;
+        }
+
+        void start() {
+            hedgePolicy.onRequest();
+            CompletableFuture<UdpResponse> attempt = sendAttempt(requestId, encoded, primaryEndpoint);
+            synchronized (this) {
+                primary = attempt;
+                if (!attempt.isDone()) {
+                    hedgeTask = hedgeTimer.schedule(this::sendHedge, hedgePolicy.getDelayNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            attempt.whenComplete((response, e) -> onAttemptCompleted(attempt, response, e, false));
+        }
+
+        private void sendHedge() {
+            CompletableFuture<UdpResponse> attempt;
+            synchronized (this) {
+                if (result.isDone() || primary.isDone() || hedge != null || !hedgePolicy.tryAcquire()) {
+                    return;
+                }
+                long hedgeId = hedgeIdGenerator.incrementAndGet();
+                byte[] copy = encoded.clone();
+                ByteOrderUtils.wrapLittleEndian(copy).putLong(REQUEST_ID_OFFSET, hedgeId);
+                attempt = sendAttempt(hedgeId, copy, upstreams.select(primaryEndpoint));
+                hedge = attempt;
+            }
+            metrics.hedgeSent();
+            attempt.whenComplete((response, e) -> onAttemptCompleted(attempt, response, e, true));
+        }
+
+        private void onAttemptCompleted(CompletableFuture<UdpResponse> attempt, UdpResponse response,
+                                        Throwable e, boolean isHedge) {
+            CompletableFuture<UdpResponse> other;
+            synchronized (this) {
+                if (result.isDone()) {
+                    return;
+                }
+                other = isHedge ? primary : hedge;
+                if (e == null) {
+                    if (hedgeTask != null) {
+                        hedgeTask.cancel(false);
+                    }
+                } else if (other != null && !other.isDone()) {
+                    return; // 等待另一方
+                } else if (!isHedge && hedgeTask != null) {
+                    hedgeTask.cancel(false); // 首个请求在对冲之前就失败了
+                }
+            }
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if (!isHedge) {
+                hedgePolicy.recordLatency(System.nanoTime() - startNanos);
+            } else {
+                metrics.hedgeWon();
+            }
+            result.complete(ResponseFactory.withRequestId(response, requestId));
+            if (other != null) {
+                other.cancel(false);
+            }
+        }
+    }
+    
+    /**
+     * 响应属于已被放弃的对冲交换一方
+     */
+    private boolean isAbandoned(long requestId) {
+        CompletableFuture<UdpResponse> future = pendingRequests.get(requestId);
+        return future != null && future.isCancelled();
+    }
+    
+    /**
+     * 发送失败：仅当表中仍是同一个请求时移除，避免误删相同requestId的新请求
+     */
+    private void failPending(long requestId, CompletableFuture<UdpResponse> future, Exception e) {
+        pendingRequests.remove(requestId, future);
+        future.completeExceptionally(e);
+    }
+    
+    /**
+     * 向上游请求重发缺失的分片（在处理通道线程上调用）
+     * 接收路径不记录分片来自哪个上游，NACK发给所有上游，不认识该会话的上游自行忽略
+     */
+    private void sendNack(long sessionId, int totalPackets, int[] missingPackets) {
+        ByteBuffer nack = ByteBuffer.allocate(FragmentHeader.HEADER_SIZE + Math.min(missingPackets.length * 2,
+            maxFragmentSize)).order(ByteOrder.LITTLE_ENDIAN);
+        int count = NackMessage.encode(nack, sessionId, totalPackets, missingPackets);
+        nack.flip();
+        for (UpstreamEndpoint endpoint : upstreams.getEndpoints()) {
+            if (endpoint.getSender().sendDatagram(nack.duplicate())) {
+                logger.debug("Sent NACK for session {} to {}: {} of {} fragments missing",
+                    sessionId, endpoint, count, totalPackets);
+            } else {
+                logger.warn("Send queue full, dropping NACK for session {} to {}", sessionId, endpoint);
+            }
+        }
+    }
+    
+    /**
+     * 接收循环：只读取会话ID，按会话把缓冲区投递到对应的处理通道，
+     * 头部解析与重组都在通道线程上完成
+     */
+    private void receiveLoop(ReceiveShard shard) {
         while (running) {
+            ByteBuffer buffer = bufferPool.acquire();
+            boolean dispatched = false;
             try {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                listenSocket.receive(packet);
+                SocketAddress source = shard.channel.receive(buffer);
+                buffer.flip();
+                if (reassemblyBudget != null) {
+                    DatagramBufferPool.setSource(buffer, DatagramBufferPool.sourceKey(source));
+                }
+                metrics.datagramReceived(buffer.remaining());
                 
-                executorService.execute(() -> processReceivedPacket(packet));
-            } catch (SocketException e) {
+                // 基础校验：如果总长度连分片头（15字节）都不到，直接丢弃（处理通道不再重复检查）
+                if (buffer.remaining() < FragmentHeader.HEADER_SIZE) {
+                    metrics.runt();
+                    if (runtLog.tryAcquire()) {
+                        logger.warn("Dropping packets shorter than the fragment header, e.g. {} bytes from {} "
+                            + "({} more since last report)", buffer.remaining(), source, runtLog.drainSuppressed());
+                    }
+                    continue;
+                }
+                dispatched = dispatcher.dispatch(FragmentHeader.peekSessionId(buffer), buffer);
+                if (!dispatched) {
+                    // 背压丢包只计数：过载时每包一条日志只会让接收线程更慢
+                    metrics.laneFull();
+                    if (laneFullLog.tryAcquire()) {
+                        logger.warn("Processing lane full, dropping packets ({} more since last report)",
+                            laneFullLog.drainSuppressed());
+                    }
+                }
+            } catch (ClosedChannelException e) {
                 if (running) {
                     logger.error("Socket error in receive loop", e);
                 }
                 break;
             } catch (IOException e) {
                 logger.error("IO error in receive loop", e);
+            } finally {
+                // 投递成功后由通道线程在重组器消费完载荷时归还
+                if (!dispatched) {
+                    bufferPool.release(buffer);
+                }
             }
         }
     }
     
     /**
-     * 处理接收到的数据包
+     * 处理接收到的数据包（在处理通道线程上执行，reassembler为该通道独占）
+     * packet为小端序缓冲区，position到limit之间为完整数据报（接收循环已滤掉不足分片头长度的数据报）；
+     * 直接在原缓冲区上解析，不做拷贝
      */
-    private void processReceivedPacket(DatagramPacket packet) {
+    private void processReceivedPacket(ByteBuffer packet, FragmentReassembler reassembler) {
         try {
-            // [1] 申请新内存：创建一个与实际接收数据长度一致的字节数组
-            byte[] data = new byte[packet.getLength()];
-            // [2] 数据快照：将 DatagramPacket 中的数据（可能来自复用的缓存池）复制到新数组 data 中
-            // 这一步非常关键，因为 UDP 接收循环通常复用同一个 byte[] buffer，如果不复制，
-            // 后续数据到达会覆盖当前处理的数据（线程安全问题）
-            System.arraycopy(packet.getData(), packet.getOffset(), data, 0, packet.getLength());
+            // 解码头部，position前移到载荷起始位置
+            int headerStart = packet.position();
+            FragmentHeader header = FragmentHeader.decode(packet);
+            // 逐包日志只经过跟踪器：关闭时只有一次volatile读，与日志级别无关
+            if (tracer.isActive()) {
+                tracer.onPacket(header, packet, headerStart);
+            }
+
+            // 安全校验：确保报文剩余长度足够 header 声明的 payload 长度（防止越界异常）
+            if (header.getCurrentSize() > packet.remaining()) {
+                metrics.invalidHeader();
+                if (invalidPacketLog.tryAcquire()) {
+                    logger.warn("Invalid packet size: header says {} bytes of data, but packet only has {} bytes "
+                        + "remaining ({} more invalid packets since last report)",
+                        header.getCurrentSize(), packet.remaining(), invalidPacketLog.drainSuppressed());
+                }
+                return;
+            }
+            // 将limit收窄到载荷末尾，重组器直接从池化缓冲区读取载荷
+            packet.limit(packet.position() + header.getCurrentSize());
             
-            logger.info("Received data (first 16 bytes): {}", java.util.HexFormat.of().formatHex(data, 0, Math.min(data.length, 16)));
+            // 带校验和的分片在进入重组缓冲区之前校验，损坏的分片直接丢弃
+            if (header.hasChecksum() && !FragmentChecksum.verify(packet, headerStart, header.getChecksum())) {
+                metrics.checksumMismatch();
+                if (checksumLog.tryAcquire()) {
+                    logger.warn("Checksum mismatch, dropping fragment {}/{} of session {} ({} more since last report)",
+                        header.getCurrentPacket(), header.getTotalPackets(), header.getSessionId(),
+                        checksumLog.drainSuppressed());
+                }
+                return;
+            }
             
-            // [3] 基础校验：如果总长度连分片头（15字节）都不到，直接丢弃
-            if (data.length < FragmentHeader.HEADER_SIZE) {
-                logger.warn("Received packet too short: {}", data.length);
+            // 上游对我方请求的NACK：只重发缺失的分片（只有发出该会话的上游的重发缓冲区里有它）
+            if (header.isNack()) {
+                if (properties.isNackEnabled()) {
+                    int[] missing = NackMessage.decodeMissing(packet);
+                    for (UpstreamEndpoint endpoint : upstreams.getEndpoints()) {
+                        endpoint.getSender().retransmit(header.getSessionId(), missing);
+                    }
+                }
                 return;
             }
-            // 解析分片头
-            // [4] 提取头部（低效点）：又申请了 15 字节的新数组，再次发生内存复制
-            byte[] headerBytes = new byte[FragmentHeader.HEADER_SIZE];
-            System.arraycopy(data, 0, headerBytes, 0, FragmentHeader.HEADER_SIZE);
-            // [5] 解码头部：反序列化为 Java 对象
-            FragmentHeader header = FragmentHeader.decode(headerBytes);
-
-            // [6] 安全校验：确保报文剩余长度足够 header 声明的 payload 长度（防止越界异常）
-            if (FragmentHeader.HEADER_SIZE + header.getCurrentSize() > data.length) {
-                logger.error("Invalid packet size: header says {} bytes of data, but packet only has {} bytes remaining",
-                    header.getCurrentSize(), data.length - FragmentHeader.HEADER_SIZE);
+            
+            // 已被放弃的对冲一方的响应：首个分片中带有requestId，据此放弃整个会话，不再重组
+            if (hedgePolicy != null && header.getCurrentPacket() == 0
+                    && packet.remaining() >= REQUEST_ID_OFFSET + Long.BYTES
+                    && isAbandoned(packet.getLong(packet.position() + REQUEST_ID_OFFSET))) {
+                reassembler.discard(header);
                 return;
             }
-            // [7] 提取载荷（低效点）：又申请了 payload 长度的新数组，第三次发生内存复制
-            byte[] fragmentData = new byte[header.getCurrentSize()];
-            System.arraycopy(data, FragmentHeader.HEADER_SIZE, fragmentData, 0, header.getCurrentSize());
             
-            //[8] 重组逻辑：将头和数据交给重组器
-            byte[] completeData = reassembler.addFragment(header, fragmentData);
+            // 来源地址键由接收循环记录在池化缓冲区的尾部，只在限制重组内存时需要
+            long source = reassemblyBudget != null ? DatagramBufferPool.getSource(packet) : 0;
+            ByteBuffer completeData = reassembler.addFragment(header, packet, source);
             
             if (completeData != null) {
-                // 完整数据已收齐，解析响应
-                processCompleteResponse(completeData);
+                // 完整数据已收齐，交给工作线程解析响应，避免阻塞接收线程
+                executorService.execute(() -> processCompleteResponse(completeData));
             }
         } catch (Exception e) {
-            logger.error("Error processing received packet", e);
+            metrics.invalidHeader();
+            if (invalidPacketLog.tryAcquire()) {
+                logger.warn("Error processing received packet ({} more invalid packets since last report)",
+                    invalidPacketLog.drainSuppressed(), e);
+            }
+        }
+    }
+    
+    /**
+     * 会话的连续前缀首次增长（在处理通道线程上调用）：只有要求逐项推送的地形请求才继续跟踪该会话
+     */
+    private FragmentReassembler.PrefixListener onResponsePrefix(long sessionId, ByteBuffer prefix) {
+        if (prefix.remaining() < TerrainResponseView.HEADER_SIZE
+                || Short.toUnsignedInt(prefix.getShort(0)) != TerrainResponse.TYPE) {
+            return null;
+        }
+        TerrainItemListener listener = itemListeners.get(prefix.getLong(REQUEST_ID_OFFSET));
+        if (listener == null) {
+            return null;
+        }
+        return new ItemStreamDecoder(listener).onPrefix(sessionId, prefix);
+    }
+    
+    /**
+     * 一个会话的增量解码状态，由重组器在处理通道线程上回调
+     */
+    private static final class ItemStreamDecoder implements FragmentReassembler.PrefixListener {
+        private final TerrainItemListener listener;
+        private final TerrainItemDecoder decoder = new TerrainItemDecoder();
+
+        ItemStreamDecoder(TerrainItemListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public FragmentReassembler.PrefixListener onPrefix(long sessionId, ByteBuffer prefix) {
+            try {
+                int offset = decoder.getDecodedCount();
+                List<TerrainResponse.ResponseItem> items = decoder.decode(prefix);
+                if (!items.isEmpty()) {
+                    listener.onItems(decoder.getCount(), offset, items);
+                }
+            } catch (Exception e) {
+                // 不影响重组，完整响应仍会正常返回
+                logger.warn("Stopped streaming items of session {}: {}", sessionId, e.toString());
+                return null;
+            }
+            return decoder.isFinished() ? null : this;
         }
     }
     
     /**
      * 处理完整的响应数据
      */
-    private void processCompleteResponse(byte[] data) {
+    private void processCompleteResponse(ByteBuffer data) {
         try {
             UdpResponse response = ResponseFactory.decode(data);
             CompletableFuture<UdpResponse> future = pendingRequests.remove(response.getRequestId());
             
-            if (future != null) {
+            if (future != null && future.isCancelled()) {
+                logger.debug("Dropping response to abandoned hedged request: requestId={}", response.getRequestId());
+            } else if (future != null) {
                 future.complete(response);
-                if (response instanceof TerrainResponse) {
-                    logger.debug("Received UDP response: requestId={}, count={}", 
-                        response.getRequestId(), ((TerrainResponse)response).getCount());
-                } else {
-                    logger.debug("Received UDP response: requestId={}, type={}", 
-                        response.getRequestId(), response.getType());
+                if (tracer.isTracedRequest(response.getRequestId())) {
+                    tracer.traceRequest(response.getRequestId(), "response received",
+                        response instanceof TerrainResponse
+                            ? "count=" + ((TerrainResponse) response).getCount()
+                            : "type=" + response.getType());
                 }
             } else {
                 logger.warn("No pending request found for response: requestId={}", 
                     response.getRequestId());
             }
         } catch (Exception e) {
+            metrics.responseDecodeFailed();
             logger.error("Error decoding response", e);
         }
     }
+    
+    /**
+     * 接收分片：独立的监听channel与接收线程
+     */
+    private static class ReceiveShard {
+        private final int index;
+        private final DatagramChannel channel;
+        private Thread thread;
+        
+        ReceiveShard(int index, DatagramChannel channel) {
+            this.index = index;
+            this.channel = channel;
+        }
+    }
 }
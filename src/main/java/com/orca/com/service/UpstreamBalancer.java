@@ -0,0 +1,109 @@
+package com.orca.com.service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上游负载均衡策略：从当前可用的上游中为一个请求选择一个
+ */
+public interface UpstreamBalancer {
+    String ROUND_ROBIN = "round-robin";
+    String LEAST_OUTSTANDING = "least-outstanding";
+    String LATENCY = "latency";
+
+    /**
+     * @param candidates 非空，可由多个线程并发调用
+     */
+    UpstreamEndpoint select(List<UpstreamEndpoint> candidates);
+
+    /**
+     * 按名称创建：round-robin、least-outstanding、latency
+     */
+    static UpstreamBalancer create(String name) {
+        if (name == null || ROUND_ROBIN.equalsIgnoreCase(name)) {
+            return new RoundRobin();
+        }
+        if (LEAST_OUTSTANDING.equalsIgnoreCase(name)) {
+            return new LeastOutstanding();
+        }
+        if (LATENCY.equalsIgnoreCase(name)) {
+            return new LatencyWeighted();
+        }
+        throw new IllegalArgumentException("Unknown upstream balancer: " + name);
+    }
+
+    /**
+     * 轮询
+     */
+    class RoundRobin implements UpstreamBalancer {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public UpstreamEndpoint select(List<UpstreamEndpoint> candidates) {
+            return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+        }
+    }
+
+    /**
+     * 在途请求最少者；并列时从轮转的起点开始比较，避免总是落到第一个
+     */
+    class LeastOutstanding implements UpstreamBalancer {
+        private final AtomicInteger start = new AtomicInteger();
+
+        @Override
+        public UpstreamEndpoint select(List<UpstreamEndpoint> candidates) {
+            int size = candidates.size();
+            int offset = Math.floorMod(start.getAndIncrement(), size);
+            UpstreamEndpoint best = null;
+            int bestOutstanding = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                UpstreamEndpoint endpoint = candidates.get((offset + i) % size);
+                int outstanding = endpoint.getOutstanding();
+                if (outstanding < bestOutstanding) {
+                    best = endpoint;
+                    bestOutstanding = outstanding;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * 按响应延迟加权随机：权重与延迟的指数加权平均成反比；
+     * 还没有延迟样本的上游按当前最快者的权重对待，使其尽快得到样本
+     */
+    class LatencyWeighted implements UpstreamBalancer {
+        @Override
+        public UpstreamEndpoint select(List<UpstreamEndpoint> candidates) {
+            int size = candidates.size();
+            if (size == 1) {
+                return candidates.get(0);
+            }
+            long fastest = Long.MAX_VALUE;
+            for (UpstreamEndpoint endpoint : candidates) {
+                long latency = endpoint.getLatencyEwmaNanos();
+                if (latency > 0 && latency < fastest) {
+                    fastest = latency;
+                }
+            }
+            if (fastest == Long.MAX_VALUE) {
+                return candidates.get(ThreadLocalRandom.current().nextInt(size));
+            }
+            double[] cumulative = new double[size];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                long latency = candidates.get(i).getLatencyEwmaNanos();
+                total += (double) fastest / (latency > 0 ? latency : fastest);
+                cumulative[i] = total;
+            }
+            double pick = ThreadLocalRandom.current().nextDouble(total);
+            for (int i = 0; i < size - 1; i++) {
+                if (pick < cumulative[i]) {
+                    return candidates.get(i);
+                }
+            }
+            return candidates.get(size - 1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.orca.com.service;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个上游后端：独立的已连接发送channel、发送线程与数据报大小调节，以及负载均衡用的统计
+ * （在途请求数、响应延迟的指数加权平均、连续超时次数、摘除截止时间）
+ */
+public class UpstreamEndpoint {
+    private static final int EWMA_WEIGHT = 8; // 新样本占 1/8
+
+    private final InetSocketAddress address;
+    private final DatagramChannel channel;
+    private final PacedSender sender;
+    private final AdaptiveDatagramSizer datagramSizer; // 未启用自适应分片大小时为null
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+    // 多个线程并发更新时可能丢失个别样本，作为均衡依据足够
+    private volatile long latencyEwmaNanos;   // 还没有样本时为0
+    private volatile long ejectedUntil;       // System.nanoTime()，未摘除时为0
+
+    /**
+     * @param channel 已连接到address，由sender独占写
+     */
+    public UpstreamEndpoint(InetSocketAddress address, DatagramChannel channel, PacedSender sender,
+                            AdaptiveDatagramSizer datagramSizer) {
+        this.address = address;
+        this.channel = channel;
+        this.sender = sender;
+        this.datagramSizer = datagramSizer;
+    }
+
+    /**
+     * 解析 host:port（IPv6地址写作 [addr]:port）
+     */
+    public static InetSocketAddress parseAddress(String hostAndPort) throws UnknownHostException {
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon <= 0 || colon == hostAndPort.length() - 1) {
+            throw new IllegalArgumentException("Upstream must be host:port, got " + hostAndPort);
+        }
+        String host = hostAndPort.substring(0, colon).trim();
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        int port = Integer.parseInt(hostAndPort.substring(colon + 1).trim());
+        return new InetSocketAddress(InetAddress.getByName(host), port);
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public DatagramChannel getChannel() {
+        return channel;
+    }
+
+    public PacedSender getSender() {
+        return sender;
+    }
+
+    /**
+     * 该上游的数据报大小调节，未启用时返回null
+     */
+    public AdaptiveDatagramSizer getDatagramSizer() {
+        return datagramSizer;
+    }
+
+    void requestSent() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @return 请求成功时返回0，超时返回连续超时次数，其他失败返回-1（不计入健康状态）
+     */
+    int requestCompleted(long latencyNanos, boolean success, boolean timeout) {
+        outstanding.decrementAndGet();
+        if (success) {
+            long ewma = latencyEwmaNanos;
+            latencyEwmaNanos = ewma == 0 ? latencyNanos : ewma + (latencyNanos - ewma) / EWMA_WEIGHT;
+            consecutiveTimeouts.set(0);
+            return 0;
+        }
+        return timeout ? consecutiveTimeouts.incrementAndGet() : -1;
+    }
+
+    void eject(long untilNanos) {
+        consecutiveTimeouts.set(0);
+        ejectedUntil = untilNanos;
+    }
+
+    /**
+     * 当前是否可用（未被摘除或摘除已到期）
+     */
+    public boolean isAvailable(long nowNanos) {
+        long until = ejectedUntil;
+        return until == 0 || nowNanos - until >= 0;
+    }
+
+    /**
+     * 已发出尚未完成的请求数
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * 成功响应延迟的指数加权平均，还没有样本时为0
+     */
+    public long getLatencyEwmaNanos() {
+        return latencyEwmaNanos;
+    }
+
+    @Override
+    public String toString() {
+        return address.getHostString() + ":" + address.getPort();
+    }
+}
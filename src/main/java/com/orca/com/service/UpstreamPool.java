@@ -0,0 +1,97 @@
+package com.orca.com.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 上游后端池
+ * 每个请求由负载均衡策略从可用的上游中选择一个；连续超时达到阈值的上游被暂时摘除，
+ * 到期后自动恢复参与选择。全部上游都被摘除时不再过滤（宁可尝试也不全部拒绝）
+ */
+public class UpstreamPool {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamPool.class);
+
+    private final List<UpstreamEndpoint> endpoints;
+    private final UpstreamBalancer balancer;
+    private final int ejectAfterTimeouts;
+    private final long ejectNanos;
+
+    /**
+     * @param ejectAfterTimeouts 连续超时多少次后摘除，不大于0时不摘除
+     * @param ejectMs 摘除时长
+     */
+    public UpstreamPool(List<UpstreamEndpoint> endpoints, UpstreamBalancer balancer,
+                        int ejectAfterTimeouts, long ejectMs) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one upstream endpoint is required");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.balancer = balancer;
+        this.ejectAfterTimeouts = ejectAfterTimeouts;
+        this.ejectNanos = TimeUnit.MILLISECONDS.toNanos(ejectMs);
+    }
+
+    /**
+     * 为一个请求选择上游，并计入其在途请求数；请求结束后必须调用 requestCompleted
+     */
+    public UpstreamEndpoint select() {
+        return select(null);
+    }
+
+    /**
+     * 同上，尽量避开avoid（例如对冲请求避开首个请求所在的上游），没有其他可用上游时仍可能选中它
+     */
+    public UpstreamEndpoint select(UpstreamEndpoint avoid) {
+        UpstreamEndpoint endpoint = endpoints.size() == 1 ? endpoints.get(0) : balancer.select(available(avoid));
+        endpoint.requestSent();
+        return endpoint;
+    }
+
+    private List<UpstreamEndpoint> available(UpstreamEndpoint avoid) {
+        long now = System.nanoTime();
+        int count = 0;
+        for (UpstreamEndpoint endpoint : endpoints) {
+            if (endpoint != avoid && endpoint.isAvailable(now)) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return avoid != null ? available(null) : endpoints;
+        }
+        if (count == endpoints.size()) {
+            return endpoints;
+        }
+        List<UpstreamEndpoint> available = new ArrayList<>(count);
+        for (UpstreamEndpoint endpoint : endpoints) {
+            if (endpoint != avoid && endpoint.isAvailable(now)) {
+                available.add(endpoint);
+            }
+        }
+        return available;
+    }
+
+    /**
+     * 记录请求结果：成功时更新延迟，超时计入健康状态，其他失败（发送队列满等本地原因）只减少在途数
+     * @param failure 成功时为null
+     */
+    public void requestCompleted(UpstreamEndpoint endpoint, long latencyNanos, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+            ? failure.getCause() : failure;
+        int timeouts = endpoint.requestCompleted(latencyNanos, failure == null, cause instanceof TimeoutException);
+        if (ejectAfterTimeouts > 0 && timeouts >= ejectAfterTimeouts && endpoints.size() > 1) {
+            endpoint.eject(System.nanoTime() + ejectNanos);
+            logger.warn("Upstream {} ejected for {} ms after {} consecutive timeouts",
+                endpoint, TimeUnit.NANOSECONDS.toMillis(ejectNanos), timeouts);
+        }
+    }
+
+    public List<UpstreamEndpoint> getEndpoints() {
+        return endpoints;
+    }
+}
@@ -0,0 +1,72 @@
+package com.orca.com.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工作线程执行器
+ * fixed：固定数量的平台线程；virtual：每个任务一个虚拟线程，无需调整线程池大小。
+ * 项目基线仍为JDK 17，虚拟线程执行器在运行时按需查找（JDK 21+），不可用时退回 fixed
+ */
+public final class WorkerExecutors {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerExecutors.class);
+
+    public static final String FIXED = "fixed";
+    public static final String VIRTUAL = "virtual";
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK = findVirtualThreadPerTask();
+
+    private WorkerExecutors() {
+    }
+
+    private static MethodHandle findVirtualThreadPerTask() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前运行时是否支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK != null;
+    }
+
+    /**
+     * @param mode fixed 或 virtual，为null时按 fixed
+     * @param threads fixed 模式的线程数
+     * @param name fixed 模式的线程名前缀
+     */
+    public static ExecutorService create(String mode, int threads, String name) {
+        if (VIRTUAL.equalsIgnoreCase(mode)) {
+            if (isVirtualThreadSupported()) {
+                try {
+                    return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK.invokeExact();
+                } catch (Throwable e) {
+                    logger.warn("Failed to create virtual thread executor, using {} platform threads", threads, e);
+                }
+            } else {
+                logger.warn("Virtual threads require Java 21+ (running {}), using {} platform threads",
+                    Runtime.version().feature(), threads);
+            }
+        } else if (mode != null && !FIXED.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown worker executor: " + mode);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
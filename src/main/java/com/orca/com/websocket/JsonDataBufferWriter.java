@@ -0,0 +1,68 @@
+package com.orca.com.websocket;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.TerrainResponseView;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * 把响应对象以流式JSON直接写入 DataBuffer
+ * JsonGenerator 按UTF-8编码写入会话缓冲区工厂分配的（池化）缓冲区，不生成中间String；
+ * TerrainData 由 TerrainDataSerializer 从响应视图逐项写出，地形数据分块Base64编码
+ */
+public class JsonDataBufferWriter {
+    private static final int MIN_BUFFER_SIZE = 256;
+    private static final int ITEM_JSON_SIZE = 192; // 单个响应项除地形数据外的JSON长度上限估计
+
+    private final ObjectMapper objectMapper;
+
+    public JsonDataBufferWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 序列化到新分配的缓冲区，缓冲区按需扩容；失败时缓冲区已释放
+     * @param sizeHint 预估的JSON字节数，用于初始分配
+     */
+    public DataBuffer write(Object value, DataBufferFactory bufferFactory, int sizeHint) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(Math.max(MIN_BUFFER_SIZE, sizeHint));
+        try (OutputStream out = buffer.asOutputStream();
+             JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            objectMapper.writeValue(gen, value);
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+        return buffer;
+    }
+
+    /**
+     * 预估地形响应的JSON字节数：地形数据按Base64膨胀4/3计算
+     */
+    public static int estimateSize(TerrainResponse response) {
+        TerrainResponseView view = response.getView();
+        long size = MIN_BUFFER_SIZE;
+        if (view != null) {
+            long terrainBytes = view.getBuffer().limit() - TerrainResponseView.HEADER_SIZE
+                - (long) view.size() * TerrainResponseView.ITEM_HEADER_SIZE;
+            size += (long) view.size() * ITEM_JSON_SIZE + (terrainBytes + 2) / 3 * 4;
+        } else {
+            for (TerrainResponse.ResponseItem item : response.getItems()) {
+                int terrainLength = item.getTerrainData() != null ? item.getTerrainData().length : 0;
+                size += ITEM_JSON_SIZE + (terrainLength + 2) / 3 * 4;
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+}
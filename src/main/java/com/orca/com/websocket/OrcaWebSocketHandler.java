@@ -7,55 +7,126 @@ import com.orca.com.protocol.EvaluationConfigRequest;
 import com.orca.com.protocol.UdpResponse;
 import com.orca.com.protocol.TerrainResponse;
 import com.orca.com.protocol.EvaluationConfigResponse;
+import com.orca.com.protocol.RequestFactory;
+import com.orca.com.protocol.TerrainResponseView;
+import com.orca.com.service.TerrainItemListener;
 import com.orca.com.service.UdpService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
+import org.reactivestreams.Publisher;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.HandshakeInfo;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * WebSocket处理器
+ * 默认收发JSON文本帧；握手时协商子协议 orca.binary.v1（或URL参数 format=binary）后，
+ * 还可收发二进制帧：请求帧为 TerrainRequest/EvaluationConfigRequest 的小端序编码，
+ * 成功响应帧为UDP响应的原始报文（重组后的载荷直接转发），错误仍以JSON文本帧返回。
+ * 同一会话内的请求流水线处理：最多 session-max-in-flight-requests 个同时在途，超出后不再读取新帧
+ * （背压传回客户端）；各请求完成即返回，不保证顺序，由响应中的 requestId 对应。
+ * 会话之间由 UdpService 的全局在途上限按会话轮转排队。
+ * JSON地形请求带 "stream": true 时，响应项随分片到达逐批以中间帧（partial=true）推送，
+ * 最后一帧（partial=false）只包含此前未推送的项；各帧的 data.offset 为其第一项的序号
  */
 @Component
 public class OrcaWebSocketHandler implements WebSocketHandler {
     private static final Logger logger = LoggerFactory.getLogger(OrcaWebSocketHandler.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final AtomicLong requestIdGenerator = new AtomicLong(1);
+    private static final JsonDataBufferWriter jsonWriter = new JsonDataBufferWriter(objectMapper);
+
+    public static final String BINARY_SUBPROTOCOL = "orca.binary.v1";
+    private static final String FORMAT_PARAM = "format";
+    private static final String FORMAT_BINARY = "binary";
     
     private final UdpService udpService;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final Counter sessionsOpened;
+    private final Counter messagesIn;
     
     public OrcaWebSocketHandler(UdpService udpService) {
+        this(udpService, new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public OrcaWebSocketHandler(UdpService udpService, MeterRegistry meterRegistry) {
         this.udpService = udpService;
+        Gauge.builder("orca.websocket.sessions.active", activeSessions, AtomicInteger::get)
+            .description("Open WebSocket sessions").register(meterRegistry);
+        this.sessionsOpened = Counter.builder("orca.websocket.sessions.opened").register(meterRegistry);
+        this.messagesIn = Counter.builder("orca.websocket.messages").tag("direction", "in").register(meterRegistry);
+    }
+    
+    /**
+     * 当前打开的WebSocket会话数
+     */
+    public int getActiveSessionCount() {
+        return activeSessions.get();
+    }
+    
+    @Override
+    public List<String> getSubProtocols() {
+        return Collections.singletonList(BINARY_SUBPROTOCOL);
     }
     
     @Override
     public Mono<Void> handle(WebSocketSession session) {
-        logger.info("WebSocket connection established: {}", session.getId());
+        boolean binaryMode = isBinaryMode(session.getHandshakeInfo());
+        logger.info("WebSocket connection established: {} (binary={})", session.getId(), binaryMode);
+        sessionsOpened.increment();
+        activeSessions.incrementAndGet();
+        int maxInFlight = udpService.getSessionMaxInFlightRequests();
         
         return session.send(
             session.receive()
-                .map(WebSocketMessage::getPayloadAsText)
-                .flatMap(message -> processMessage(session, message))
-                .map(session::textMessage)
+                .flatMap(message -> {
+                    messagesIn.increment();
+                    if (message.getType() == WebSocketMessage.Type.BINARY) {
+                        return processBinaryMessage(session, message, binaryMode);
+                    }
+                    return processMessage(session, message.getPayloadAsText());
+                }, maxInFlight > 0 ? maxInFlight : Queues.SMALL_BUFFER_SIZE)
+                .doOnDiscard(WebSocketMessage.class, WebSocketMessage::release)
         ).then()
-        .doOnTerminate(() -> logger.info("WebSocket connection closed: {}", session.getId()));
+        .doFinally(signal -> {
+            activeSessions.decrementAndGet();
+            logger.info("WebSocket connection closed: {}", session.getId());
+        });
     }
     
-    private Mono<String> processMessage(WebSocketSession session, String message) {
+    private Publisher<WebSocketMessage> processMessage(WebSocketSession session, String message) {
         try {
             WebSocketRequest request = objectMapper.readValue(message, WebSocketRequest.class);
             
             // 验证请求类型
             if (request.getType() < 1 || request.getType() > 10) {
-                return Mono.just(createErrorResponse(request.getType(), 
+                return Mono.just(session.textMessage(createErrorResponse(request.getType(), 
                     request.getRequestId() != null ? request.getRequestId() : 0,
-                    "Invalid request type: " + request.getType()));
+                    "Invalid request type: " + request.getType())));
             }
             
             // 生成或使用请求ID
@@ -64,29 +135,33 @@ public class OrcaWebSocketHandler implements WebSocketHandler {
             
             // 转换为UDP请求
             UdpRequest udpRequest = convertToUdpRequest(request, requestId);
+            if (Boolean.TRUE.equals(request.getStream()) && udpRequest instanceof TerrainRequest) {
+                return processStreamingRequest(session, request.getType(), udpRequest);
+            }
             
             // 发送UDP请求并等待响应
-            return Mono.fromFuture(udpService.sendRequest(udpRequest))
+            return Mono.fromFuture(udpService.sendRequest(udpRequest, session.getId()))
                 .map(udpResponse -> {
                     if (udpResponse instanceof TerrainResponse) {
+                        TerrainResponse terrainResponse = (TerrainResponse) udpResponse;
                         WebSocketResponse<WebSocketResponse.TerrainData> wsResponse = WebSocketResponse.fromUdpResponse(
-                            (TerrainResponse) udpResponse, request.getType());
-                        try {
-                            return objectMapper.writeValueAsString(wsResponse);
-                        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
-                            throw new RuntimeException(e);
-                        }
+                            terrainResponse, request.getType());
+                        // 直接流式写入会话缓冲区，不生成中间String
+                        DataBuffer payload = jsonWriter.write(wsResponse, session.bufferFactory(),
+                            JsonDataBufferWriter.estimateSize(terrainResponse));
+                        return new WebSocketMessage(WebSocketMessage.Type.TEXT, payload);
                     } else if (udpResponse instanceof EvaluationConfigResponse) {
                         WebSocketResponse<WebSocketResponse.EvaluationConfigData> wsResponse = WebSocketResponse.fromEvaluationConfigResponse(
                             (EvaluationConfigResponse) udpResponse, request.getType());
                         try {
-                            return objectMapper.writeValueAsString(wsResponse);
+                            return session.textMessage(objectMapper.writeValueAsString(wsResponse));
                         } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
                             throw new RuntimeException(e);
                         }
                     } else {
                         // 处理其他类型的响应或抛出错误
-                        return createErrorResponse(request.getType(), requestId, "Unknown response type");
+                        return session.textMessage(
+                            createErrorResponse(request.getType(), requestId, "Unknown response type"));
                     }
                 })
                 .onErrorResume(e -> {
@@ -94,7 +169,7 @@ public class OrcaWebSocketHandler implements WebSocketHandler {
                     WebSocketResponse<Void> errorResponse = WebSocketResponse.error(
                         request.getType(), requestId, e.getMessage());
                     try {
-                        return Mono.just(objectMapper.writeValueAsString(errorResponse));
+                        return Mono.just(session.textMessage(objectMapper.writeValueAsString(errorResponse)));
                     } catch (Exception ex) {
                         return Mono.error(ex);
                     }
@@ -105,15 +180,161 @@ public class OrcaWebSocketHandler implements WebSocketHandler {
                     WebSocketResponse<Void> errorResponse = WebSocketResponse.error(
                         request.getType(), requestId, "Request timeout");
                     try {
-                        return Mono.just(objectMapper.writeValueAsString(errorResponse));
+                        return Mono.just(session.textMessage(objectMapper.writeValueAsString(errorResponse)));
                     } catch (Exception ex) {
                         return Mono.error(ex);
                     }
                 });
         } catch (Exception e) {
             logger.error("Error parsing WebSocket message", e);
-            return Mono.just(createErrorResponse(0, 0, "Invalid request format: " + e.getMessage()));
+            return Mono.just(session.textMessage(createErrorResponse(0, 0, "Invalid request format: " + e.getMessage())));
+        }
+    }
+    
+    /**
+     * 逐项推送的地形请求：中间帧由接收处理通道线程发出，切换到并行调度器上序列化，不占用接收线程。
+     * 与非逐项请求一样，整个请求（而不是帧间隔）限时30秒，超时后发出错误帧并取消请求
+     */
+    private Flux<WebSocketMessage> processStreamingRequest(WebSocketSession session, int requestType,
+                                                           UdpRequest udpRequest) {
+        long requestId = udpRequest.getRequestId();
+        ItemStream stream = new ItemStream(requestType, requestId);
+        CompletableFuture<UdpResponse> future = udpService.sendRequest(udpRequest, session.getId(), stream);
+        future.whenComplete(stream::complete);
+        Disposable deadline = Schedulers.parallel().schedule(() -> {
+            if (stream.expire()) {
+                future.cancel(false);
+            }
+        }, 30, TimeUnit.SECONDS);
+        future.whenComplete((response, e) -> deadline.dispose());
+        return stream.frames()
+            .publishOn(Schedulers.parallel())
+            .map(frame -> new WebSocketMessage(WebSocketMessage.Type.TEXT,
+                jsonWriter.write(frame, session.bufferFactory(), 0)))
+            .doOnCancel(() -> future.cancel(false));
+    }
+    
+    /**
+     * 一个逐项推送请求的帧序列：中间帧与最后一帧在同一把锁下发出，保证最后一帧在所有中间帧之后，
+     * 且结束后迟到的中间帧被丢弃（其中的项已包含在最后一帧里）
+     */
+    private static final class ItemStream implements TerrainItemListener {
+        private final int requestType;
+        private final long requestId;
+        private final Sinks.Many<WebSocketResponse<?>> sink = Sinks.many().unicast().onBackpressureBuffer();
+        // 以下由this保护
+        private int streamed;
+        private boolean done;
+
+        ItemStream(int requestType, long requestId) {
+            this.requestType = requestType;
+            this.requestId = requestId;
+        }
+
+        Flux<WebSocketResponse<?>> frames() {
+            return sink.asFlux();
+        }
+
+        @Override
+        public synchronized void onItems(long count, int offset, List<TerrainResponse.ResponseItem> items) {
+            if (done || offset != streamed) {
+                return;
+            }
+            streamed += items.size();
+            sink.tryEmitNext(WebSocketResponse.partialFrame(requestType, requestId, count, offset, items));
+        }
+
+        synchronized void complete(UdpResponse response, Throwable e) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                logger.error("Error processing streamed UDP request", cause);
+                sink.tryEmitNext(WebSocketResponse.error(requestType, requestId, cause.getMessage()));
+            } else if (response instanceof TerrainResponse) {
+                sink.tryEmitNext(WebSocketResponse.lastFrame((TerrainResponse) response, requestType, streamed));
+            } else {
+                sink.tryEmitNext(WebSocketResponse.error(requestType, requestId, "Unknown response type"));
+            }
+            sink.tryEmitComplete();
+        }
+
+        /**
+         * 请求超时：尚未结束时发出错误帧并结束
+         * @return 本次调用结束了帧序列时返回true
+         */
+        synchronized boolean expire() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            sink.tryEmitNext(WebSocketResponse.error(requestType, requestId, "Request timeout"));
+            sink.tryEmitComplete();
+            return true;
+        }
+    }
+    
+    /**
+     * 握手时是否协商了二进制模式
+     */
+    static boolean isBinaryMode(HandshakeInfo handshakeInfo) {
+        if (BINARY_SUBPROTOCOL.equals(handshakeInfo.getSubProtocol())) {
+            return true;
+        }
+        String format = UriComponentsBuilder.fromUri(handshakeInfo.getUri()).build()
+            .getQueryParams().getFirst(FORMAT_PARAM);
+        return FORMAT_BINARY.equalsIgnoreCase(format);
+    }
+    
+    /**
+     * 处理二进制请求帧：载荷直接按UDP请求格式解码，requestId为0时由服务端分配
+     */
+    private Mono<WebSocketMessage> processBinaryMessage(WebSocketSession session, WebSocketMessage message,
+                                                        boolean binaryMode) {
+        if (!binaryMode) {
+            return Mono.just(session.textMessage(createErrorResponse(0, 0,
+                "Binary frames require subprotocol " + BINARY_SUBPROTOCOL)));
+        }
+        
+        UdpRequest udpRequest;
+        try {
+            DataBuffer payload = message.getPayload();
+            byte[] data = new byte[payload.readableByteCount()];
+            payload.read(data);
+            udpRequest = RequestFactory.decode(data);
+        } catch (Exception e) {
+            logger.error("Error parsing binary WebSocket message", e);
+            return Mono.just(session.textMessage(createErrorResponse(0, 0, "Invalid request format: " + e.getMessage())));
+        }
+        if (udpRequest.getRequestId() == 0) {
+            udpRequest.setRequestId(requestIdGenerator.getAndIncrement());
+        }
+        int requestType = udpRequest.getType();
+        long requestId = udpRequest.getRequestId();
+        
+        return Mono.fromFuture(udpService.sendRequest(udpRequest, session.getId()))
+            .map(udpResponse -> toBinaryMessage(session, udpResponse))
+            .timeout(java.time.Duration.ofSeconds(30))
+            .onErrorResume(e -> {
+                logger.error("Error processing binary UDP request", e);
+                String error = e instanceof java.util.concurrent.TimeoutException ? "Request timeout" : e.getMessage();
+                return Mono.just(session.textMessage(createErrorResponse(requestType, requestId, error)));
+            });
+    }
+    
+    /**
+     * UDP响应原样作为二进制帧：由视图承载的地形响应直接包装重组缓冲区，不拷贝
+     */
+    private static WebSocketMessage toBinaryMessage(WebSocketSession session, UdpResponse udpResponse) {
+        if (udpResponse instanceof TerrainResponse) {
+            TerrainResponseView view = ((TerrainResponse) udpResponse).getView();
+            if (view != null) {
+                return new WebSocketMessage(WebSocketMessage.Type.BINARY, session.bufferFactory().wrap(view.getBuffer()));
+            }
         }
+        return session.binaryMessage(factory -> factory.wrap(udpResponse.encode()));
     }
     
     private UdpRequest convertToUdpRequest(WebSocketRequest wsRequest, long requestId) {
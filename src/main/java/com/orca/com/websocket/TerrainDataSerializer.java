@@ -0,0 +1,83 @@
+package com.orca.com.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.orca.com.protocol.TerrainResponseView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * TerrainData 序列化器
+ * 由 TerrainResponseView 承载时直接从重组缓冲区读取字段写出JSON，地形数据直接从底层数组做Base64编码，
+ * 不经过 ResponseItem DTO；输出与DTO默认序列化结果逐字节一致
+ */
+public class TerrainDataSerializer extends JsonSerializer<WebSocketResponse.TerrainData> {
+
+    @Override
+    public void serialize(WebSocketResponse.TerrainData data, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        gen.writeStartObject();
+        if (data.getCount() != null) {
+            gen.writeNumberField("count", data.getCount());
+        } else {
+            gen.writeNullField("count");
+        }
+        gen.writeFieldName("items");
+        TerrainResponseView view = data.getView();
+        int offset = data.getOffset() != null ? data.getOffset() : 0;
+        if (view != null) {
+            writeItems(view, offset, gen);
+        } else {
+            provider.defaultSerializeValue(data.getItems(), gen);
+        }
+        if (data.getOffset() != null) {
+            gen.writeNumberField("offset", offset);
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * 直接从视图写出序号 from 及之后的响应项数组
+     */
+    static void writeItems(TerrainResponseView view, int from, JsonGenerator gen) throws IOException {
+        ByteBuffer buffer = view.getBuffer();
+        byte[] scratch = null;
+        gen.writeStartArray();
+        for (int i = from; i < view.size(); i++) {
+            writeItem(gen, view.getALongitude(i), view.getBLongitude(i), view.getType(i),
+                view.getDensity(i), view.getField6(i));
+            gen.writeFieldName("terrainData");
+            int length = view.getTerrainDataLength(i);
+            int offset = view.getTerrainDataOffset(i);
+            if (length == 0) {
+                gen.writeNull();
+            } else if (buffer.hasArray()) {
+                gen.writeBinary(buffer.array(), buffer.arrayOffset() + offset, length);
+            } else {
+                if (scratch == null || scratch.length < length) {
+                    scratch = new byte[Math.max(length, 256)];
+                }
+                buffer.get(offset, scratch, 0, length);
+                gen.writeBinary(scratch, 0, length);
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeItem(JsonGenerator gen, double aLongitude, double bLongitude, long type,
+                                  float density, int field6) throws IOException {
+        gen.writeStartObject();
+        // 与 ResponseItem 的默认序列化保持一致：getALongitude/getBLongitude 推导出的小写属性名在前，
+        // 字段上 @JsonProperty 声明的属性名在后，客户端可能依赖其中任意一个
+        gen.writeNumberField("alongitude", aLongitude);
+        gen.writeNumberField("blongitude", bLongitude);
+        gen.writeNumberField("aLongitude", aLongitude);
+        gen.writeNumberField("bLongitude", bLongitude);
+        gen.writeNumberField("type", type);
+        gen.writeNumberField("density", density);
+        gen.writeNumberField("field6", field6);
+    }
+}
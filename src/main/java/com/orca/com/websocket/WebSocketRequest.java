@@ -30,6 +30,9 @@ public class WebSocketRequest {
     @JsonProperty("dataSource")
     private Integer dataSource;  // 1:A 2:B 3:C
     
+    @JsonProperty("stream")
+    private Boolean stream;  // 可选，为true时地形响应项随分片到达逐批推送
+    
     public WebSocketRequest() {
     }
     
@@ -97,4 +100,12 @@ public class WebSocketRequest {
     public void setDataSource(Integer dataSource) {
         this.dataSource = dataSource;
     }
+    
+    public Boolean getStream() {
+        return stream;
+    }
+    
+    public void setStream(Boolean stream) {
+        this.stream = stream;
+    }
 }
@@ -1,8 +1,12 @@
 package com.orca.com.websocket;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.orca.com.protocol.UdpResponse;
 import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.TerrainResponseView;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +29,11 @@ public class WebSocketResponse<T> {
     @JsonProperty("data")
     private T data;
     
+    // 只有逐项推送的地形响应带此字段：true为中间帧，false为最后一帧
+    @JsonProperty("partial")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean partial;
+    
     public static class ResponseItem {
         @JsonProperty("aLongitude")
         private double aLongitude;
@@ -94,6 +103,7 @@ public class WebSocketResponse<T> {
         }
     }
 
+    @JsonSerialize(using = TerrainDataSerializer.class)
     public static class TerrainData {
         @JsonProperty("count")
         private Long count;
@@ -101,6 +111,14 @@ public class WebSocketResponse<T> {
         @JsonProperty("items")
         private List<ResponseItem> items;
 
+        // 逐项推送时 items 中第一项在响应中的序号，其他情况为null
+        @JsonProperty("offset")
+        private Integer offset;
+
+        // 直接承载UDP响应视图时，序列化不经过 items（从 offset 开始）
+        @JsonIgnore
+        private TerrainResponseView view;
+
         public Long getCount() {
             return count;
         }
@@ -110,11 +128,28 @@ public class WebSocketResponse<T> {
         }
 
         public List<ResponseItem> getItems() {
+            if (items == null && view != null) {
+                items = toResponseItems(view, offset != null ? offset : 0);
+            }
             return items;
         }
 
         public void setItems(List<ResponseItem> items) {
             this.items = items;
+            this.view = null;
+        }
+
+        public Integer getOffset() {
+            return offset;
+        }
+
+        public void setOffset(Integer offset) {
+            this.offset = offset;
+        }
+
+        @JsonIgnore
+        public TerrainResponseView getView() {
+            return view;
         }
     }
 
@@ -208,9 +243,67 @@ public class WebSocketResponse<T> {
 
         TerrainData terrainData = new TerrainData();
         terrainData.count = udpResponse.getCount();
-        terrainData.items = new ArrayList<>();
         
-        for (TerrainResponse.ResponseItem item : udpResponse.getItems()) {
+        // 解码得到的响应直接引用视图，序列化时再从缓冲区读取，不复制响应项
+        TerrainResponseView view = udpResponse.getView();
+        if (view != null) {
+            terrainData.view = view;
+            response.setData(terrainData);
+            return response;
+        }
+        
+        terrainData.items = toResponseItems(udpResponse.getItems(), 0);
+        response.setData(terrainData);
+        return response;
+    }
+
+    /**
+     * 逐项推送的中间帧
+     * @param offset items 中第一项在响应中的序号
+     */
+    public static WebSocketResponse<TerrainData> partialFrame(int requestType, long requestId, long count,
+                                                              int offset, List<TerrainResponse.ResponseItem> items) {
+        WebSocketResponse<TerrainData> response = new WebSocketResponse<>();
+        response.type = requestType;
+        response.requestId = requestId;
+        response.success = true;
+        response.partial = true;
+
+        TerrainData terrainData = new TerrainData();
+        terrainData.count = count;
+        terrainData.offset = offset;
+        terrainData.items = toResponseItems(items, 0);
+        response.setData(terrainData);
+        return response;
+    }
+
+    /**
+     * 逐项推送的最后一帧：只包含序号 offset 及之后的响应项（之前的已由中间帧送出）
+     */
+    public static WebSocketResponse<TerrainData> lastFrame(TerrainResponse udpResponse, int requestType, int offset) {
+        WebSocketResponse<TerrainData> response = new WebSocketResponse<>();
+        response.type = requestType;
+        response.requestId = udpResponse.getRequestId();
+        response.success = true;
+        response.partial = false;
+
+        TerrainData terrainData = new TerrainData();
+        terrainData.count = udpResponse.getCount();
+        terrainData.offset = offset;
+        TerrainResponseView view = udpResponse.getView();
+        if (view != null) {
+            terrainData.view = view;
+        } else {
+            terrainData.items = toResponseItems(udpResponse.getItems(), offset);
+        }
+        response.setData(terrainData);
+        return response;
+    }
+
+    private static List<ResponseItem> toResponseItems(List<TerrainResponse.ResponseItem> source, int from) {
+        List<ResponseItem> items = new ArrayList<>(Math.max(0, source.size() - from));
+        for (int i = from; i < source.size(); i++) {
+            TerrainResponse.ResponseItem item = source.get(i);
             ResponseItem wsItem = new ResponseItem();
             wsItem.aLongitude = item.getALongitude();
             wsItem.bLongitude = item.getBLongitude();
@@ -220,11 +313,29 @@ public class WebSocketResponse<T> {
             if (item.getTerrainData() != null) {
                 wsItem.terrainData = java.util.Base64.getEncoder().encodeToString(item.getTerrainData());
             }
-            terrainData.items.add(wsItem);
+            items.add(wsItem);
         }
-        
-        response.setData(terrainData);
-        return response;
+        return items;
+    }
+
+    private static List<ResponseItem> toResponseItems(TerrainResponseView view, int from) {
+        List<ResponseItem> items = new ArrayList<>(Math.max(0, view.size() - from));
+        for (int i = from; i < view.size(); i++) {
+            ResponseItem wsItem = new ResponseItem();
+            wsItem.aLongitude = view.getALongitude(i);
+            wsItem.bLongitude = view.getBLongitude(i);
+            wsItem.type = view.getType(i);
+            wsItem.density = view.getDensity(i);
+            wsItem.field6 = view.getField6(i);
+            int length = view.getTerrainDataLength(i);
+            if (length > 0) {
+                byte[] terrainData = new byte[length];
+                view.getTerrainData(i).get(terrainData);
+                wsItem.terrainData = java.util.Base64.getEncoder().encodeToString(terrainData);
+            }
+            items.add(wsItem);
+        }
+        return items;
     }
 
     public static WebSocketResponse<EvaluationConfigData> fromEvaluationConfigResponse(com.orca.com.protocol.EvaluationConfigResponse udpResponse, int requestType) {
@@ -295,4 +406,12 @@ public class WebSocketResponse<T> {
     public void setData(T data) {
         this.data = data;
     }
+
+    public Boolean getPartial() {
+        return partial;
+    }
+
+    public void setPartial(Boolean partial) {
+        this.partial = partial;
+    }
 }
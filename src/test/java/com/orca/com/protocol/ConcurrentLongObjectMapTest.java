@@ -0,0 +1,58 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分段 long 键哈希表并发测试
+ */
+class ConcurrentLongObjectMapTest {
+
+    @Test
+    void testConcurrentPutAndRemove() throws Exception {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(8);
+        int threads = 4;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger removed = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long key = base; key < base + perThread; key++) {
+                    map.put(key, key);
+                    // 移除一半，另一半留在表中
+                    if (key % 2 == 0 && map.remove(key, map.get(key))) {
+                        removed.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread / 2, removed.get());
+        assertEquals(threads * perThread / 2, map.size());
+        assertEquals(threads * perThread / 2, map.values().size());
+        assertEquals(Long.valueOf(1L), map.get(1L));
+        assertNull(map.get(2L));
+        assertEquals(Long.valueOf(3L), map.remove(3L));
+        assertNull(map.get(3L));
+    }
+}
@@ -0,0 +1,73 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片校验和测试
+ */
+class FragmentChecksumTest {
+
+    @Test
+    void testSplitterFragmentsVerifyAndDetectCorruption() {
+        byte[] data = new byte[3000];
+        new Random(11).nextBytes(data);
+        List<byte[]> fragments = new FragmentSplitter(1000, true).split(data);
+        assertEquals(3, fragments.size());
+
+        for (byte[] fragment : fragments) {
+            ByteBuffer datagram = ByteOrderUtils.wrapLittleEndian(fragment);
+            FragmentHeader header = FragmentHeader.decode(datagram);
+            assertTrue(header.hasChecksum());
+            assertTrue(FragmentChecksum.verify(datagram, 0, header.getChecksum()));
+            assertEquals(FragmentHeader.HEADER_SIZE, datagram.position());
+
+            // 载荷或分片头被篡改都能发现
+            fragment[FragmentHeader.HEADER_SIZE + 10] ^= 0x40;
+            assertFalse(FragmentChecksum.verify(datagram, 0, header.getChecksum()));
+            fragment[FragmentHeader.HEADER_SIZE + 10] ^= 0x40;
+            fragment[6] ^= 0x01; // currentPacket
+            assertFalse(FragmentChecksum.verify(datagram, 0, header.getChecksum()));
+        }
+    }
+
+    @Test
+    void testSplitterWithoutChecksumLeavesFieldZero() {
+        FragmentHeader header = FragmentHeader.decode(new FragmentSplitter(1000).split(new byte[10]).get(0));
+        assertFalse(header.hasChecksum());
+        assertEquals(0, header.getChecksum());
+    }
+
+    @Test
+    void testWriterMatchesSplitterChecksum() throws Exception {
+        byte[] data = new byte[2500];
+        new Random(12).nextBytes(data);
+        try (DatagramChannel receiver = DatagramChannel.open();
+             DatagramChannel sender = DatagramChannel.open()) {
+            receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            sender.connect(receiver.getLocalAddress());
+            FragmentWriter writer = new FragmentWriter(1000, true);
+            assertEquals(3, writer.write(sender, ByteBuffer.wrap(data)));
+            assertEquals(1, writer.retransmit(sender, ByteBuffer.wrap(data), 5L, new int[]{1}, null));
+
+            ByteBuffer datagram = ByteBuffer.allocate(2000).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < 4; i++) {
+                datagram.clear();
+                receiver.receive(datagram);
+                datagram.flip();
+                FragmentHeader header = FragmentHeader.decode(datagram);
+                assertTrue(header.hasChecksum());
+                assertTrue(FragmentChecksum.verify(datagram, 0, header.getChecksum()), "fragment " + i);
+            }
+        }
+    }
+}
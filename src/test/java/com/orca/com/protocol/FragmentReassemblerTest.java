@@ -1,6 +1,10 @@
 package com.orca.com.protocol;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -50,4 +54,380 @@ class FragmentReassemblerTest {
         
         reassembler.shutdown();
     }
+    
+    @Test
+    void testReassembleFromByteBufferSlices() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        
+        byte[] data = "Fragments read straight out of a pooled receive buffer".getBytes();
+        int fragmentSize = 16;
+        int totalPackets = (int) Math.ceil((double) data.length / fragmentSize);
+        // 模拟复用的接收缓冲区：每次添加后都会被覆盖
+        ByteBuffer reused = ByteBuffer.allocateDirect(64);
+        
+        ByteBuffer result = null;
+        for (int i = 0; i < totalPackets; i++) {
+            int offset = i * fragmentSize;
+            int currentSize = Math.min(fragmentSize, data.length - offset);
+            reused.clear();
+            reused.put(data, offset, currentSize);
+            reused.flip();
+            
+            FragmentHeader header = new FragmentHeader(777L, totalPackets, i, currentSize);
+            result = reassembler.addFragment(header, reused);
+            // 重组器返回后缓冲区即可复用
+            reused.clear();
+            reused.put(new byte[64]);
+        }
+        
+        assertNotNull(result);
+        byte[] assembled = new byte[result.remaining()];
+        result.get(assembled);
+        assertArrayEquals(data, assembled);
+        
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testReassembleOutOfOrderWithLastFragmentFirst() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        byte[] data = sequentialBytes(1000);
+        List<byte[]> fragments = slice(data, 64);
+        
+        // 末尾分片先到，此时分片步长尚未确定
+        List<Integer> order = new ArrayList<>();
+        order.add(fragments.size() - 1);
+        for (int i = fragments.size() - 2; i >= 0; i--) {
+            order.add(i);
+        }
+        
+        byte[] result = feed(reassembler, 42L, fragments, order);
+        assertArrayEquals(data, result);
+        assertEquals(0, reassembler.getSessionCount());
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testReassembleShuffledWithDuplicates() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        byte[] data = sequentialBytes(4096);
+        List<byte[]> fragments = slice(data, 100);
+        
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < fragments.size(); i++) {
+            order.add(i);
+            if (i % 5 == 0) {
+                order.add(i); // 重复分片不应影响结果
+            }
+        }
+        Collections.shuffle(order, new Random(7));
+        
+        byte[] result = feed(reassembler, 43L, fragments, order);
+        assertArrayEquals(data, result);
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testReassembleIrregularFragmentSizes() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        byte[] data = sequentialBytes(300);
+        // 非等长分片：发送端未按固定步长切片
+        List<byte[]> fragments = new ArrayList<>();
+        fragments.add(Arrays.copyOfRange(data, 0, 100));
+        fragments.add(Arrays.copyOfRange(data, 100, 150));
+        fragments.add(Arrays.copyOfRange(data, 150, 300));
+        
+        byte[] result = feed(reassembler, 44L, fragments, Arrays.asList(2, 0, 1));
+        assertArrayEquals(data, result);
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testRejectsFragmentIndexOutOfRange() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        assertThrows(IllegalArgumentException.class,
+            () -> reassembler.addFragment(new FragmentHeader(45L, 2, 2, 4), new byte[4]));
+        assertEquals(0, reassembler.getSessionCount());
+        reassembler.shutdown();
+    }
+    
+    private byte[] feed(FragmentReassembler reassembler, long sessionId, List<byte[]> fragments, List<Integer> order) {
+        byte[] result = null;
+        for (int index : order) {
+            byte[] fragment = fragments.get(index);
+            FragmentHeader header = new FragmentHeader(sessionId, fragments.size(), index, fragment.length);
+            byte[] completed = reassembler.addFragment(header, fragment);
+            if (completed != null) {
+                assertNull(result, "会话只应完成一次");
+                result = completed;
+            }
+        }
+        assertNotNull(result);
+        return result;
+    }
+    
+    private static List<byte[]> slice(byte[] data, int fragmentSize) {
+        List<byte[]> fragments = new ArrayList<>();
+        for (int offset = 0; offset < data.length; offset += fragmentSize) {
+            fragments.add(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + fragmentSize)));
+        }
+        return fragments;
+    }
+    
+    private static byte[] sequentialBytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        return data;
+    }
+    
+    @Test
+    void testDiscardedSessionDropsRemainingFragments() throws Exception {
+        FragmentReassembler reassembler = new FragmentReassembler(50);
+        List<byte[]> fragments = slice(sequentialBytes(300), 100);
+        
+        assertNull(reassembler.addFragment(new FragmentHeader(9L, 3, 1, 100), fragments.get(1)));
+        reassembler.discard(new FragmentHeader(9L, 3, 0, 100));
+        // 放弃后即使分片到齐也不再交出数据
+        assertNull(reassembler.addFragment(new FragmentHeader(9L, 3, 0, 100), fragments.get(0)));
+        assertNull(reassembler.addFragment(new FragmentHeader(9L, 3, 2, 100), fragments.get(2)));
+        assertEquals(1, reassembler.getSessionCount());
+        
+        Thread.sleep(120);
+        assertEquals(1, reassembler.evictExpired());
+        assertEquals(0, reassembler.getSessionCount());
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testPrefixListenerSeesContiguousPrefixGrow() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        byte[] data = sequentialBytes(450);
+        List<byte[]> fragments = slice(data, 100);
+        List<Integer> prefixLengths = new ArrayList<>();
+        reassembler.setPrefixListener(new FragmentReassembler.PrefixListener() {
+            @Override
+            public FragmentReassembler.PrefixListener onPrefix(long sessionId, ByteBuffer prefix) {
+                assertEquals(5L, sessionId);
+                assertTrue(prefix.isReadOnly());
+                byte[] bytes = new byte[prefix.remaining()];
+                prefix.get(bytes);
+                assertArrayEquals(Arrays.copyOf(data, bytes.length), bytes);
+                prefixLengths.add(bytes.length);
+                return this;
+            }
+        });
+        
+        // 1 和 2 先到，前缀要等 0 到达后才一次增长到 300；末尾分片到达时会话收齐，不再通知前缀
+        byte[] result = feed(reassembler, 5L, fragments, List.of(1, 2, 0, 0, 3, 4));
+        assertArrayEquals(data, result);
+        assertEquals(List.of(300, 400), prefixLengths);
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testPrefixListenerCanStopFollowingSession() {
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        List<byte[]> fragments = slice(sequentialBytes(400), 100);
+        int[] calls = new int[1];
+        reassembler.setPrefixListener((sessionId, prefix) -> {
+            calls[0]++;
+            return null;
+        });
+        
+        feed(reassembler, 6L, fragments, List.of(0, 1, 2, 3));
+        assertEquals(1, calls[0]);
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testNewSessionRefusedWhenBudgetExhausted() {
+        ReassemblyBudget budget = new ReassemblyBudget(1000, 0, ReassemblyBudget.EVICT_OLDEST);
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        reassembler.setBudget(budget);
+        int[] refused = new int[1];
+        reassembler.setSessionListener(new FragmentReassembler.SessionListener() {
+            @Override
+            public void onCompleted(int totalPackets, long durationNanos) {
+            }
+
+            @Override
+            public void onExpired(int totalPackets) {
+            }
+
+            @Override
+            public void onRefused(int totalPackets, int reason) {
+                assertEquals(ReassemblyBudget.OVER_BUDGET, reason);
+                refused[0]++;
+            }
+        });
+        List<byte[]> fragments = slice(sequentialBytes(800), 100);
+        
+        // 第一个会话占用 800 字节，第二个会话的缓冲区放不下，分片被拒绝，会话只留下空标记
+        assertNull(reassembler.addFragment(new FragmentHeader(1L, 8, 0, 100), ByteBuffer.wrap(fragments.get(0))));
+        assertEquals(800, budget.getUsedBytes());
+        assertNull(reassembler.addFragment(new FragmentHeader(2L, 8, 0, 100), ByteBuffer.wrap(fragments.get(0))));
+        assertEquals(1, refused[0]);
+        assertEquals(800, budget.getUsedBytes());
+        
+        // 第一个会话收齐后归还预算；第二个会话已无法收齐，随后的分片直接丢弃，不再申请
+        for (int i = 1; i < 8; i++) {
+            reassembler.addFragment(new FragmentHeader(1L, 8, i, 100), ByteBuffer.wrap(fragments.get(i)));
+        }
+        assertEquals(0, budget.getUsedBytes());
+        assertNull(reassembler.addFragment(new FragmentHeader(2L, 8, 1, 100), ByteBuffer.wrap(fragments.get(1))));
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(1, refused[0]);
+        reassembler.shutdown();
+        assertEquals(0, budget.getUsedBytes());
+    }
+    
+    @Test
+    void testPerSourceLimitIsolatesNoisySender() {
+        ReassemblyBudget budget = new ReassemblyBudget(10_000, 1000, ReassemblyBudget.EVICT_OLDEST);
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        reassembler.setBudget(budget);
+        byte[] fragment = new byte[100];
+        
+        assertNull(reassembler.addFragment(new FragmentHeader(1L, 8, 0, 100), ByteBuffer.wrap(fragment), 7L));
+        assertNull(reassembler.addFragment(new FragmentHeader(2L, 8, 0, 100), ByteBuffer.wrap(fragment), 7L));
+        assertNull(reassembler.addFragment(new FragmentHeader(3L, 8, 0, 100), ByteBuffer.wrap(fragment), 8L));
+        assertEquals(1600, budget.getUsedBytes());
+        assertEquals(2, budget.getSourceCount());
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testPressureEvictsLeastCompleteSessionsFirst() {
+        assertEvictionOrder(ReassemblyBudget.EVICT_LEAST_COMPLETE, 20L);
+    }
+    
+    @Test
+    void testPressureEvictsOldestSessionsFirst() {
+        assertEvictionOrder(ReassemblyBudget.EVICT_OLDEST, 10L);
+    }
+    
+    /**
+     * 会话10先开始且收到一半分片，会话20后开始只收到一个；超过高水位后只驱逐一个即可回落到低水位
+     */
+    private void assertEvictionOrder(String policy, long expectedVictim) {
+        ReassemblyBudget budget = new ReassemblyBudget(2000, 0, policy);
+        FragmentReassembler reassembler = new FragmentReassembler(3000);
+        reassembler.setBudget(budget);
+        byte[] fragment = new byte[100];
+        for (int i = 0; i < 5; i++) {
+            reassembler.addFragment(new FragmentHeader(10L, 10, i, 100), ByteBuffer.wrap(fragment));
+        }
+        reassembler.addFragment(new FragmentHeader(20L, 10, 0, 100), ByteBuffer.wrap(fragment));
+        assertEquals(2000, budget.getUsedBytes());
+        assertTrue(budget.isUnderPressure());
+        
+        assertEquals(1, reassembler.evictExpired());
+        assertEquals(1000, budget.getUsedBytes());
+        // 被驱逐的会话留作空标记：之后到达的分片直接丢弃，不会重新申请缓冲区
+        long survivor = expectedVictim == 10L ? 20L : 10L;
+        reassembler.discard(new FragmentHeader(survivor, 10, 0, 100));
+        assertEquals(0, budget.getUsedBytes());
+        for (int i = 5; i < 10; i++) {
+            assertNull(reassembler.addFragment(new FragmentHeader(expectedVictim, 10, i, 100), ByteBuffer.wrap(fragment)));
+        }
+        assertEquals(0, budget.getUsedBytes());
+        assertFalse(budget.isUnderPressure());
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testIrregularSessionAccountingReturnsToZero() throws Exception {
+        ReassemblyBudget budget = new ReassemblyBudget(10_000, 5000, ReassemblyBudget.EVICT_OLDEST);
+        FragmentReassembler reassembler = new FragmentReassembler(50);
+        reassembler.setBudget(budget);
+        
+        // 末尾分片先到且比之后的分片大：先单独保存，再退化为逐片保存
+        reassembler.addFragment(new FragmentHeader(1L, 3, 2, 120), ByteBuffer.wrap(new byte[120]), 5L);
+        reassembler.addFragment(new FragmentHeader(1L, 3, 0, 100), ByteBuffer.wrap(new byte[100]), 5L);
+        assertEquals(220, budget.getUsedBytes());
+        assertNotNull(reassembler.addFragment(new FragmentHeader(1L, 3, 1, 90), ByteBuffer.wrap(new byte[90]), 5L));
+        assertEquals(0, budget.getUsedBytes());
+        
+        // 超时淘汰同样归还
+        reassembler.addFragment(new FragmentHeader(2L, 4, 0, 100), ByteBuffer.wrap(new byte[100]), 5L);
+        reassembler.addFragment(new FragmentHeader(2L, 4, 1, 80), ByteBuffer.wrap(new byte[80]), 5L);
+        assertEquals(180, budget.getUsedBytes());
+        Thread.sleep(120);
+        reassembler.evictExpired();
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, budget.getSourceCount());
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testEvictExpiredDropsStaleIncompleteSessions() throws Exception {
+        FragmentReassembler reassembler = new FragmentReassembler(50);
+        
+        // 两个分片只到一个，会话保持未完成状态
+        assertNull(reassembler.addFragment(new FragmentHeader(1L, 2, 0, 4), new byte[4]));
+        assertEquals(1, reassembler.getSessionCount());
+        assertEquals(0, reassembler.evictExpired());
+        
+        Thread.sleep(120);
+        assertEquals(1, reassembler.evictExpired());
+        assertEquals(0, reassembler.getSessionCount());
+        
+        // 过期后迟到的分片会开启新会话，而不是拼出残缺数据
+        assertNull(reassembler.addFragment(new FragmentHeader(1L, 2, 1, 4), new byte[4]));
+        
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testReportsMissingFragmentsAfterGapPersists() throws Exception {
+        List<int[]> nacks = new ArrayList<>();
+        FragmentReassembler reassembler = new FragmentReassembler(2000, 30, 2,
+            (sessionId, total, missing) -> {
+                assertEquals(9L, sessionId);
+                assertEquals(5, total);
+                nacks.add(missing);
+            });
+        
+        byte[] data = sequentialBytes(50);
+        // 第1片与第3片丢失
+        for (int i : new int[]{0, 2, 4}) {
+            assertNull(reassembler.addFragment(new FragmentHeader(9L, 5, i, 10),
+                Arrays.copyOfRange(data, i * 10, i * 10 + 10)));
+        }
+        reassembler.evictExpired();
+        assertTrue(nacks.isEmpty());
+        
+        Thread.sleep(60);
+        reassembler.evictExpired();
+        assertEquals(1, nacks.size());
+        assertArrayEquals(new int[]{1, 3}, nacks.get(0));
+        
+        // 重发的分片补齐会话
+        assertNull(reassembler.addFragment(new FragmentHeader(9L, 5, 1, 10), Arrays.copyOfRange(data, 10, 20)));
+        byte[] complete = reassembler.addFragment(new FragmentHeader(9L, 5, 3, 10), Arrays.copyOfRange(data, 30, 40));
+        assertArrayEquals(data, complete);
+        assertEquals(0, reassembler.getSessionCount());
+        
+        reassembler.shutdown();
+    }
+    
+    @Test
+    void testNackRoundsAreBounded() throws Exception {
+        List<int[]> nacks = new ArrayList<>();
+        FragmentReassembler reassembler = new FragmentReassembler(2000, 10, 2,
+            (sessionId, total, missing) -> nacks.add(missing));
+        assertNull(reassembler.addFragment(new FragmentHeader(3L, 3, 0, 4), new byte[4]));
+        
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(20);
+            reassembler.evictExpired();
+        }
+        assertEquals(2, nacks.size());
+        assertArrayEquals(new int[]{1, 2}, nacks.get(1));
+        assertEquals(1, reassembler.getSessionCount());
+        
+        reassembler.shutdown();
+    }
 }
@@ -0,0 +1,125 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片聚集写出测试
+ */
+class FragmentWriterTest {
+
+    @Test
+    void testFragmentsMatchSplitterLayoutAndReassemble() throws Exception {
+        byte[] data = new byte[5000];
+        new Random(3).nextBytes(data);
+        // 数据前后带无关字节，验证只写出position到limit之间的内容
+        byte[] padded = new byte[data.length + 20];
+        System.arraycopy(data, 0, padded, 10, data.length);
+        ByteBuffer source = ByteBuffer.wrap(padded, 10, data.length);
+
+        try (DatagramChannel receiver = DatagramChannel.open();
+             DatagramChannel sender = DatagramChannel.open()) {
+            receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            sender.connect(receiver.getLocalAddress());
+
+            FragmentWriter writer = new FragmentWriter(1000);
+            assertEquals(5, writer.write(sender, source));
+            assertEquals(10, source.position());
+            assertEquals(10 + data.length, source.limit());
+
+            FragmentReassembler reassembler = new FragmentReassembler(3000);
+            ByteBuffer datagram = ByteBuffer.allocate(2000).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer complete = null;
+            long sessionId = -1;
+            for (int i = 0; i < 5; i++) {
+                datagram.clear();
+                receiver.receive(datagram);
+                datagram.flip();
+                FragmentHeader header = FragmentHeader.decode(datagram);
+                assertEquals(5, header.getTotalPackets());
+                assertEquals(i, header.getCurrentPacket());
+                assertEquals(1000, header.getCurrentSize());
+                assertEquals(header.getCurrentSize(), datagram.remaining());
+                if (sessionId >= 0) {
+                    assertEquals(sessionId, header.getSessionId());
+                }
+                sessionId = header.getSessionId();
+                complete = reassembler.addFragment(header, datagram);
+            }
+
+            assertNotNull(complete);
+            byte[] result = new byte[complete.remaining()];
+            complete.get(result);
+            assertArrayEquals(data, result);
+        }
+    }
+
+    @Test
+    void testSmallAndEmptyPayloadUseSingleFragment() throws Exception {
+        try (DatagramChannel receiver = DatagramChannel.open();
+             DatagramChannel sender = DatagramChannel.open()) {
+            receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            sender.connect(receiver.getLocalAddress());
+            FragmentWriter writer = new FragmentWriter(1000);
+
+            assertEquals(1, writer.write(sender, ByteBuffer.wrap(new byte[]{1, 2, 3})));
+            assertEquals(1, writer.write(sender, ByteBuffer.allocate(0)));
+
+            ByteBuffer datagram = ByteBuffer.allocate(2000).order(ByteOrder.LITTLE_ENDIAN);
+            receiver.receive(datagram);
+            datagram.flip();
+            FragmentHeader header = FragmentHeader.decode(datagram);
+            assertEquals(1, header.getTotalPackets());
+            assertEquals(3, header.getCurrentSize());
+            assertEquals(3, datagram.remaining());
+
+            datagram.clear();
+            receiver.receive(datagram);
+            assertEquals(FragmentHeader.HEADER_SIZE, datagram.position());
+        }
+    }
+
+    @Test
+    void testRetransmitWritesOnlyRequestedFragments() throws Exception {
+        byte[] data = new byte[2500];
+        new Random(5).nextBytes(data);
+        try (DatagramChannel receiver = DatagramChannel.open();
+             DatagramChannel sender = DatagramChannel.open()) {
+            receiver.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            sender.connect(receiver.getLocalAddress());
+            FragmentWriter writer = new FragmentWriter(1000);
+
+            // 越界序号被忽略
+            assertEquals(1, writer.retransmit(sender, ByteBuffer.wrap(data), 77L, new int[]{2, 3}, null));
+
+            ByteBuffer datagram = ByteBuffer.allocate(2000).order(ByteOrder.LITTLE_ENDIAN);
+            receiver.receive(datagram);
+            datagram.flip();
+            FragmentHeader header = FragmentHeader.decode(datagram);
+            assertEquals(77L, header.getSessionId());
+            assertEquals(3, header.getTotalPackets());
+            assertEquals(2, header.getCurrentPacket());
+            assertEquals(500, header.getCurrentSize());
+            assertEquals(FragmentHeader.FLAG_RETRANSMIT, header.getFlags());
+            byte[] payload = new byte[datagram.remaining()];
+            datagram.get(payload);
+            assertArrayEquals(Arrays.copyOfRange(data, 2000, 2500), payload);
+
+            // 之后的正常写出不带重发标记
+            writer.write(sender, ByteBuffer.wrap(new byte[]{1}));
+            datagram.clear();
+            receiver.receive(datagram);
+            datagram.flip();
+            assertEquals(0, FragmentHeader.decode(datagram).getFlags());
+        }
+    }
+}
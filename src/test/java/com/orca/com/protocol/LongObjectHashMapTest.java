@@ -0,0 +1,72 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * long 键开放寻址哈希表测试
+ */
+class LongObjectHashMapTest {
+
+    @Test
+    void testBasicOperations() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertNull(map.put(1L, "a"));
+        assertEquals("a", map.put(1L, "b"));
+        assertNull(map.put(-1L, "c"));
+        assertNull(map.put(Long.MIN_VALUE, "d"));
+        assertNull(map.put(0L, "e"));
+
+        assertEquals(4, map.size());
+        assertEquals("b", map.get(1L));
+        assertEquals("d", map.get(Long.MIN_VALUE));
+        assertEquals("e", map.get(0L));
+        assertNull(map.get(2L));
+
+        String c = map.get(-1L);
+        assertFalse(map.remove(-1L, new String("c")));
+        assertTrue(map.remove(-1L, c));
+        assertEquals("b", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertEquals(2, map.size());
+
+        List<String> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertTrue(values.containsAll(List.of("d", "e")));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0L));
+        assertThrows(NullPointerException.class, () -> map.put(3L, null));
+    }
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // 键集中在小范围内，制造大量冲突、删除与重新插入
+            long key = random.nextInt(2000) * 1024L;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else if (op == 1) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
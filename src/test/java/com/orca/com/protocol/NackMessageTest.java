@@ -0,0 +1,35 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NACK 控制报文编解码测试
+ */
+class NackMessageTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        ByteBuffer buffer = ByteOrderUtils.allocateLittleEndian(100);
+        assertEquals(3, NackMessage.encode(buffer, 0xFEDCBA98L, 300, new int[]{1, 299, 65535}));
+        buffer.flip();
+
+        FragmentHeader header = FragmentHeader.decode(buffer);
+        assertTrue(header.isNack());
+        assertEquals(0xFEDCBA98L, header.getSessionId());
+        assertEquals(300, header.getTotalPackets());
+        assertEquals(6, header.getCurrentSize());
+        assertEquals(6, buffer.remaining());
+        assertArrayEquals(new int[]{1, 299, 65535}, NackMessage.decodeMissing(buffer));
+    }
+
+    @Test
+    void testEncodeTruncatesToBufferCapacity() {
+        ByteBuffer buffer = ByteOrderUtils.allocateLittleEndian(FragmentHeader.HEADER_SIZE + 5);
+        assertEquals(2, NackMessage.encode(buffer, 1L, 10, new int[]{1, 2, 3, 4}));
+        assertEquals(FragmentHeader.HEADER_SIZE + 4, buffer.position());
+    }
+}
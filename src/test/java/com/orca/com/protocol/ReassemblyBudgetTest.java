@@ -0,0 +1,82 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重组内存预算测试
+ */
+class ReassemblyBudgetTest {
+
+    @Test
+    void testGlobalAndPerSourceLimits() {
+        ReassemblyBudget budget = new ReassemblyBudget(1000, 600, ReassemblyBudget.EVICT_OLDEST);
+
+        assertEquals(ReassemblyBudget.RESERVED, budget.tryReserve(1, 500));
+        assertEquals(ReassemblyBudget.OVER_SOURCE_LIMIT, budget.tryReserve(1, 200));
+        assertEquals(ReassemblyBudget.RESERVED, budget.tryReserve(2, 500));
+        assertEquals(ReassemblyBudget.OVER_BUDGET, budget.tryReserve(3, 1));
+        assertEquals(1000, budget.getUsedBytes());
+        assertEquals(2, budget.getSourceCount());
+
+        budget.release(1, 500);
+        assertEquals(500, budget.getUsedBytes());
+        assertEquals(1, budget.getSourceCount());
+        assertEquals(ReassemblyBudget.RESERVED, budget.tryReserve(1, 400));
+    }
+
+    @Test
+    void testWaterMarks() {
+        ReassemblyBudget budget = new ReassemblyBudget(1000, 0, null);
+        assertTrue(budget.isEvictLeastComplete());
+
+        budget.tryReserve(1, 900);
+        assertFalse(budget.isUnderPressure());
+        budget.tryReserve(1, 50);
+        assertTrue(budget.isUnderPressure());
+        assertFalse(budget.isRelieved());
+        budget.release(1, 200);
+        assertTrue(budget.isRelieved());
+        // 未设每来源上限时不按来源统计
+        assertEquals(0, budget.getSourceCount());
+    }
+
+    @Test
+    void testConcurrentReservationsNeverExceedBudget() throws Exception {
+        ReassemblyBudget budget = new ReassemblyBudget(10_000, 0, ReassemblyBudget.EVICT_OLDEST);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (budget.tryReserve(7, 7) == ReassemblyBudget.RESERVED) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(10_000 / 7, reserved.get());
+        assertEquals(reserved.get() * 7L, budget.getUsedBytes());
+    }
+
+    @Test
+    void testRejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ReassemblyBudget(0, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> new ReassemblyBudget(1000, 0, "random"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 地形响应增量解码测试
+ */
+class TerrainItemDecoderTest {
+
+    private static TerrainResponse sampleResponse(int count) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(77L);
+        response.setCount(count);
+        for (int i = 0; i < count; i++) {
+            TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+            item.setALongitude(100 + i);
+            item.setBLongitude(30 + i);
+            item.setType(i);
+            item.setDensity(i / 10f);
+            item.setField6(i * 3);
+            if (i % 3 != 0) {
+                byte[] terrain = new byte[i * 5];
+                for (int j = 0; j < terrain.length; j++) {
+                    terrain[j] = (byte) (i + j);
+                }
+                item.setTerrainData(terrain);
+            }
+            response.getItems().add(item);
+        }
+        return response;
+    }
+
+    @Test
+    void testGrowingPrefixYieldsEveryItemOnce() {
+        TerrainResponse original = sampleResponse(12);
+        byte[] encoded = original.encode();
+
+        for (int step : new int[]{1, 7, 28, 100, encoded.length}) {
+            TerrainItemDecoder decoder = new TerrainItemDecoder();
+            List<TerrainResponse.ResponseItem> items = new ArrayList<>();
+            for (int length = Math.min(step, encoded.length); ; length = Math.min(length + step, encoded.length)) {
+                items.addAll(decoder.decode(ByteBuffer.wrap(encoded, 0, length)));
+                if (length == encoded.length) {
+                    break;
+                }
+            }
+            assertTrue(decoder.isFinished(), "step " + step);
+            assertEquals(12, decoder.getCount());
+            assertEquals(12, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                TerrainResponse.ResponseItem expected = original.getItems().get(i);
+                assertEquals(expected.getALongitude(), items.get(i).getALongitude());
+                assertEquals(expected.getField6(), items.get(i).getField6());
+                assertArrayEquals(expected.getTerrainData(), items.get(i).getTerrainData());
+            }
+        }
+    }
+
+    @Test
+    void testIncompleteItemWaitsForMoreData() {
+        byte[] encoded = sampleResponse(2).encode();
+        TerrainItemDecoder decoder = new TerrainItemDecoder();
+
+        assertTrue(decoder.decode(ByteBuffer.wrap(encoded, 0, 10)).isEmpty());
+        assertEquals(-1, decoder.getCount());
+        // 第一项（无地形数据）完整，第二项只到了一半
+        int firstEnd = TerrainResponseView.HEADER_SIZE + TerrainResponseView.ITEM_HEADER_SIZE;
+        assertEquals(1, decoder.decode(ByteBuffer.wrap(encoded, 0, firstEnd + 20)).size());
+        assertEquals(2, decoder.getCount());
+        assertFalse(decoder.isFinished());
+        assertEquals(1, decoder.decode(ByteBuffer.wrap(encoded)).size());
+        assertTrue(decoder.isFinished());
+        assertTrue(decoder.decode(ByteBuffer.wrap(encoded)).isEmpty());
+    }
+
+    @Test
+    void testRejectsOtherResponseType() {
+        EvaluationConfigResponse response = new EvaluationConfigResponse();
+        response.setRequestId(1L);
+        response.setTestBackground("x");
+        assertThrows(IllegalArgumentException.class,
+            () -> new TerrainItemDecoder().decode(ByteBuffer.wrap(response.encode())));
+    }
+}
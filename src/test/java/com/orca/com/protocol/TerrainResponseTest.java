@@ -107,4 +107,32 @@ class TerrainResponseTest {
         assertTrue(decoded instanceof TerrainResponse);
         assertEquals(777L, decoded.getRequestId());
     }
+    
+    @Test
+    void testDecodeFromByteBufferView() {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(77L);
+        response.setCount(1);
+        TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+        item.setALongitude(116.5);
+        item.setType(3);
+        item.setTerrainData(new byte[]{1, 2, 3});
+        response.getItems().add(item);
+        byte[] encoded = response.encode();
+        
+        // 数据位于更大缓冲区的中间位置，例如重组缓冲区的一段
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(encoded.length + 8);
+        buffer.position(4);
+        buffer.put(encoded);
+        buffer.position(4).limit(4 + encoded.length);
+        
+        UdpResponse decoded = ResponseFactory.decode(buffer);
+        assertTrue(decoded instanceof TerrainResponse);
+        assertEquals(77L, decoded.getRequestId());
+        TerrainResponse.ResponseItem decodedItem = ((TerrainResponse) decoded).getItems().get(0);
+        assertEquals(116.5, decodedItem.getALongitude(), 0.0001);
+        assertArrayEquals(new byte[]{1, 2, 3}, decodedItem.getTerrainData());
+        // 解码不移动原缓冲区的position
+        assertEquals(4, buffer.position());
+    }
 }
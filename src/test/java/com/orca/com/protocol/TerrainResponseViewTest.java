@@ -0,0 +1,109 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 地形响应视图测试
+ */
+class TerrainResponseViewTest {
+
+    private static TerrainResponse sampleResponse() {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(42L);
+        response.setCount(2);
+
+        TerrainResponse.ResponseItem item1 = new TerrainResponse.ResponseItem();
+        item1.setALongitude(116.3974);
+        item1.setBLongitude(39.9093);
+        item1.setType(1);
+        item1.setDensity(0.85f);
+        item1.setField6(100);
+        response.getItems().add(item1);
+
+        TerrainResponse.ResponseItem item2 = new TerrainResponse.ResponseItem();
+        item2.setALongitude(121.4737);
+        item2.setBLongitude(31.2304);
+        item2.setType(2);
+        item2.setDensity(0.5f);
+        item2.setField6(65535);
+        item2.setTerrainData(new byte[]{1, 2, 3, 4, 5});
+        response.getItems().add(item2);
+        return response;
+    }
+
+    @Test
+    void testFieldAccess() {
+        byte[] encoded = sampleResponse().encode();
+        TerrainResponseView view = TerrainResponseView.wrap(ByteBuffer.wrap(encoded));
+
+        assertEquals(42L, view.getRequestId());
+        assertEquals(2, view.getCount());
+        assertEquals(2, view.size());
+        assertEquals(116.3974, view.getALongitude(0));
+        assertEquals(39.9093, view.getBLongitude(0));
+        assertEquals(1, view.getType(0));
+        assertEquals(0.85f, view.getDensity(0));
+        assertEquals(100, view.getField6(0));
+        assertEquals(0, view.getTerrainDataLength(0));
+
+        assertEquals(65535, view.getField6(1));
+        assertEquals(5, view.getTerrainDataLength(1));
+        ByteBuffer terrain = view.getTerrainData(1);
+        assertTrue(terrain.isReadOnly());
+        byte[] terrainBytes = new byte[terrain.remaining()];
+        terrain.get(terrainBytes);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, terrainBytes);
+
+        // 偏移可直接用于底层数组
+        ByteBuffer buffer = view.getBuffer();
+        int offset = buffer.arrayOffset() + view.getTerrainDataOffset(1);
+        assertArrayEquals(terrainBytes, Arrays.copyOfRange(buffer.array(), offset, offset + 5));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> view.getType(2));
+    }
+
+    @Test
+    void testWrapRespectsPositionAndLimit() {
+        byte[] encoded = sampleResponse().encode();
+        byte[] padded = new byte[encoded.length + 8];
+        System.arraycopy(encoded, 0, padded, 3, encoded.length);
+        ByteBuffer buffer = ByteBuffer.wrap(padded, 3, encoded.length);
+
+        TerrainResponseView view = TerrainResponseView.wrap(buffer);
+
+        assertEquals(3, buffer.position());
+        assertEquals(2, view.size());
+        assertArrayEquals(encoded, view.toByteArray());
+    }
+
+    @Test
+    void testTruncatedData() {
+        byte[] encoded = sampleResponse().encode();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> TerrainResponseView.wrap(ByteBuffer.wrap(encoded, 0, 10)));
+        assertThrows(IllegalArgumentException.class,
+            () -> TerrainResponseView.wrap(ByteBuffer.wrap(encoded, 0, encoded.length - 2)));
+        assertThrows(IllegalArgumentException.class,
+            () -> TerrainResponseView.wrap(ByteBuffer.wrap(encoded, 0, TerrainResponseView.HEADER_SIZE + 20)));
+    }
+
+    @Test
+    void testLazyDecodeRoundTrip() {
+        byte[] encoded = sampleResponse().encode();
+        TerrainResponse decoded = TerrainResponse.decode(encoded);
+
+        assertNotNull(decoded.getView());
+        assertArrayEquals(encoded, decoded.encode());
+
+        assertEquals(2, decoded.getItems().size());
+        assertNull(decoded.getView());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, decoded.getItems().get(1).getTerrainData());
+        assertArrayEquals(encoded, decoded.encode());
+    }
+}
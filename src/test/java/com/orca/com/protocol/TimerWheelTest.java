@@ -0,0 +1,91 @@
+package com.orca.com.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 哈希时间轮测试
+ */
+class TimerWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void testExpiresInDeadlineOrderAcrossRounds() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 4, 0);
+        wheel.schedule("a", 15);
+        wheel.schedule("b", 30);
+        wheel.schedule("c", 95); // 超过一圈
+        List<String> expired = new ArrayList<>();
+
+        assertEquals(0, wheel.advance(10, expired::add));
+        assertEquals(1, wheel.advance(20, expired::add));
+        assertEquals(List.of("a"), expired);
+        assertEquals(1, wheel.advance(45, expired::add));
+        assertEquals(List.of("a", "b"), expired);
+        assertEquals(0, wheel.advance(90, expired::add));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(100, expired::add));
+        assertEquals(List.of("a", "b", "c"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, 0);
+        TimerWheel.Timeout<String> a = wheel.schedule("a", 20);
+        TimerWheel.Timeout<String> b = wheel.schedule("b", 20);
+        TimerWheel.Timeout<String> c = wheel.schedule("c", 20);
+
+        assertTrue(wheel.cancel(b));
+        assertFalse(wheel.cancel(b));
+        assertFalse(b.isPending());
+        List<String> expired = new ArrayList<>();
+        wheel.advance(20, expired::add);
+
+        assertEquals(2, expired.size());
+        assertTrue(expired.containsAll(List.of("a", "c")));
+        assertFalse(a.isPending());
+        assertFalse(wheel.cancel(c));
+    }
+
+    @Test
+    void testLongIdleGapAndPastDeadline() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 4, 0);
+        for (int i = 0; i < 20; i++) {
+            wheel.schedule(i, i * 10L);
+        }
+        List<Integer> expired = new ArrayList<>();
+
+        // 一次推进远超一圈
+        assertEquals(15, wheel.advance(145, expired::add));
+        assertEquals(5, wheel.size());
+
+        // 已过去的截止时间在下一个tick触发
+        expired.clear();
+        wheel.schedule(99, 0);
+        assertEquals(2, wheel.advance(150, expired::add));
+        assertTrue(expired.containsAll(List.of(15, 99)));
+        assertEquals(4, wheel.size());
+    }
+
+    @Test
+    void testRescheduleFromCallback() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 4, 0);
+        wheel.schedule("x", 10);
+        List<String> expired = new ArrayList<>();
+        wheel.advance(10, e -> {
+            expired.add(e);
+            wheel.schedule(e, 50);
+        });
+        assertEquals(1, wheel.size());
+        wheel.advance(40, expired::add);
+        assertEquals(1, expired.size());
+        wheel.advance(50, expired::add);
+        assertEquals(2, expired.size());
+    }
+}
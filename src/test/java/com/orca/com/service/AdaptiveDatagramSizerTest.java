@@ -0,0 +1,83 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 自适应数据报大小测试
+ */
+class AdaptiveDatagramSizerTest {
+    private static final int LARGE_REQUEST = 100_000;
+
+    @Test
+    void testProbesUpwardUntilLossThenSettlesBelowIt() {
+        AdaptiveDatagramSizer sizer = new AdaptiveDatagramSizer(1400, 1200, 9000);
+        // 路径实际可承载的最大数据报
+        int pathLimit = 4000;
+
+        for (int round = 0; round < 200; round++) {
+            int size = sizer.nextDatagramSize(LARGE_REQUEST);
+            if (size <= pathLimit) {
+                sizer.onDelivered(size);
+            } else {
+                sizer.onLost(size);
+            }
+        }
+        int settled = sizer.getDatagramSize();
+        assertTrue(settled <= pathLimit, "settled at " + settled);
+        assertTrue(settled > 3500, "settled at " + settled);
+    }
+
+    @Test
+    void testOnlyOneProbeAtATimeAndSmallRequestsDoNotProbe() {
+        AdaptiveDatagramSizer sizer = new AdaptiveDatagramSizer(1400, 1200, 9000);
+        confirm(sizer, 1400);
+
+        // 小请求不分片，无法用于探测
+        assertEquals(1400, sizer.nextDatagramSize(500));
+        int probe = sizer.nextDatagramSize(LARGE_REQUEST);
+        assertTrue(probe > 1400);
+        assertEquals(1400, sizer.nextDatagramSize(LARGE_REQUEST));
+
+        // 探测请求因其他原因失败，不影响结论，之后可以再次探测
+        sizer.onFailed(probe);
+        assertEquals(probe, sizer.nextDatagramSize(LARGE_REQUEST));
+        sizer.onDelivered(probe);
+        assertEquals(probe, sizer.getDatagramSize());
+    }
+
+    @Test
+    void testProbeIsCappedByRequestSize() {
+        AdaptiveDatagramSizer sizer = new AdaptiveDatagramSizer(1400, 1200, 9000);
+        confirm(sizer, 1400);
+        assertEquals(2000, sizer.nextDatagramSize(2000));
+        sizer.onDelivered(2000);
+        assertEquals(2000, sizer.getDatagramSize());
+    }
+
+    @Test
+    void testRepeatedLossAtCurrentSizeBacksOff() {
+        AdaptiveDatagramSizer sizer = new AdaptiveDatagramSizer(1400, 1200, 9000);
+        for (int i = 0; i < AdaptiveDatagramSizer.LOSSES_BEFORE_BACKOFF; i++) {
+            sizer.onLost(1400);
+        }
+        assertEquals(1200, sizer.getDatagramSize());
+
+        // 已知会丢的大小不再被探测
+        confirm(sizer, 1200);
+        int probe = sizer.nextDatagramSize(LARGE_REQUEST);
+        assertTrue(probe > 1200 && probe < 1400, "probe " + probe);
+    }
+
+    @Test
+    void testRejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveDatagramSizer(1400, 2000, 1000));
+    }
+
+    private static void confirm(AdaptiveDatagramSizer sizer, int size) {
+        for (int i = 0; i < AdaptiveDatagramSizer.CONFIRMATIONS_BEFORE_PROBE; i++) {
+            sizer.onDelivered(size);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 接收缓冲池测试
+ */
+class DatagramBufferPoolTest {
+
+    @Test
+    void testAcquireReturnsClearedLittleEndianDirectBuffer() {
+        DatagramBufferPool pool = new DatagramBufferPool(2, 1400);
+
+        ByteBuffer buffer = pool.acquire();
+        assertTrue(buffer.isDirect());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, buffer.order());
+        assertEquals(0, buffer.position());
+        assertEquals(1400, buffer.limit());
+    }
+
+    @Test
+    void testReleasedBufferIsReused() {
+        DatagramBufferPool pool = new DatagramBufferPool(2, 1400);
+
+        ByteBuffer first = pool.acquire();
+        first.putInt(42).flip();
+        pool.release(first);
+        assertEquals(1, pool.available());
+
+        ByteBuffer second = pool.acquire();
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(1400, second.limit());
+        assertEquals(0, pool.available());
+    }
+
+    @Test
+    void testPoolDoesNotGrowBeyondCapacity() {
+        DatagramBufferPool pool = new DatagramBufferPool(1, 64);
+
+        ByteBuffer a = pool.acquire();
+        ByteBuffer b = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+        assertEquals(1, pool.available());
+
+        // 尺寸不符的缓冲区不会进入池
+        pool.acquire();
+        pool.release(ByteBuffer.allocateDirect(32));
+        assertEquals(0, pool.available());
+    }
+
+    @Test
+    void testSourceKeyTravelsInTrailer() throws Exception {
+        DatagramBufferPool pool = new DatagramBufferPool(1, 64);
+        ByteBuffer buffer = pool.acquire();
+        long key = DatagramBufferPool.sourceKey(new InetSocketAddress("10.0.0.7", 19211));
+        DatagramBufferPool.setSource(buffer, key);
+
+        // 尾部不在数据区内，填满数据区也不会覆盖
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0x55);
+        }
+        buffer.flip();
+        assertEquals(key, DatagramBufferPool.getSource(buffer));
+        assertEquals(0x0A000007L, key);
+        assertEquals(key, DatagramBufferPool.sourceKey(new InetSocketAddress("10.0.0.7", 40000)));
+        assertNotEquals(key, DatagramBufferPool.sourceKey(new InetSocketAddress("10.0.0.8", 19211)));
+        assertNotEquals(key, DatagramBufferPool.sourceKey(new InetSocketAddress(InetAddress.getByName("::1"), 1)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 全局在途上限与公平排队测试
+ */
+class FairRequestLimiterTest {
+    private static final long QUEUE_MS = 30_000;
+
+    @Test
+    void testLimitsInFlightAndHandsOffOnCompletion() throws Exception {
+        FairRequestLimiter limiter = new FairRequestLimiter(2, QUEUE_MS);
+        List<CompletableFuture<String>> upstream = new ArrayList<>();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(limiter.submit("a", () -> {
+                CompletableFuture<String> f = new CompletableFuture<>();
+                upstream.add(f);
+                return f;
+            }));
+        }
+        assertEquals(2, upstream.size());
+        assertEquals(2, limiter.getInFlightCount());
+        assertEquals(1, limiter.getQueuedCount());
+
+        upstream.get(0).complete("r0");
+        assertEquals("r0", results.get(0).get());
+        assertEquals(3, upstream.size());
+        assertEquals(2, limiter.getInFlightCount());
+        assertEquals(0, limiter.getQueuedCount());
+
+        upstream.get(1).complete("r1");
+        upstream.get(2).completeExceptionally(new TimeoutException());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> results.get(2).get());
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(0, limiter.getInFlightCount());
+    }
+
+    @Test
+    void testQueuedClientsAreServedRoundRobin() {
+        FairRequestLimiter limiter = new FairRequestLimiter(1, QUEUE_MS);
+        List<String> started = new ArrayList<>();
+        List<CompletableFuture<String>> upstream = new ArrayList<>();
+
+        // 占住唯一的许可，随后A一次堆积6个请求，B和C各2个
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        limiter.submit("x", () -> blocker);
+        for (int i = 0; i < 6; i++) {
+            submit(limiter, "A", started, upstream);
+        }
+        for (int i = 0; i < 2; i++) {
+            submit(limiter, "B", started, upstream);
+            submit(limiter, "C", started, upstream);
+        }
+
+        blocker.complete("x");
+        while (started.size() < 10) {
+            upstream.get(started.size() - 1).complete("done");
+        }
+        assertEquals(List.of("A", "B", "C", "A", "B", "C", "A", "A", "A", "A"), started);
+    }
+
+    private static void submit(FairRequestLimiter limiter, String client, List<String> started,
+                               List<CompletableFuture<String>> upstream) {
+        limiter.submit(client, () -> {
+            started.add(client);
+            CompletableFuture<String> f = new CompletableFuture<>();
+            upstream.add(f);
+            return f;
+        });
+    }
+
+    @Test
+    void testCancelledQueuedRequestIsNeverSent() {
+        FairRequestLimiter limiter = new FairRequestLimiter(1, QUEUE_MS);
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        limiter.submit("a", () -> blocker);
+        boolean[] sent = new boolean[1];
+        CompletableFuture<String> queued = limiter.submit("b", () -> {
+            sent[0] = true;
+            return CompletableFuture.completedFuture("b");
+        });
+        assertEquals(1, limiter.getQueuedCount());
+
+        queued.cancel(false);
+        assertEquals(0, limiter.getQueuedCount());
+        blocker.complete("a");
+        assertFalse(sent[0]);
+        assertEquals(0, limiter.getInFlightCount());
+    }
+
+    @Test
+    void testRequestQueuedTooLongTimesOut() throws Exception {
+        FairRequestLimiter limiter = new FairRequestLimiter(1, 0);
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        limiter.submit("a", () -> blocker);
+        CompletableFuture<String> queued = limiter.submit("b", () -> CompletableFuture.completedFuture("b"));
+
+        Thread.sleep(2);
+        blocker.complete("a");
+        ExecutionException e = assertThrows(ExecutionException.class, queued::get);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertEquals(0, limiter.getInFlightCount());
+    }
+
+    @Test
+    void testSynchronousCompletionsDoNotRecurse() {
+        FairRequestLimiter limiter = new FairRequestLimiter(1, QUEUE_MS);
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        limiter.submit("a", () -> blocker);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            results.add(limiter.submit("c" + (i % 7), () -> CompletableFuture.completedFuture("hit")));
+        }
+
+        blocker.complete("a");
+        assertTrue(results.stream().allMatch(f -> "hit".equals(f.getNow(null))));
+        assertEquals(0, limiter.getInFlightCount());
+        assertEquals(0, limiter.getQueuedCount());
+    }
+}
@@ -0,0 +1,106 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentSplitter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片分发器测试：同一会话固定由同一通道线程重组
+ */
+class FragmentDispatcherTest {
+
+    @Test
+    void testLaneIndexIsStableAndInRange() {
+        for (long sessionId = 0; sessionId < 1000; sessionId++) {
+            int lane = FragmentDispatcher.laneIndex(sessionId, 6);
+            assertTrue(lane >= 0 && lane < 6);
+            assertEquals(lane, FragmentDispatcher.laneIndex(sessionId, 6));
+        }
+        assertEquals(0, FragmentDispatcher.laneIndex(0xFFFFFFFFL, 1));
+    }
+
+    @Test
+    void testMaxHeldBuffersCoversRoundedQueuesAndInProcessPackets() {
+        // 队列容量取整到1024，每个通道另有一个正在处理的数据报
+        assertEquals(4 * 1025, FragmentDispatcher.maxHeldBuffers(4, 1000));
+        assertEquals(3, FragmentDispatcher.maxHeldBuffers(0, 1));
+    }
+
+    @Test
+    void testSessionsAreReassembledOnTheirOwnLane() throws Exception {
+        int sessionCount = 32;
+        DatagramBufferPool pool = new DatagramBufferPool(64, 256);
+        Map<Long, Set<String>> threadsBySession = new ConcurrentHashMap<>();
+        Map<Long, byte[]> completed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(sessionCount);
+
+        FragmentDispatcher dispatcher = new FragmentDispatcher(4, 256, 3000, pool, (packet, reassembler) -> {
+            FragmentHeader header = FragmentHeader.decode(packet);
+            threadsBySession.computeIfAbsent(header.getSessionId(), k -> ConcurrentHashMap.newKeySet())
+                .add(Thread.currentThread().getName());
+            packet.limit(packet.position() + header.getCurrentSize());
+            ByteBuffer data = reassembler.addFragment(header, packet);
+            if (data != null) {
+                byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                completed.put(header.getSessionId(), bytes);
+                done.countDown();
+            }
+        });
+        dispatcher.start();
+
+        // 交错投递各会话的分片
+        FragmentSplitter splitter = new FragmentSplitter(50);
+        List<List<byte[]>> sessions = new ArrayList<>();
+        for (int s = 0; s < sessionCount; s++) {
+            sessions.add(splitter.split(payload(s)));
+        }
+        for (int i = 0; ; i++) {
+            boolean any = false;
+            for (List<byte[]> fragments : sessions) {
+                if (i < fragments.size()) {
+                    any = true;
+                    ByteBuffer buffer = pool.acquire();
+                    buffer.put(fragments.get(i)).flip();
+                    while (!dispatcher.dispatch(FragmentHeader.peekSessionId(buffer), buffer)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+            if (!any) {
+                break;
+            }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "部分会话未完成重组");
+        dispatcher.shutdown();
+
+        assertEquals(sessionCount, completed.size());
+        for (Set<String> threads : threadsBySession.values()) {
+            assertEquals(1, threads.size(), "同一会话的分片应当只在一个通道线程上处理");
+        }
+        for (int s = 0; s < sessionCount; s++) {
+            byte[] expected = payload(s);
+            assertTrue(completed.values().stream().anyMatch(d -> java.util.Arrays.equals(d, expected)));
+        }
+    }
+
+    private byte[] payload(int seed) {
+        byte[] data = new byte[300 + seed];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (seed * 31 + i);
+        }
+        return data;
+    }
+}
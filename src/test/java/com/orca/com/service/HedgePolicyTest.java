@@ -0,0 +1,64 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对冲策略测试
+ */
+class HedgePolicyTest {
+
+    @Test
+    void testDelayUsesMaxUntilEnoughSamples() {
+        HedgePolicy policy = new HedgePolicy(95, 10, 500, 10);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), policy.getDelayNanos());
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), policy.getDelayNanos());
+    }
+
+    @Test
+    void testDelayTracksPercentileWithinBounds() {
+        HedgePolicy policy = new HedgePolicy(95, 10, 500, 10);
+        // 1..100 毫秒各一次：p95 为 95 毫秒
+        for (int round = 0; round < 10; round++) {
+            for (int ms = 1; ms <= 100; ms++) {
+                policy.recordLatency(TimeUnit.MILLISECONDS.toNanos(ms));
+            }
+        }
+        long delayMs = TimeUnit.NANOSECONDS.toMillis(policy.getDelayNanos());
+        assertTrue(delayMs >= 93 && delayMs <= 97, "p95 delay " + delayMs);
+
+        HedgePolicy clamped = new HedgePolicy(95, 10, 50, 10);
+        for (int i = 0; i < 1024; i++) {
+            clamped.recordLatency(TimeUnit.MILLISECONDS.toNanos(i % 2 == 0 ? 1 : 400));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), clamped.getDelayNanos());
+        HedgePolicy fast = new HedgePolicy(95, 10, 50, 10);
+        for (int i = 0; i < 1024; i++) {
+            fast.recordLatency(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), fast.getDelayNanos());
+    }
+
+    @Test
+    void testBudgetLimitsHedgeRate() {
+        HedgePolicy policy = new HedgePolicy(95, 10, 500, 10);
+        // 初始额度一次
+        assertTrue(policy.tryAcquire());
+        assertFalse(policy.tryAcquire());
+
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest();
+            if (policy.tryAcquire()) {
+                hedges++;
+            }
+        }
+        assertEquals(100, hedges);
+    }
+}
@@ -0,0 +1,79 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多生产者单消费者环形队列测试
+ */
+class MpscRingTest {
+
+    @Test
+    void testOfferPollInOrderAndFull() {
+        MpscRing<Integer> ring = new MpscRing<>(3);
+        assertEquals(4, ring.capacity());
+        assertTrue(ring.isEmpty());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(99), "队列满时应当拒绝");
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+
+        // 绕回后仍可继续使用
+        assertTrue(ring.offer(5));
+        assertEquals(5, ring.poll());
+    }
+
+    @Test
+    void testConcurrentProducersDeliverEveryElementOnce() throws Exception {
+        MpscRing<Integer> ring = new MpscRing<>(256);
+        int producers = 4;
+        int perProducer = 5_000;
+        CountDownLatch startGate = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread t = new Thread(() -> {
+                try {
+                    startGate.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        startGate.countDown();
+        Set<Integer> seen = new HashSet<>();
+        while (seen.size() < producers * perProducer) {
+            Integer value = ring.poll();
+            if (value != null) {
+                assertTrue(seen.add(value), "重复出队: " + value);
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(ring.poll());
+    }
+}
@@ -0,0 +1,184 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 限速批量发送器测试
+ */
+class PacedSenderTest {
+
+    @Test
+    void testTokenBucketAllowsBurstThenPaces() {
+        TokenBucket bucket = new TokenBucket(1000, 500);
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(10); // 桶已装满
+        assertEquals(0, bucket.reserve(500, now));
+        // 桶已空，再取100字节需要等待0.1秒
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve(100, now), 1000);
+        // 欠账还清后按速率补充
+        assertEquals(0, bucket.reserve(100, now + TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    @Test
+    void testSendDoesNotBlockAndDrainsQueue() throws Exception {
+        RecordingChannel channel = new RecordingChannel(0);
+        PacedSender sender = new PacedSender(channel, 100, 64, 0, 0);
+        sender.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(sender.send(i, ByteBuffer.allocate(250), e -> fail(e)));
+            }
+            // 每个请求3个分片
+            assertTrue(channel.awaitDatagrams(30));
+            assertEquals(FragmentHeader.HEADER_SIZE + 100, channel.sizes.get(0));
+            assertEquals(FragmentHeader.HEADER_SIZE + 50, channel.sizes.get(2));
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    void testRejectsBeforeStart() {
+        PacedSender sender = new PacedSender(new RecordingChannel(0), 100, 2, 0, 0);
+        // 未启动时不接收
+        assertFalse(sender.send(1, ByteBuffer.allocate(10), e -> { }));
+    }
+
+    @Test
+    void testPacesDatagramsBeyondBurst() throws Exception {
+        RecordingChannel channel = new RecordingChannel(0);
+        // 每个数据报 15+985=1000 字节，速率 20000 字节/秒，突发 2000 字节
+        PacedSender sender = new PacedSender(channel, 985, 16, 20_000, 2_000);
+        sender.start();
+        try {
+            long start = System.nanoTime();
+            assertTrue(sender.send(1, ByteBuffer.allocate(985 * 6), e -> fail(e)));
+            assertTrue(channel.awaitDatagrams(6));
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // 前2个数据报在突发额度内，其余4000字节需要约200毫秒
+            assertTrue(elapsedMs >= 180, "elapsed " + elapsedMs + "ms");
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    void testWriteFailureIsReported() throws Exception {
+        RecordingChannel channel = new RecordingChannel(1);
+        PacedSender sender = new PacedSender(channel, 100, 16, 0, 0);
+        sender.start();
+        try {
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            CountDownLatch failed = new CountDownLatch(1);
+            assertTrue(sender.send(7, ByteBuffer.allocate(10), e -> {
+                failure.set(e);
+                failed.countDown();
+            }));
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, failure.get());
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    @Test
+    void testRetransmitsOnlyNackedFragments() throws Exception {
+        RecordingChannel channel = new RecordingChannel(0);
+        PacedSender sender = new PacedSender(channel, new FragmentWriter(100), 16, null, 4);
+        sender.start();
+        try {
+            assertTrue(sender.send(1, ByteBuffer.allocate(350), e -> fail(e)));
+            assertTrue(channel.awaitDatagrams(4));
+            long sessionId = FragmentHeader.decode(channel.datagrams.get(0)).getSessionId();
+
+            assertTrue(sender.retransmit(sessionId, new int[]{1, 3}));
+            // 未保留的会话被忽略
+            assertTrue(sender.retransmit(sessionId + 1, new int[]{0}));
+            assertTrue(channel.awaitDatagrams(6));
+            FragmentHeader first = FragmentHeader.decode(channel.datagrams.get(4));
+            FragmentHeader second = FragmentHeader.decode(channel.datagrams.get(5));
+            assertEquals(sessionId, first.getSessionId());
+            assertEquals(1, first.getCurrentPacket());
+            assertEquals(3, second.getCurrentPacket());
+            assertEquals(50, second.getCurrentSize());
+            assertEquals(FragmentHeader.FLAG_RETRANSMIT, second.getFlags());
+            Thread.sleep(50);
+            assertEquals(6, channel.sizes.size());
+        } finally {
+            sender.shutdown();
+        }
+    }
+
+    /**
+     * 记录每次写出的数据报；failures>0时前几次写出抛出IOException
+     */
+    private static class RecordingChannel implements GatheringByteChannel {
+        private final List<Integer> sizes = new CopyOnWriteArrayList<>();
+        private final List<byte[]> datagrams = new CopyOnWriteArrayList<>();
+        private int failures;
+
+        RecordingChannel(int failures) {
+            this.failures = failures;
+        }
+
+        boolean awaitDatagrams(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sizes.size() < count) {
+                if (System.nanoTime() - deadline > 0) {
+                    return false;
+                }
+                Thread.sleep(5);
+            }
+            return true;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (failures > 0) {
+                failures--;
+                throw new IOException("simulated");
+            }
+            ByteArrayOutputStream datagram = new ByteArrayOutputStream();
+            for (int i = offset; i < offset + length; i++) {
+                byte[] bytes = new byte[srcs[i].remaining()];
+                srcs[i].get(bytes);
+                datagram.write(bytes, 0, bytes.length);
+            }
+            datagrams.add(datagram.toByteArray());
+            sizes.add(datagram.size());
+            return datagram.size();
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) throws IOException {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
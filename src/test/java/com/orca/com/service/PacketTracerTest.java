@@ -0,0 +1,94 @@
+package com.orca.com.service;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.orca.com.protocol.FragmentHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 逐包跟踪测试
+ */
+class PacketTracerTest {
+    private final Logger traceLogger = (Logger) LoggerFactory.getLogger("com.orca.trace");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void attachAppender() {
+        appender.start();
+        traceLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        traceLogger.detachAppender(appender);
+    }
+
+    @Test
+    void testInactiveByDefault() {
+        PacketTracer tracer = new PacketTracer(0);
+        assertFalse(tracer.isActive());
+        assertFalse(tracer.isTracedRequest(1L));
+    }
+
+    @Test
+    void testTracesOnlySelectedSession() {
+        PacketTracer tracer = new PacketTracer(0);
+        tracer.traceSession(42L);
+        assertTrue(tracer.isActive());
+
+        tracer.onPacket(new FragmentHeader(7L, 2, 0, 4), datagram(7L), 0);
+        assertTrue(appender.list.isEmpty());
+
+        tracer.onPacket(new FragmentHeader(42L, 2, 1, 4), datagram(42L), 0);
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("session 42"));
+
+        tracer.untraceSession(42L);
+        assertFalse(tracer.isActive());
+    }
+
+    @Test
+    void testSamplesOneInN() {
+        PacketTracer tracer = new PacketTracer(10);
+        assertTrue(tracer.isActive());
+        for (int i = 0; i < 100; i++) {
+            tracer.onPacket(new FragmentHeader(i, 1, 0, 4), datagram(i), 0);
+        }
+        assertEquals(10, appender.list.size());
+    }
+
+    @Test
+    void testRequestTracingAndClear() {
+        PacketTracer tracer = new PacketTracer(0);
+        tracer.traceRequest(5L);
+        tracer.traceSession(9L);
+        tracer.setSampleEvery(100);
+
+        assertTrue(tracer.isTracedRequest(5L));
+        assertFalse(tracer.isTracedRequest(6L));
+        assertEquals(Set.of(9L), tracer.getTracedSessions());
+
+        tracer.clear();
+        assertFalse(tracer.isActive());
+        assertFalse(tracer.isTracedRequest(5L));
+        assertEquals(0, tracer.getSampleEvery());
+    }
+
+    private static ByteBuffer datagram(long sessionId) {
+        ByteBuffer buffer = ByteBuffer.allocate(FragmentHeader.HEADER_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        new FragmentHeader(sessionId, 1, 0, 4).encode(buffer);
+        buffer.putInt(0x01020304);
+        buffer.flip();
+        return buffer;
+    }
+}
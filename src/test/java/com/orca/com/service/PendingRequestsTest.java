@@ -0,0 +1,93 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.UdpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 等待响应请求表测试
+ */
+class PendingRequestsTest {
+
+    @Test
+    void testExpiredRequestsCompleteExceptionallyAndAreRemoved() {
+        PendingRequests pending = new PendingRequests(1000);
+        CompletableFuture<UdpResponse> expiring = new CompletableFuture<>();
+        CompletableFuture<UdpResponse> answered = new CompletableFuture<>();
+        pending.register(1L, expiring);
+        pending.register(2L, answered);
+
+        assertSame(answered, pending.remove(2L));
+        assertEquals(0, pending.expire(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500)));
+        assertEquals(1, pending.size());
+
+        assertEquals(1, pending.expire(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1200)));
+        assertEquals(0, pending.size());
+        ExecutionException e = assertThrows(ExecutionException.class, expiring::get);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertNull(pending.remove(1L));
+        assertFalse(answered.isDone());
+    }
+
+    @Test
+    void testDuplicateRequestIdSupersedesPrevious() {
+        PendingRequests pending = new PendingRequests(1000);
+        CompletableFuture<UdpResponse> first = new CompletableFuture<>();
+        CompletableFuture<UdpResponse> second = new CompletableFuture<>();
+        pending.register(7L, first);
+        pending.register(7L, second);
+
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(1, pending.size());
+        assertSame(second, pending.remove(7L));
+    }
+
+    @Test
+    void testConcurrentRegistrationsExpireAcrossStripes() throws Exception {
+        PendingRequests pending = new PendingRequests(1000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = t * 1000L;
+            threads[t] = new Thread(() -> {
+                for (long id = base; id < base + 1000; id++) {
+                    pending.register(id, new CompletableFuture<>());
+                    if (id % 2 == 0) {
+                        assertNotNull(pending.remove(id));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(2000, pending.size());
+        assertEquals(2000, pending.expire(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1200)));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void testTimerThreadExpiresAndShutdownFailsRemaining() throws Exception {
+        PendingRequests pending = new PendingRequests(150);
+        pending.start();
+        try {
+            CompletableFuture<UdpResponse> future = new CompletableFuture<>();
+            pending.register(1L, future);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, e.getCause());
+            assertEquals(0, pending.size());
+        } finally {
+            CompletableFuture<UdpResponse> remaining = new CompletableFuture<>();
+            pending.register(2L, remaining);
+            pending.shutdown();
+            assertTrue(remaining.isCompletedExceptionally());
+            assertEquals(0, pending.size());
+        }
+    }
+}
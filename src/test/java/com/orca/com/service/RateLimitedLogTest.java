@@ -0,0 +1,27 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 日志限频测试
+ */
+class RateLimitedLogTest {
+
+    @Test
+    void testOneEventPerIntervalWithSuppressedCount() throws Exception {
+        RateLimitedLog log = new RateLimitedLog(50);
+
+        assertTrue(log.tryAcquire());
+        assertEquals(0, log.drainSuppressed());
+        for (int i = 0; i < 100; i++) {
+            assertFalse(log.tryAcquire());
+        }
+
+        Thread.sleep(80);
+        assertTrue(log.tryAcquire());
+        assertEquals(100, log.drainSuppressed());
+        assertEquals(0, log.drainSuppressed());
+    }
+}
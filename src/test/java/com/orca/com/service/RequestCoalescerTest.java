@@ -0,0 +1,145 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.EvaluationConfigRequest;
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.UdpRequest;
+import com.orca.com.protocol.UdpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 请求合并测试
+ */
+class RequestCoalescerTest {
+
+    private final List<UdpRequest> sent = new ArrayList<>();
+    private final List<CompletableFuture<UdpResponse>> upstream = new ArrayList<>();
+
+    private final Function<UdpRequest, CompletableFuture<UdpResponse>> sender = request -> {
+        CompletableFuture<UdpResponse> future = new CompletableFuture<>();
+        sent.add(request);
+        upstream.add(future);
+        return future;
+    };
+
+    private static TerrainRequest terrainRequest(long requestId, double aLongitude) {
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(requestId);
+        request.setALongitude(aLongitude);
+        request.setDataSource(1);
+        return request;
+    }
+
+    private static TerrainResponse terrainResponse(long requestId) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(1);
+        TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+        item.setType(4);
+        item.setTerrainData(new byte[]{1, 2});
+        response.getItems().add(item);
+        return TerrainResponse.decode(response.encode());
+    }
+
+    @Test
+    void testIdenticalRequestsShareOneExchange() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(30000);
+
+        CompletableFuture<UdpResponse> first = coalescer.execute(terrainRequest(1, 116.3), sender);
+        CompletableFuture<UdpResponse> second = coalescer.execute(terrainRequest(2, 116.3), sender);
+        CompletableFuture<UdpResponse> other = coalescer.execute(terrainRequest(3, 116.4), sender);
+
+        assertEquals(2, sent.size());
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertEquals(2, coalescer.getInFlightCount());
+
+        upstream.get(0).complete(terrainResponse(1));
+
+        TerrainResponse firstResponse = (TerrainResponse) first.get(1, TimeUnit.SECONDS);
+        TerrainResponse secondResponse = (TerrainResponse) second.get(1, TimeUnit.SECONDS);
+        assertEquals(1, firstResponse.getRequestId());
+        assertEquals(2, secondResponse.getRequestId());
+        assertEquals(2, secondResponse.getView().getRequestId());
+        assertEquals(4, secondResponse.getItems().get(0).getType());
+        assertFalse(other.isDone());
+        assertEquals(1, coalescer.getInFlightCount());
+
+        // 交换结束后相同请求重新发送
+        coalescer.execute(terrainRequest(4, 116.3), sender);
+        assertEquals(3, sent.size());
+    }
+
+    @Test
+    void testFailureIsSharedAndDifferentTypesNotMerged() {
+        RequestCoalescer coalescer = new RequestCoalescer(30000);
+        EvaluationConfigRequest config1 = new EvaluationConfigRequest();
+        config1.setRequestId(10);
+        EvaluationConfigRequest config2 = new EvaluationConfigRequest();
+        config2.setRequestId(11);
+
+        CompletableFuture<UdpResponse> first = coalescer.execute(config1, sender);
+        CompletableFuture<UdpResponse> second = coalescer.execute(config2, sender);
+        coalescer.execute(terrainRequest(12, 0), sender);
+        assertEquals(2, sent.size());
+
+        upstream.get(0).completeExceptionally(new IllegalStateException("upstream down"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(1, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void testLeaderCancellationDoesNotFailFollowers() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(30000);
+
+        CompletableFuture<UdpResponse> leader = coalescer.execute(terrainRequest(1, 116.3), sender);
+        CompletableFuture<UdpResponse> follower = coalescer.execute(terrainRequest(2, 116.3), sender);
+        leader.cancel(false);
+
+        upstream.get(0).complete(terrainResponse(1));
+        assertEquals(2, follower.get(1, TimeUnit.SECONDS).getRequestId());
+        assertTrue(leader.isCancelled());
+    }
+
+    @Test
+    void testCancellationReachesSenderOnlyWhenAllCallersGiveUp() {
+        RequestCoalescer coalescer = new RequestCoalescer(30000);
+
+        CompletableFuture<UdpResponse> leader = coalescer.execute(terrainRequest(1, 116.3), sender);
+        CompletableFuture<UdpResponse> follower = coalescer.execute(terrainRequest(2, 116.3), sender);
+        leader.cancel(false);
+        assertFalse(upstream.get(0).isCancelled());
+        follower.cancel(false);
+        assertTrue(upstream.get(0).isCancelled());
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // 已放弃的交换不再接受合并
+        coalescer.execute(terrainRequest(3, 116.3), sender);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void testStaleFlightIsNotJoined() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(10);
+        coalescer.execute(terrainRequest(1, 116.3), sender);
+        Thread.sleep(30);
+
+        CompletableFuture<UdpResponse> retry = coalescer.execute(terrainRequest(2, 116.3), sender);
+        assertEquals(2, sent.size());
+
+        // 旧交换完成不影响新的在途记录
+        upstream.get(0).complete(terrainResponse(1));
+        assertEquals(1, coalescer.getInFlightCount());
+        upstream.get(1).complete(terrainResponse(2));
+        assertEquals(2, retry.get(1, TimeUnit.SECONDS).getRequestId());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+}
@@ -0,0 +1,94 @@
+package com.orca.com.service;
+
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 地形响应缓存测试
+ */
+class TerrainResponseCacheTest {
+
+    private static TerrainRequest request(long requestId, double aLongitude, int dataSource) {
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(requestId);
+        request.setALongitude(aLongitude);
+        request.setALatitude(39.9);
+        request.setBLongitude(116.5);
+        request.setBLatitude(40.0);
+        request.setDataSource(dataSource);
+        return request;
+    }
+
+    private static TerrainResponse response(long requestId, int terrainSize) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(1);
+        TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+        item.setALongitude(116.3);
+        item.setType(2);
+        item.setTerrainData(new byte[terrainSize]);
+        response.getItems().add(item);
+        return TerrainResponse.decode(response.encode());
+    }
+
+    @Test
+    void testHitRewritesRequestId() {
+        TerrainResponseCache cache = new TerrainResponseCache(16, 1 << 20, 60000);
+
+        assertNull(cache.get(request(1, 116.3, 1)));
+        cache.put(request(1, 116.3, 1), response(1, 10));
+
+        TerrainResponse hit = cache.get(request(2, 116.3, 1));
+        assertNotNull(hit);
+        assertEquals(2, hit.getRequestId());
+        assertEquals(2, hit.getView().getRequestId());
+        assertEquals(2, hit.getItems().get(0).getType());
+        assertEquals(10, hit.getItems().get(0).getTerrainData().length);
+
+        // 数据源或坐标不同则不命中，-0.0 与 0.0 视为同一坐标
+        assertNull(cache.get(request(3, 116.3, 2)));
+        assertNull(cache.get(request(3, 116.31, 1)));
+        cache.put(request(4, -0.0, 1), response(4, 0));
+        assertNotNull(cache.get(request(5, 0.0, 1)));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    void testLruEvictionByEntriesAndBytes() {
+        TerrainResponseCache cache = new TerrainResponseCache(2, 1 << 20, 60000);
+        cache.put(request(1, 1, 1), response(1, 0));
+        cache.put(request(2, 2, 1), response(2, 0));
+        assertNotNull(cache.get(request(9, 1, 1))); // 1 变为最近访问
+        cache.put(request(3, 3, 1), response(3, 0));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(request(9, 2, 1)));
+        assertNotNull(cache.get(request(9, 1, 1)));
+        assertEquals(1, cache.getEvictionCount());
+
+        TerrainResponseCache small = new TerrainResponseCache(100, 250, 60000);
+        small.put(request(1, 1, 1), response(1, 100));
+        small.put(request(2, 2, 1), response(2, 100));
+        assertEquals(1, small.size());
+        assertTrue(small.getTotalBytes() <= 250);
+        small.put(request(3, 3, 1), response(3, 1000)); // 超过上限，不缓存
+        assertNull(small.get(request(9, 3, 1)));
+        assertNotNull(small.get(request(9, 2, 1)));
+    }
+
+    @Test
+    void testExpiredEntryIsMiss() throws Exception {
+        TerrainResponseCache cache = new TerrainResponseCache(16, 1 << 20, 20);
+        cache.put(request(1, 1, 1), response(1, 0));
+        Thread.sleep(50);
+
+        assertNull(cache.get(request(2, 1, 1)));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getTotalBytes());
+    }
+}
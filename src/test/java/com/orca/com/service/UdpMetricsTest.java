@@ -0,0 +1,62 @@
+package com.orca.com.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UDP网关指标测试
+ */
+class UdpMetricsTest {
+
+    @Test
+    void testRequestLatencyTaggedByTypeAndOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UdpMetrics metrics = new UdpMetrics(registry);
+
+        metrics.requestCompleted("TerrainRequest", false, null, TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.requestCompleted("TerrainRequest", false, null, TimeUnit.MILLISECONDS.toNanos(7));
+        metrics.requestCompleted("TerrainRequest", true, null, 1000);
+        metrics.requestCompleted("EvaluationConfigRequest", false,
+            new CompletionException(new TimeoutException()), 1000);
+        metrics.requestCompleted("EvaluationConfigRequest", false, new IllegalStateException(), 1000);
+
+        assertEquals(2, registry.get("orca.udp.request.latency")
+            .tags("type", "TerrainRequest", "outcome", "success").timer().count());
+        assertEquals(12, registry.get("orca.udp.request.latency")
+            .tags("type", "TerrainRequest", "outcome", "success").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get("orca.udp.request.latency").tag("outcome", "cached").timer().count());
+        assertEquals(1, registry.get("orca.udp.request.latency").tag("outcome", "timeout").timer().count());
+        assertEquals(1, registry.get("orca.udp.request.latency").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void testDatagramAndSessionCounters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UdpMetrics metrics = new UdpMetrics(registry);
+
+        metrics.datagramReceived(1400);
+        metrics.datagramReceived(100);
+        metrics.datagramSent(50);
+        metrics.onCompleted(3, TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.onExpired(10);
+        metrics.checksumMismatch();
+        metrics.laneFull();
+        metrics.runt();
+
+        assertEquals(2, registry.get("orca.udp.datagrams").tag("direction", "in").counter().count());
+        assertEquals(1500, registry.get("orca.udp.bytes").tag("direction", "in").counter().count());
+        assertEquals(50, registry.get("orca.udp.bytes").tag("direction", "out").counter().count());
+        assertEquals(1, registry.get("orca.udp.reassembly.sessions").tag("outcome", "completed").counter().count());
+        assertEquals(1, registry.get("orca.udp.reassembly.sessions").tag("outcome", "expired").counter().count());
+        assertEquals(3, registry.get("orca.udp.reassembly.fragments").summary().totalAmount());
+        assertEquals(1, metrics.getChecksumFailureCount());
+        assertEquals(1, registry.get("orca.udp.datagrams.dropped").tag("reason", "lane-full").counter().count());
+        assertEquals(1, registry.get("orca.udp.datagrams.dropped").tag("reason", "runt").counter().count());
+    }
+}
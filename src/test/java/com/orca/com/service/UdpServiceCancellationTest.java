@@ -0,0 +1,106 @@
+package com.orca.com.service;
+
+import com.orca.com.config.UdpProperties;
+import com.orca.com.protocol.ByteOrderUtils;
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentSplitter;
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.UdpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 取消传递测试：调用方放弃的排队请求经合并层传到限流器后出队，不再占用许可、不再发往上游
+ */
+class UdpServiceCancellationTest {
+    private static final int LISTEN_PORT = 19280;
+    private static final int BACKEND_PORT = 19281;
+
+    private UdpService udpService;
+    private DatagramSocket backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        backend = new DatagramSocket(BACKEND_PORT, InetAddress.getByName("127.0.0.1"));
+        backend.setSoTimeout(2000);
+        UdpProperties properties = new UdpProperties();
+        properties.setListenHost("127.0.0.1");
+        properties.setListenPort(LISTEN_PORT);
+        properties.setSendHost("127.0.0.1");
+        properties.setSendPort(BACKEND_PORT);
+        properties.setMaxInFlightRequests(1);
+        udpService = new UdpService(properties);
+        udpService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        udpService.stop();
+        backend.close();
+    }
+
+    private static TerrainRequest request(long requestId, double aLongitude) {
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(requestId);
+        request.setALongitude(aLongitude);
+        request.setDataSource(1);
+        return request;
+    }
+
+    /**
+     * 接收一个上游请求并回复空响应，返回收到的requestId
+     */
+    private long answerOne() throws IOException {
+        byte[] buf = new byte[2048];
+        backend.receive(new DatagramPacket(buf, buf.length));
+        long requestId = ByteOrderUtils.wrapLittleEndian(buf).getLong(FragmentHeader.HEADER_SIZE + 2);
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(0);
+        for (byte[] fragment : new FragmentSplitter(1000).split(response.encode())) {
+            backend.send(new DatagramPacket(fragment, fragment.length, InetAddress.getByName("127.0.0.1"), LISTEN_PORT));
+        }
+        return requestId;
+    }
+
+    @Test
+    void testCancelledQueuedRequestLeavesQueueAndIsNeverSent() throws Exception {
+        CompletableFuture<UdpResponse> first = udpService.sendRequest(request(1L, 116.1), "a");
+        CompletableFuture<UdpResponse> second = udpService.sendRequest(request(2L, 116.2), "b");
+        // 与second相同的请求合并进同一次交换
+        CompletableFuture<UdpResponse> merged = udpService.sendRequest(request(3L, 116.2), "c");
+        assertEquals(1, udpService.getLimiter().getQueuedCount());
+
+        // 只有一个调用方放弃时请求仍然排队
+        second.cancel(false);
+        assertEquals(1, udpService.getLimiter().getQueuedCount());
+        merged.cancel(false);
+        assertEquals(0, udpService.getLimiter().getQueuedCount());
+        assertEquals(1, udpService.getCoalescer().getInFlightCount());
+
+        assertEquals(1L, answerOne());
+        assertNotNull(first.get(2, TimeUnit.SECONDS));
+        // 许可归还后没有请求再发往上游
+        backend.setSoTimeout(300);
+        assertThrows(SocketTimeoutException.class, this::answerOne);
+        assertEquals(0, udpService.getLimiter().getInFlightCount());
+
+        // 相同请求之后重新发送
+        CompletableFuture<UdpResponse> retry = udpService.sendRequest(request(4L, 116.2), "b");
+        backend.setSoTimeout(2000);
+        assertEquals(4L, answerOne());
+        assertEquals(4L, retry.get(2, TimeUnit.SECONDS).getRequestId());
+    }
+}
@@ -0,0 +1,129 @@
+package com.orca.com.service;
+
+import com.orca.com.config.UdpProperties;
+import com.orca.com.protocol.ByteOrderUtils;
+import com.orca.com.protocol.EvaluationConfigRequest;
+import com.orca.com.protocol.EvaluationConfigResponse;
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.UdpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对冲请求测试：一个上游响应很慢，对冲请求发往另一个上游并先返回
+ */
+class UdpServiceHedgingTest {
+    private static final int LISTEN_PORT = 19250;
+    private static final int SLOW_PORT = 19251;
+    private static final int FAST_PORT = 19252;
+
+    private UdpService udpService;
+    private DatagramSocket slowBackend;
+    private DatagramSocket fastBackend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        slowBackend = new DatagramSocket(SLOW_PORT, loopback);
+        fastBackend = new DatagramSocket(FAST_PORT, loopback);
+        startBackend(slowBackend, 1500);
+        startBackend(fastBackend, 0);
+
+        UdpProperties properties = new UdpProperties();
+        properties.setListenHost("127.0.0.1");
+        properties.setListenPort(LISTEN_PORT);
+        // 轮询：首个请求落在慢上游上
+        properties.setUpstreams(List.of("127.0.0.1:" + SLOW_PORT, "127.0.0.1:" + FAST_PORT));
+        properties.setHedgeEnabled(true);
+        properties.setHedgeMaxDelayMs(100);
+        properties.setResponseCacheMaxEntries(0);
+        udpService = new UdpService(properties);
+        udpService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        udpService.stop();
+        slowBackend.close();
+        fastBackend.close();
+    }
+
+    /**
+     * 模拟后端：收到请求后延迟 delayMs，以请求中的 requestId 回复一个单分片响应
+     */
+    private static void startBackend(DatagramSocket socket, long delayMs) {
+        Thread thread = new Thread(() -> {
+            byte[] buf = new byte[2048];
+            try {
+                while (!socket.isClosed()) {
+                    DatagramPacket packet = new DatagramPacket(buf, buf.length);
+                    socket.receive(packet);
+                    long requestId = ByteOrderUtils.wrapLittleEndian(buf).getLong(FragmentHeader.HEADER_SIZE + 2);
+                    Thread.sleep(delayMs);
+                    byte[] response = responsePacket(requestId, delayMs > 0 ? "slow" : "fast");
+                    socket.send(new DatagramPacket(response, response.length,
+                        InetAddress.getByName("127.0.0.1"), LISTEN_PORT));
+                }
+            } catch (Exception e) {
+                // 关闭时退出
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static byte[] responsePacket(long requestId, String backend) {
+        EvaluationConfigResponse response = new EvaluationConfigResponse();
+        response.setRequestId(requestId);
+        response.setTestBackground(backend);
+        response.setEvaluationPurpose("hedge");
+        byte[] payload = response.encode();
+        byte[] header = new FragmentHeader(requestId & 0xFFFFFFFFL, 1, 0, payload.length).encode();
+        byte[] packet = new byte[header.length + payload.length];
+        System.arraycopy(header, 0, packet, 0, header.length);
+        System.arraycopy(payload, 0, packet, header.length, payload.length);
+        return packet;
+    }
+
+    @Test
+    void testHedgeToFastBackendWins() throws Exception {
+        EvaluationConfigRequest request = new EvaluationConfigRequest();
+        request.setRequestId(7001L);
+        request.setResponseTerminal(1);
+
+        long start = System.nanoTime();
+        CompletableFuture<UdpResponse> future = udpService.sendRequest(request);
+        EvaluationConfigResponse response = (EvaluationConfigResponse) future.get(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(7001L, response.getRequestId());
+        assertEquals("fast", response.getTestBackground());
+        assertTrue(elapsedMs < 1000, "took " + elapsedMs + " ms");
+
+        // 慢上游随后到达的响应属于已放弃的一方，被丢弃而不影响结果
+        Thread.sleep(1800);
+        assertEquals("fast", ((EvaluationConfigResponse) future.get()).getTestBackground());
+    }
+
+    @Test
+    void testEachUpstreamSenderThreadNamedAfterEndpoint() {
+        Set<String> names = Thread.getAllStackTraces().keySet().stream()
+            .map(Thread::getName)
+            .collect(Collectors.toSet());
+        assertTrue(names.contains("UdpService-Sender-0-127.0.0.1:" + SLOW_PORT), names.toString());
+        assertTrue(names.contains("UdpService-Sender-1-127.0.0.1:" + FAST_PORT), names.toString());
+    }
+}
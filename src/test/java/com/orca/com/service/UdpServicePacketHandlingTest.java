@@ -2,6 +2,8 @@ package com.orca.com.service;
 
 import com.orca.com.config.UdpProperties;
 import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentReassembler;
+import com.orca.com.protocol.FragmentSplitter;
 import com.orca.com.protocol.ResponseFactory;
 import com.orca.com.protocol.UdpResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,9 +13,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.lang.reflect.Method;
-import java.net.DatagramPacket;
-import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
@@ -58,17 +62,42 @@ class UdpServicePacketHandlingTest {
             packetData[headerBytes.length + i] = (byte) i;
         }
         
-        DatagramPacket packet = new DatagramPacket(packetData, packetData.length);
-        packet.setAddress(InetAddress.getByName("127.0.0.1"));
-        packet.setPort(12345);
+        ByteBuffer packet = ByteBuffer.wrap(packetData).order(ByteOrder.LITTLE_ENDIAN);
         
         // 反射调用私有方法 processReceivedPacket
-        Method processMethod = UdpService.class.getDeclaredMethod("processReceivedPacket", DatagramPacket.class);
+        Method processMethod = UdpService.class.getDeclaredMethod("processReceivedPacket",
+            ByteBuffer.class, FragmentReassembler.class);
         processMethod.setAccessible(true);
         
         // 调用方法，验证不抛出异常
-        processMethod.invoke(udpService, packet);
+        FragmentReassembler reassembler = new FragmentReassembler(1000);
+        processMethod.invoke(udpService, packet, reassembler);
+        reassembler.shutdown();
         
         // 如果没有抛出异常，说明修复生效
     }
+
+    /**
+     * 校验和不匹配的分片在重组之前被丢弃并计数
+     */
+    @Test
+    void testProcessReceivedPacket_DropsCorruptedChecksumFragment() throws Exception {
+        List<byte[]> fragments = new FragmentSplitter(100, true).split(new byte[150]);
+        byte[] corrupted = fragments.get(1).clone();
+        corrupted[corrupted.length - 1] ^= 0x01;
+        
+        Method processMethod = UdpService.class.getDeclaredMethod("processReceivedPacket",
+            ByteBuffer.class, FragmentReassembler.class);
+        processMethod.setAccessible(true);
+        FragmentReassembler reassembler = new FragmentReassembler(1000);
+        
+        processMethod.invoke(udpService, ByteBuffer.wrap(corrupted).order(ByteOrder.LITTLE_ENDIAN), reassembler);
+        assertEquals(1, udpService.getChecksumFailureCount());
+        assertEquals(0, reassembler.getSessionCount());
+        
+        processMethod.invoke(udpService, ByteBuffer.wrap(fragments.get(0)).order(ByteOrder.LITTLE_ENDIAN), reassembler);
+        assertEquals(1, udpService.getChecksumFailureCount());
+        assertEquals(1, reassembler.getSessionCount());
+        reassembler.shutdown();
+    }
 }
@@ -0,0 +1,96 @@
+package com.orca.com.service;
+
+import com.orca.com.config.UdpProperties;
+import com.orca.com.protocol.ByteOrderUtils;
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentSplitter;
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重组内存预算测试：大量声明了巨大分片数的伪造会话被拒绝，不影响正常响应的重组
+ */
+class UdpServiceReassemblyBudgetTest {
+    private static final int LISTEN_PORT = 19270;
+    private static final int BACKEND_PORT = 19271;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private UdpService udpService;
+    private DatagramSocket backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        backend = new DatagramSocket(BACKEND_PORT, InetAddress.getByName("127.0.0.1"));
+        UdpProperties properties = new UdpProperties();
+        properties.setListenHost("127.0.0.1");
+        properties.setListenPort(LISTEN_PORT);
+        properties.setSendHost("127.0.0.1");
+        properties.setSendPort(BACKEND_PORT);
+        properties.setResponseCacheMaxEntries(0);
+        properties.setReassemblyMaxBytes(64 * 1024);
+        udpService = new UdpService(properties, registry);
+        udpService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        udpService.stop();
+        backend.close();
+    }
+
+    private void send(byte[] datagram) throws IOException {
+        backend.send(new DatagramPacket(datagram, datagram.length, InetAddress.getByName("127.0.0.1"), LISTEN_PORT));
+    }
+
+    @Test
+    void testBogusSessionsRefusedWhileRealResponseCompletes() throws Exception {
+        // 每个伪造会话声明 60 x 1000 字节，预算只够一个
+        byte[] payload = new byte[1000];
+        for (int i = 0; i < 50; i++) {
+            FragmentHeader header = new FragmentHeader(100_000L + i, 60, 0, payload.length);
+            byte[] datagram = new byte[FragmentHeader.HEADER_SIZE + payload.length];
+            System.arraycopy(header.encode(), 0, datagram, 0, FragmentHeader.HEADER_SIZE);
+            send(datagram);
+        }
+
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(9001L);
+        request.setDataSource(1);
+        var future = udpService.sendRequest(request);
+
+        byte[] buf = new byte[2048];
+        backend.setSoTimeout(2000);
+        backend.receive(new DatagramPacket(buf, buf.length));
+        long requestId = ByteOrderUtils.wrapLittleEndian(buf).getLong(FragmentHeader.HEADER_SIZE + 2);
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(1);
+        TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+        item.setTerrainData(new byte[3000]);
+        response.getItems().add(item);
+        List<byte[]> fragments = new FragmentSplitter(1000).split(response.encode());
+        for (byte[] fragment : fragments) {
+            send(fragment);
+        }
+
+        TerrainResponse received = (TerrainResponse) future.get(5, TimeUnit.SECONDS);
+        assertEquals(1, received.getItems().size());
+        double refused = registry.get("orca.udp.reassembly.refused").tag("limit", "global").counter().count();
+        assertEquals(49, refused);
+        // 只剩占着预算的那个伪造会话
+        assertEquals(60_000, registry.get("orca.udp.reassembly.bytes").gauge().value());
+    }
+}
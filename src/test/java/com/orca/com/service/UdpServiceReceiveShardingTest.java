@@ -0,0 +1,108 @@
+package com.orca.com.service;
+
+import com.orca.com.config.UdpProperties;
+import com.orca.com.protocol.FragmentSplitter;
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.UdpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多接收线程（SO_REUSEPORT）测试：来自多个发送端的分片响应都能被正确重组
+ */
+class UdpServiceReceiveShardingTest {
+
+    private final int clientPort = 19218;
+    private final int serverPort = 19219;
+
+    private UdpService udpService;
+    private final List<DatagramSocket> senders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        UdpProperties properties = new UdpProperties();
+        properties.setListenHost("127.0.0.1");
+        properties.setListenPort(clientPort);
+        properties.setSendHost("127.0.0.1");
+        properties.setSendPort(serverPort);
+        properties.setMaxDatagramSize(1400);
+        properties.setReassemblyTimeoutMs(3000);
+        properties.setReceiveThreads(4);
+
+        udpService = new UdpService(properties);
+        udpService.start();
+
+        // 每个发送端使用不同的源端口，内核会把它们分散到不同的监听channel
+        for (int i = 0; i < 4; i++) {
+            senders.add(new DatagramSocket(0, InetAddress.getByName("127.0.0.1")));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (DatagramSocket sender : senders) {
+            sender.close();
+        }
+        if (udpService != null) {
+            udpService.stop();
+        }
+    }
+
+    @Test
+    void testFragmentedResponsesFromManySendersAreReassembled() throws Exception {
+        int requestCount = 16;
+        List<CompletableFuture<UdpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < requestCount; i++) {
+            TerrainRequest request = new TerrainRequest();
+            request.setRequestId(5000L + i);
+            request.setALongitude(116.0 + i); // 坐标各不相同，避免被合并为同一次请求
+            futures.add(udpService.sendRequest(request));
+        }
+
+        // 小分片强制每个响应拆成多个数据报
+        FragmentSplitter splitter = new FragmentSplitter(100);
+        InetAddress client = InetAddress.getByName("127.0.0.1");
+        for (int i = 0; i < requestCount; i++) {
+            DatagramSocket sender = senders.get(i % senders.size());
+            for (byte[] fragment : splitter.split(createResponse(5000L + i).encode())) {
+                sender.send(new DatagramPacket(fragment, fragment.length, client, clientPort));
+            }
+        }
+
+        for (int i = 0; i < requestCount; i++) {
+            UdpResponse response = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(5000L + i, response.getRequestId());
+            assertEquals(10, ((TerrainResponse) response).getItems().size());
+        }
+    }
+
+    private TerrainResponse createResponse(long requestId) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(10);
+        for (int i = 0; i < 10; i++) {
+            TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+            item.setALongitude(116.40 + i * 0.001);
+            item.setBLongitude(116.41 + i * 0.001);
+            item.setType(i);
+            item.setDensity(0.5f);
+            item.setField6(i);
+            item.setTerrainData(new byte[16]);
+            response.getItems().add(item);
+        }
+        return response;
+    }
+}
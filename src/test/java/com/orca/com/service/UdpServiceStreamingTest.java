@@ -0,0 +1,142 @@
+package com.orca.com.service;
+
+import com.orca.com.config.UdpProperties;
+import com.orca.com.protocol.ByteOrderUtils;
+import com.orca.com.protocol.FragmentHeader;
+import com.orca.com.protocol.FragmentSplitter;
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.UdpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 逐项推送测试：上游先发出除末尾分片外的全部分片，停顿后才发末尾分片，
+ * 收齐之前已到达的完整响应项应已交给监听器
+ */
+class UdpServiceStreamingTest {
+    private static final int LISTEN_PORT = 19260;
+    private static final int BACKEND_PORT = 19261;
+    private static final int ITEM_COUNT = 20;
+    private static final long LAST_FRAGMENT_DELAY_MS = 500;
+
+    private UdpService udpService;
+    private DatagramSocket backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        backend = new DatagramSocket(BACKEND_PORT, loopback);
+        startBackend();
+
+        UdpProperties properties = new UdpProperties();
+        properties.setListenHost("127.0.0.1");
+        properties.setListenPort(LISTEN_PORT);
+        properties.setSendHost("127.0.0.1");
+        properties.setSendPort(BACKEND_PORT);
+        properties.setResponseCacheMaxEntries(0);
+        udpService = new UdpService(properties);
+        udpService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        udpService.stop();
+        backend.close();
+    }
+
+    private void startBackend() {
+        Thread thread = new Thread(() -> {
+            byte[] buf = new byte[2048];
+            try {
+                while (!backend.isClosed()) {
+                    DatagramPacket packet = new DatagramPacket(buf, buf.length);
+                    backend.receive(packet);
+                    long requestId = ByteOrderUtils.wrapLittleEndian(buf).getLong(FragmentHeader.HEADER_SIZE + 2);
+                    List<byte[]> fragments = new FragmentSplitter(1000).split(response(requestId).encode());
+                    for (int i = 0; i < fragments.size(); i++) {
+                        if (i == fragments.size() - 1) {
+                            Thread.sleep(LAST_FRAGMENT_DELAY_MS);
+                        }
+                        byte[] fragment = fragments.get(i);
+                        backend.send(new DatagramPacket(fragment, fragment.length,
+                            InetAddress.getByName("127.0.0.1"), LISTEN_PORT));
+                    }
+                }
+            } catch (Exception e) {
+                // 关闭时退出
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static TerrainResponse response(long requestId) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+            item.setALongitude(116 + i);
+            item.setField6(i);
+            item.setTerrainData(new byte[300]);
+            response.getItems().add(item);
+        }
+        return response;
+    }
+
+    @Test
+    void testItemsArriveBeforeLastFragment() throws Exception {
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(8001L);
+        request.setDataSource(1);
+
+        List<Integer> offsets = new CopyOnWriteArrayList<>();
+        List<Integer> field6 = new CopyOnWriteArrayList<>();
+        AtomicReference<CompletableFuture<UdpResponse>> holder = new AtomicReference<>();
+        AtomicBoolean doneWhenStreamed = new AtomicBoolean();
+        CompletableFuture<UdpResponse> future = udpService.sendRequest(request, "client", (count, offset, items) -> {
+            assertEquals(ITEM_COUNT, count);
+            offsets.add(offset);
+            items.forEach(item -> field6.add(item.getField6()));
+            if (holder.get() != null && holder.get().isDone()) {
+                doneWhenStreamed.set(true);
+            }
+        });
+        holder.set(future);
+
+        TerrainResponse response = (TerrainResponse) future.get(5, TimeUnit.SECONDS);
+        assertEquals(ITEM_COUNT, response.getItems().size());
+        assertFalse(doneWhenStreamed.get());
+        // 末尾分片之前的完整项已按顺序推送，且各批首尾相接
+        assertTrue(field6.size() >= ITEM_COUNT - 4, "streamed " + field6.size());
+        for (int i = 0; i < field6.size(); i++) {
+            assertEquals(i, field6.get(i));
+        }
+        assertEquals(0, offsets.get(0));
+    }
+
+    @Test
+    void testRequestWithoutListenerStillCompletes() throws Exception {
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(8002L);
+        request.setDataSource(1);
+
+        TerrainResponse response = (TerrainResponse) udpService.sendRequest(request).get(5, TimeUnit.SECONDS);
+        assertEquals(ITEM_COUNT, response.getCount());
+    }
+}
@@ -0,0 +1,190 @@
+package com.orca.com.service;
+
+import com.orca.com.config.UdpProperties;
+import com.orca.com.protocol.EvaluationConfigRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上游后端池与负载均衡测试
+ */
+class UpstreamPoolTest {
+
+    private static UpstreamEndpoint endpoint(int port) {
+        return new UpstreamEndpoint(new InetSocketAddress("127.0.0.1", port), null, null, null);
+    }
+
+    private static Map<UpstreamEndpoint, Integer> selectMany(UpstreamPool pool, int count, boolean complete) {
+        Map<UpstreamEndpoint, Integer> counts = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            UpstreamEndpoint selected = pool.select();
+            counts.merge(selected, 1, Integer::sum);
+            if (complete) {
+                pool.requestCompleted(selected, 1_000_000, null);
+            }
+        }
+        return counts;
+    }
+
+    @Test
+    void testRoundRobinSpreadsEvenly() {
+        UpstreamEndpoint a = endpoint(1);
+        UpstreamEndpoint b = endpoint(2);
+        UpstreamEndpoint c = endpoint(3);
+        UpstreamPool pool = new UpstreamPool(List.of(a, b, c), UpstreamBalancer.create("round-robin"), 3, 10_000);
+
+        Map<UpstreamEndpoint, Integer> counts = selectMany(pool, 300, true);
+        assertEquals(100, counts.get(a));
+        assertEquals(100, counts.get(b));
+        assertEquals(100, counts.get(c));
+    }
+
+    @Test
+    void testLeastOutstandingAvoidsBusyEndpoint() {
+        UpstreamEndpoint busy = endpoint(1);
+        UpstreamEndpoint idle = endpoint(2);
+        UpstreamPool pool = new UpstreamPool(List.of(busy, idle), UpstreamBalancer.create("least-outstanding"),
+            3, 10_000);
+        for (int i = 0; i < 10; i++) {
+            busy.requestSent();
+        }
+
+        Map<UpstreamEndpoint, Integer> counts = selectMany(pool, 10, false);
+        assertEquals(10, counts.get(idle));
+        assertEquals(10, idle.getOutstanding());
+        // 两边在途数相同后交替分配
+        counts = selectMany(pool, 10, false);
+        assertEquals(5, counts.get(busy));
+        assertEquals(5, counts.get(idle));
+    }
+
+    @Test
+    void testLatencyWeightedPrefersFasterEndpoint() {
+        UpstreamEndpoint fast = endpoint(1);
+        UpstreamEndpoint slow = endpoint(2);
+        UpstreamPool pool = new UpstreamPool(List.of(fast, slow), UpstreamBalancer.create("latency"), 3, 10_000);
+        fast.requestSent();
+        pool.requestCompleted(fast, 1_000_000, null);
+        slow.requestSent();
+        pool.requestCompleted(slow, 9_000_000, null);
+
+        Map<UpstreamEndpoint, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            UpstreamEndpoint selected = pool.select();
+            counts.merge(selected, 1, Integer::sum);
+            selected.requestCompleted(0, false, false);
+        }
+        // 权重 9:1
+        assertTrue(counts.get(fast) > 8500, "fast selected " + counts.get(fast));
+        assertTrue(counts.get(slow) > 500, "slow selected " + counts.get(slow));
+    }
+
+    @Test
+    void testEndpointEjectedAfterConsecutiveTimeoutsAndRestored() throws Exception {
+        UpstreamEndpoint flaky = endpoint(1);
+        UpstreamEndpoint healthy = endpoint(2);
+        UpstreamPool pool = new UpstreamPool(List.of(flaky, healthy), UpstreamBalancer.create("round-robin"), 3, 50);
+
+        for (int i = 0; i < 3; i++) {
+            flaky.requestSent();
+            pool.requestCompleted(flaky, 0, new CompletionException(new TimeoutException()));
+        }
+        assertFalse(flaky.isAvailable(System.nanoTime()));
+        assertEquals(20, selectMany(pool, 20, true).get(healthy));
+
+        Thread.sleep(60);
+        assertTrue(flaky.isAvailable(System.nanoTime()));
+        assertEquals(10, selectMany(pool, 20, true).get(flaky));
+    }
+
+    @Test
+    void testNonTimeoutFailuresDoNotEject() {
+        UpstreamEndpoint a = endpoint(1);
+        UpstreamEndpoint b = endpoint(2);
+        UpstreamPool pool = new UpstreamPool(List.of(a, b), UpstreamBalancer.create("round-robin"), 1, 10_000);
+        a.requestSent();
+        pool.requestCompleted(a, 0, new IOException("UDP send queue full"));
+        assertTrue(a.isAvailable(System.nanoTime()));
+        assertEquals(0, a.getOutstanding());
+    }
+
+    @Test
+    void testAllEjectedFallsBackToAll() {
+        UpstreamEndpoint a = endpoint(1);
+        UpstreamEndpoint b = endpoint(2);
+        UpstreamPool pool = new UpstreamPool(List.of(a, b), UpstreamBalancer.create("round-robin"), 1, 10_000);
+        a.eject(System.nanoTime() + 1_000_000_000L);
+        b.eject(System.nanoTime() + 1_000_000_000L);
+
+        Map<UpstreamEndpoint, Integer> counts = selectMany(pool, 4, true);
+        assertEquals(2, counts.get(a));
+        assertEquals(2, counts.get(b));
+    }
+
+    @Test
+    void testParseAddress() throws Exception {
+        InetSocketAddress address = UpstreamEndpoint.parseAddress("127.0.0.1:19211");
+        assertEquals(19211, address.getPort());
+        assertEquals("127.0.0.1", address.getAddress().getHostAddress());
+        assertEquals(19212, UpstreamEndpoint.parseAddress("[::1]:19212").getPort());
+        assertThrows(IllegalArgumentException.class, () -> UpstreamEndpoint.parseAddress("127.0.0.1"));
+        assertThrows(IllegalArgumentException.class,
+            () -> new UpstreamPool(List.of(), UpstreamBalancer.create(null), 3, 10_000));
+    }
+
+    @Test
+    void testRequestsSpreadAcrossConfiguredUpstreams() throws Exception {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        try (DatagramSocket first = new DatagramSocket(19241, loopback);
+             DatagramSocket second = new DatagramSocket(19242, loopback)) {
+            first.setSoTimeout(2000);
+            second.setSoTimeout(2000);
+            UdpProperties properties = new UdpProperties();
+            properties.setListenHost("127.0.0.1");
+            properties.setListenPort(19240);
+            properties.setUpstreams(List.of("127.0.0.1:19241", "127.0.0.1:19242"));
+            properties.setResponseCacheMaxEntries(0);
+            UdpService udpService = new UdpService(properties);
+            udpService.start();
+            try {
+                for (int i = 0; i < 4; i++) {
+                    EvaluationConfigRequest request = new EvaluationConfigRequest();
+                    request.setRequestId(100 + i);
+                    request.setResponseTerminal(i);
+                    udpService.sendRequest(request);
+                }
+                assertEquals(2, drain(first));
+                assertEquals(2, drain(second));
+            } finally {
+                udpService.stop();
+            }
+        }
+    }
+
+    private static int drain(DatagramSocket socket) throws Exception {
+        int received = 0;
+        byte[] buf = new byte[2048];
+        try {
+            while (true) {
+                socket.receive(new DatagramPacket(buf, buf.length));
+                received++;
+                socket.setSoTimeout(300);
+            }
+        } catch (SocketTimeoutException e) {
+            return received;
+        }
+    }
+}
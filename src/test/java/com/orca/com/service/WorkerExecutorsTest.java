@@ -0,0 +1,44 @@
+package com.orca.com.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作线程执行器测试
+ */
+class WorkerExecutorsTest {
+
+    @Test
+    void testFixedPoolUsesNamedDaemonThreads() throws Exception {
+        ExecutorService executor = WorkerExecutors.create(WorkerExecutors.FIXED, 2, "Test-Worker");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(thread.getName().startsWith("Test-Worker-"));
+            assertTrue(thread.isDaemon());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualModeRunsTasksOrFallsBackToFixed() throws Exception {
+        ExecutorService executor = WorkerExecutors.create(WorkerExecutors.VIRTUAL, 2, "Test-Worker");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            if (!WorkerExecutors.isVirtualThreadSupported()) {
+                assertTrue(thread.getName().startsWith("Test-Worker-"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testUnknownModeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> WorkerExecutors.create("cached", 2, "Test-Worker"));
+    }
+}
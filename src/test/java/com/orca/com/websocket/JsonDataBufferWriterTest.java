@@ -0,0 +1,82 @@
+package com.orca.com.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orca.com.protocol.TerrainResponse;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式JSON写入测试
+ */
+class JsonDataBufferWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonDataBufferWriter writer = new JsonDataBufferWriter(objectMapper);
+
+    private static TerrainResponse largeResponse(int itemCount) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(77L);
+        response.setCount(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+            item.setALongitude(116.0 + i * 0.001);
+            item.setBLongitude(39.0 + i * 0.001);
+            item.setType(i % 5);
+            item.setDensity(i / 10.0f);
+            item.setField6(i);
+            byte[] terrain = new byte[i % 64];
+            for (int j = 0; j < terrain.length; j++) {
+                terrain[j] = (byte) (i + j);
+            }
+            item.setTerrainData(terrain.length > 0 ? terrain : null);
+            response.getItems().add(item);
+        }
+        return TerrainResponse.decode(response.encode());
+    }
+
+    @Test
+    void testOutputMatchesWriteValueAsString() throws Exception {
+        TerrainResponse response = largeResponse(500);
+        WebSocketResponse<WebSocketResponse.TerrainData> wsResponse = WebSocketResponse.fromUdpResponse(response, 1);
+        String expected = objectMapper.writeValueAsString(wsResponse);
+
+        // 初始容量远小于输出，验证按需扩容
+        DataBuffer buffer = writer.write(wsResponse, DefaultDataBufferFactory.sharedInstance, 16);
+
+        assertEquals(expected, buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testEstimateCoversOutput() throws Exception {
+        TerrainResponse response = largeResponse(500);
+        WebSocketResponse<WebSocketResponse.TerrainData> wsResponse = WebSocketResponse.fromUdpResponse(response, 1);
+
+        int estimate = JsonDataBufferWriter.estimateSize(response);
+        int actual = objectMapper.writeValueAsBytes(wsResponse).length;
+
+        assertTrue(estimate >= actual, "estimate " + estimate + " < actual " + actual);
+        assertTrue(estimate < actual * 2, "estimate " + estimate + " too large for " + actual);
+    }
+
+    @Test
+    void testPooledBuffer() throws Exception {
+        NettyDataBufferFactory factory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        TerrainResponse response = largeResponse(100);
+        WebSocketResponse<WebSocketResponse.TerrainData> wsResponse = WebSocketResponse.fromUdpResponse(response, 1);
+
+        DataBuffer buffer = writer.write(wsResponse, factory, JsonDataBufferWriter.estimateSize(response));
+
+        assertEquals(objectMapper.writeValueAsString(wsResponse), buffer.toString(StandardCharsets.UTF_8));
+        assertTrue(DataBufferUtils.release(buffer));
+        assertEquals(0, ((NettyDataBuffer) buffer).getNativeBuffer().refCnt());
+    }
+}
@@ -0,0 +1,216 @@
+package com.orca.com.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orca.com.protocol.TerrainRequest;
+import com.orca.com.protocol.TerrainResponse;
+import com.orca.com.protocol.UdpRequest;
+import com.orca.com.service.TerrainItemListener;
+import com.orca.com.service.UdpService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * WebSocket处理器测试：JSON文本帧与二进制帧两种模式
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrcaWebSocketHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final List<WebSocketMessage> sent = new ArrayList<>();
+
+    @Mock
+    private UdpService udpService;
+
+    @Mock
+    private WebSocketSession session;
+
+    private OrcaWebSocketHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        handler = new OrcaWebSocketHandler(udpService);
+        when(session.getId()).thenReturn("test");
+        when(session.bufferFactory()).thenReturn(bufferFactory);
+        when(session.textMessage(anyString())).thenAnswer(inv -> new WebSocketMessage(WebSocketMessage.Type.TEXT,
+            bufferFactory.wrap(inv.<String>getArgument(0).getBytes(StandardCharsets.UTF_8))));
+        when(session.send(any())).thenAnswer(inv -> Flux.from(inv.<Publisher<WebSocketMessage>>getArgument(0))
+            .doOnNext(sent::add).then());
+    }
+
+    private void handshake(String uri, String subProtocol) {
+        when(session.getHandshakeInfo()).thenReturn(
+            new HandshakeInfo(URI.create(uri), new HttpHeaders(), Mono.empty(), subProtocol));
+    }
+
+    private static TerrainResponse sampleResponse(long requestId) {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(requestId);
+        response.setCount(1);
+        TerrainResponse.ResponseItem item = new TerrainResponse.ResponseItem();
+        item.setALongitude(116.3974);
+        item.setBLongitude(39.9093);
+        item.setType(1);
+        item.setDensity(0.5f);
+        item.setField6(9);
+        item.setTerrainData(new byte[]{9, 8, 7});
+        response.getItems().add(item);
+        return TerrainResponse.decode(response.encode());
+    }
+
+    private static byte[] bytesOf(WebSocketMessage message) {
+        DataBuffer payload = message.getPayload();
+        byte[] bytes = new byte[payload.readableByteCount()];
+        payload.read(bytes);
+        return bytes;
+    }
+
+    @Test
+    void testSubProtocolNegotiation() {
+        assertTrue(handler.getSubProtocols().contains(OrcaWebSocketHandler.BINARY_SUBPROTOCOL));
+        assertTrue(OrcaWebSocketHandler.isBinaryMode(new HandshakeInfo(URI.create("ws://h/orca/ws"),
+            new HttpHeaders(), Mono.empty(), OrcaWebSocketHandler.BINARY_SUBPROTOCOL)));
+        assertTrue(OrcaWebSocketHandler.isBinaryMode(new HandshakeInfo(URI.create("ws://h/orca/ws?format=binary"),
+            new HttpHeaders(), Mono.empty(), null)));
+        assertFalse(OrcaWebSocketHandler.isBinaryMode(new HandshakeInfo(URI.create("ws://h/orca/ws"),
+            new HttpHeaders(), Mono.empty(), null)));
+    }
+
+    @Test
+    void testBinaryRequestAndResponse() {
+        handshake("ws://localhost/orca/ws", OrcaWebSocketHandler.BINARY_SUBPROTOCOL);
+        TerrainResponse response = sampleResponse(321L);
+        when(udpService.sendRequest(any(), any())).thenReturn(CompletableFuture.completedFuture(response));
+
+        TerrainRequest request = new TerrainRequest();
+        request.setRequestId(321L);
+        request.setALongitude(116.3974);
+        request.setDataSource(2);
+        when(session.receive()).thenReturn(Flux.just(
+            new WebSocketMessage(WebSocketMessage.Type.BINARY, bufferFactory.wrap(request.encode()))));
+
+        handler.handle(session).block(Duration.ofSeconds(5));
+
+        ArgumentCaptor<UdpRequest> captor = ArgumentCaptor.forClass(UdpRequest.class);
+        verify(udpService).sendRequest(captor.capture(), eq("test"));
+        TerrainRequest forwarded = (TerrainRequest) captor.getValue();
+        assertEquals(321L, forwarded.getRequestId());
+        assertEquals(2, forwarded.getDataSource());
+
+        assertEquals(1, sent.size());
+        assertEquals(WebSocketMessage.Type.BINARY, sent.get(0).getType());
+        assertArrayEquals(response.encode(), bytesOf(sent.get(0)));
+    }
+
+    @Test
+    void testBinaryFrameRejectedWithoutNegotiation() throws Exception {
+        handshake("ws://localhost/orca/ws", null);
+        when(session.receive()).thenReturn(Flux.just(
+            new WebSocketMessage(WebSocketMessage.Type.BINARY, bufferFactory.wrap(new TerrainRequest().encode()))));
+
+        handler.handle(session).block(Duration.ofSeconds(5));
+
+        verify(udpService, never()).sendRequest(any(), any());
+        assertEquals(1, sent.size());
+        assertEquals(WebSocketMessage.Type.TEXT, sent.get(0).getType());
+        JsonNode json = objectMapper.readTree(bytesOf(sent.get(0)));
+        assertFalse(json.get("success").asBoolean());
+    }
+
+    @Test
+    void testJsonRequestStillSupported() throws Exception {
+        handshake("ws://localhost/orca/ws?format=binary", null);
+        when(udpService.sendRequest(any(), any())).thenReturn(CompletableFuture.completedFuture(sampleResponse(55L)));
+        String request = "{\"type\":1,\"requestId\":55,\"aLongitude\":116.3974}";
+        when(session.receive()).thenReturn(Flux.just(new WebSocketMessage(WebSocketMessage.Type.TEXT,
+            bufferFactory.wrap(request.getBytes(StandardCharsets.UTF_8)))));
+
+        handler.handle(session).block(Duration.ofSeconds(5));
+
+        assertEquals(1, sent.size());
+        assertEquals(WebSocketMessage.Type.TEXT, sent.get(0).getType());
+        JsonNode json = objectMapper.readTree(bytesOf(sent.get(0)));
+        assertTrue(json.get("success").asBoolean());
+        assertEquals(55L, json.get("requestId").asLong());
+        assertEquals("CQgH", json.get("data").get("items").get(0).get("terrainData").asText());
+    }
+
+    @Test
+    void testStreamedJsonRequestSendsPartialThenLastFrame() throws Exception {
+        handshake("ws://localhost/orca/ws", null);
+        TerrainResponse response = sampleResponse(66L);
+        when(udpService.sendRequest(any(), any(), any())).thenAnswer(inv -> {
+            // 模拟首个分片到达时推送的第一项
+            TerrainItemListener listener = inv.getArgument(2);
+            listener.onItems(1, 0, response.getItems());
+            return CompletableFuture.completedFuture(response);
+        });
+        String request = "{\"type\":1,\"requestId\":66,\"stream\":true}";
+        when(session.receive()).thenReturn(Flux.just(new WebSocketMessage(WebSocketMessage.Type.TEXT,
+            bufferFactory.wrap(request.getBytes(StandardCharsets.UTF_8)))));
+
+        handler.handle(session).block(Duration.ofSeconds(5));
+
+        verify(udpService).sendRequest(any(), eq("test"), any());
+        assertEquals(2, sent.size());
+        JsonNode partial = objectMapper.readTree(bytesOf(sent.get(0)));
+        assertTrue(partial.get("partial").asBoolean());
+        assertEquals(0, partial.get("data").get("offset").asInt());
+        assertEquals("CQgH", partial.get("data").get("items").get(0).get("terrainData").asText());
+
+        JsonNode last = objectMapper.readTree(bytesOf(sent.get(1)));
+        assertFalse(last.get("partial").asBoolean());
+        assertTrue(last.get("success").asBoolean());
+        assertEquals(66L, last.get("requestId").asLong());
+        assertEquals(1, last.get("data").get("count").asLong());
+        assertEquals(1, last.get("data").get("offset").asInt());
+        assertEquals(0, last.get("data").get("items").size());
+    }
+
+    @Test
+    void testStreamedRequestFailureSendsErrorFrame() throws Exception {
+        handshake("ws://localhost/orca/ws", null);
+        when(udpService.sendRequest(any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new java.util.concurrent.TimeoutException("Request timeout")));
+        String request = "{\"type\":1,\"requestId\":67,\"stream\":true}";
+        when(session.receive()).thenReturn(Flux.just(new WebSocketMessage(WebSocketMessage.Type.TEXT,
+            bufferFactory.wrap(request.getBytes(StandardCharsets.UTF_8)))));
+
+        handler.handle(session).block(Duration.ofSeconds(5));
+
+        assertEquals(1, sent.size());
+        JsonNode json = objectMapper.readTree(bytesOf(sent.get(0)));
+        assertFalse(json.get("success").asBoolean());
+        assertEquals(67L, json.get("requestId").asLong());
+        assertEquals("Request timeout", json.get("error").asText());
+    }
+}
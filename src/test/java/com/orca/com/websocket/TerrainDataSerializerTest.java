@@ -0,0 +1,68 @@
+package com.orca.com.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orca.com.protocol.TerrainResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TerrainData 序列化测试：视图直写与DTO序列化输出一致
+ */
+class TerrainDataSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static TerrainResponse sampleResponse() {
+        TerrainResponse response = new TerrainResponse();
+        response.setRequestId(5L);
+        response.setCount(2);
+
+        TerrainResponse.ResponseItem item1 = new TerrainResponse.ResponseItem();
+        item1.setALongitude(116.3974);
+        item1.setBLongitude(1.5);
+        item1.setType(3);
+        item1.setDensity(0.85f);
+        item1.setField6(7);
+        item1.setTerrainData(new byte[]{1, 2, 3});
+        response.getItems().add(item1);
+
+        response.getItems().add(new TerrainResponse.ResponseItem());
+        return response;
+    }
+
+    @Test
+    void testViewOutputMatchesDtoOutput() throws Exception {
+        TerrainResponse dtoResponse = sampleResponse();
+        TerrainResponse viewResponse = TerrainResponse.decode(dtoResponse.encode());
+        assertNotNull(viewResponse.getView());
+
+        WebSocketResponse<WebSocketResponse.TerrainData> fromView = WebSocketResponse.fromUdpResponse(viewResponse, 1);
+        WebSocketResponse<WebSocketResponse.TerrainData> fromDto = WebSocketResponse.fromUdpResponse(dtoResponse, 1);
+        assertNotNull(fromView.getData().getView());
+        assertNull(fromDto.getData().getView());
+
+        String viewJson = objectMapper.writeValueAsString(fromView);
+        String dtoJson = objectMapper.writeValueAsString(fromDto);
+        assertEquals(dtoJson, viewJson);
+        assertTrue(viewJson.contains("\"terrainData\":\"AQID\""));
+        assertTrue(viewJson.contains("\"terrainData\":null"));
+    }
+
+    @Test
+    void testItemsMaterializedFromView() throws Exception {
+        TerrainResponse viewResponse = TerrainResponse.decode(sampleResponse().encode());
+        WebSocketResponse.TerrainData data = WebSocketResponse.fromUdpResponse(viewResponse, 1).getData();
+
+        assertEquals(2, data.getItems().size());
+        assertEquals(3, data.getItems().get(0).getType());
+        assertEquals("AQID", data.getItems().get(0).getTerrainData());
+        assertNull(data.getItems().get(1).getTerrainData());
+
+        WebSocketResponse.TerrainData roundTrip = objectMapper.readValue(
+            objectMapper.writeValueAsString(data), WebSocketResponse.TerrainData.class);
+        assertEquals(2L, roundTrip.getCount());
+        assertEquals(2, roundTrip.getItems().size());
+        assertEquals(116.3974, roundTrip.getItems().get(0).getALongitude());
+    }
+}